@@ -0,0 +1,50 @@
+package ar.edu.unrc.exa.dc.benchmark;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest.PREDICATE_END_DELIMITER;
+import static ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest.PREDICATE_START_DELIMITER;
+
+/**
+ * Synthetic tests, shaped like the ones generated by BeAFix, shared by the benchmarks.
+ */
+final class BenchmarkTests {
+
+    private BenchmarkTests() {}
+
+    /**
+     * @return {@code count} counterexample tests, each one with a different name and predicate.
+     */
+    static List<BeAFixTest> syntheticTests(int count) {
+        List<BeAFixTest> tests = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            tests.add(new BeAFixTest(syntheticTest(i), BeAFixTest.TestType.TRUSTED));
+        }
+        return tests;
+    }
+
+    /**
+     * @return the text of a counterexample test, as found in a BeAFix {@code .tests} file.
+     */
+    static String syntheticTest(int index) {
+        String name = "benchmark_CE_" + index + "_0";
+        return PREDICATE_START_DELIMITER +
+                "pred " + name + "[] {\n" +
+                "\tsome disj N0, N1, N2 : Node | {\n" +
+                "\t\tNode = N0 + N1 + N2\n" +
+                "\t\tnext = N0->N1 + N1->N2 + N2->N" + (index % 3) + "\n" +
+                "\t\tval = N0->" + index + " + N1->" + (index + 1) + " + N2->" + (index + 2) + "\n" +
+                "\t}\n" +
+                "}\n" +
+                PREDICATE_END_DELIMITER +
+                "run " + name + " for 3 expect 1\n";
+    }
+
+    static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+
+}
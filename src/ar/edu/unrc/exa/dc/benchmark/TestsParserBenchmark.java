@@ -0,0 +1,100 @@
+package ar.edu.unrc.exa.dc.benchmark;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult;
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+import ar.edu.unrc.exa.dc.tools.TestsFileParser;
+import ar.edu.unrc.exa.dc.util.Utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compares parsing a BeAFix {@code .tests} file by joining its lines and splitting the result (as ICEBAR used to)
+ * against {@link TestsFileParser}.
+ * <p>
+ * Usage: {@code TestsParserBenchmark [tests per file (default 10000)] [repetitions (default 10)]}
+ */
+public final class TestsParserBenchmark {
+
+    private static final int TESTS_DEFAULT = 10000;
+    private static final int REPETITIONS_DEFAULT = 10;
+    private static final int WARMUP_REPETITIONS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int testsCount = args.length > 0?Integer.parseInt(args[0]):TESTS_DEFAULT;
+        int repetitions = args.length > 1?Integer.parseInt(args[1]):REPETITIONS_DEFAULT;
+        Path folder = Files.createTempDirectory("icebar_tests_parser_benchmark");
+        try {
+            Path testsFile = folder.resolve("benchmark.tests");
+            writeTestsFile(testsCount, testsFile);
+            for (int i = 0; i < WARMUP_REPETITIONS; i++) {
+                legacyParse(testsFile);
+                TestsFileParser.parse(testsFile, BeAFixTest.TestType.TRUSTED);
+            }
+            long legacyTime = 0;
+            long streamingTime = 0;
+            List<BeAFixTest> legacyTests = null;
+            List<BeAFixTest> streamingTests = null;
+            for (int i = 0; i < repetitions; i++) {
+                long start = System.nanoTime();
+                legacyTests = legacyParse(testsFile);
+                legacyTime += System.nanoTime() - start;
+                start = System.nanoTime();
+                streamingTests = TestsFileParser.parse(testsFile, BeAFixTest.TestType.TRUSTED);
+                streamingTime += System.nanoTime() - start;
+            }
+            checkSameTests(legacyTests, streamingTests);
+            System.out.println("Tests per file: " + testsCount + " | repetitions: " + repetitions + " | file size: " + Files.size(testsFile) + " bytes" +
+                    (Files.size(testsFile) >= TestsFileParser.MAP_THRESHOLD?" (memory-mapped)":""));
+            System.out.println("Join and split   : " + BenchmarkTests.millis(legacyTime / Math.max(1, repetitions)) + " ms/file");
+            System.out.println("TestsFileParser  : " + BenchmarkTests.millis(streamingTime / Math.max(1, repetitions)) + " ms/file");
+            System.out.println("Speedup          : " + String.format("%.2f", (double) legacyTime / Math.max(1, streamingTime)) + "x");
+        } finally {
+            Utils.deleteFolderAndItsContent(folder);
+        }
+    }
+
+    private static void writeTestsFile(int testsCount, Path testsFile) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(testsFile)) {
+            for (int i = 1; i <= testsCount; i++) {
+                writer.write(BenchmarkTests.syntheticTest(i));
+                writer.write(BeAFixResult.TEST_SEPARATOR);
+                writer.write("\n");
+            }
+        }
+    }
+
+    private static List<BeAFixTest> legacyParse(Path testsFile) throws IOException {
+        List<BeAFixTest> tests = new LinkedList<>();
+        String[] rawTests = Files.lines(testsFile).collect(Collectors.joining("\n")).split(BeAFixResult.TEST_SEPARATOR);
+        for (String rawTest : rawTests) {
+            if (rawTest.trim().isEmpty())
+                continue;
+            tests.add(new BeAFixTest(rawTest, BeAFixTest.TestType.TRUSTED));
+        }
+        return tests;
+    }
+
+    private static void checkSameTests(List<BeAFixTest> legacyTests, List<BeAFixTest> streamingTests) {
+        if (legacyTests == null || streamingTests == null)
+            return;
+        if (legacyTests.size() != streamingTests.size())
+            throw new IllegalStateException("Legacy parser found " + legacyTests.size() + " tests but streaming parser found " + streamingTests.size());
+        Iterator<BeAFixTest> streamingIt = streamingTests.iterator();
+        int i = 0;
+        for (BeAFixTest legacy : legacyTests) {
+            BeAFixTest streaming = streamingIt.next();
+            if (!legacy.predicate().equals(streaming.predicate()) || !legacy.command().equals(streaming.command()) ||
+                    legacy.getIndex() != streaming.getIndex() || legacy.getMaxScope() != streaming.getMaxScope())
+                throw new IllegalStateException("Legacy and streaming parsers differ on test " + i + ":\n" + legacy.command() + "\n" + streaming.command());
+            i++;
+        }
+    }
+
+}
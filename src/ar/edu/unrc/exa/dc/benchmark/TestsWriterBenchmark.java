@@ -0,0 +1,81 @@
+package ar.edu.unrc.exa.dc.benchmark;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+import ar.edu.unrc.exa.dc.util.Utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compares writing an ARepair tests file one {@code Files.write} call per test (as ICEBAR used to) against
+ * {@link Utils#writeTestsToFile(Collection, Path, boolean)}.
+ * <p>
+ * Usage: {@code TestsWriterBenchmark [tests per suite (default 5000)] [repetitions (default 10)]}
+ */
+public final class TestsWriterBenchmark {
+
+    private static final int TESTS_DEFAULT = 5000;
+    private static final int REPETITIONS_DEFAULT = 10;
+    private static final int WARMUP_REPETITIONS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int testsCount = args.length > 0?Integer.parseInt(args[0]):TESTS_DEFAULT;
+        int repetitions = args.length > 1?Integer.parseInt(args[1]):REPETITIONS_DEFAULT;
+        List<BeAFixTest> tests = BenchmarkTests.syntheticTests(testsCount);
+        Path folder = Files.createTempDirectory("icebar_tests_writer_benchmark");
+        try {
+            Path legacyFile = folder.resolve("legacy_tests.als");
+            Path bufferedFile = folder.resolve("buffered_tests.als");
+            for (int i = 0; i < WARMUP_REPETITIONS; i++) {
+                legacyWrite(tests, legacyFile);
+                bufferedWrite(tests, bufferedFile);
+            }
+            long legacyTime = 0;
+            long bufferedTime = 0;
+            for (int i = 0; i < repetitions; i++) {
+                legacyTime += legacyWrite(tests, legacyFile);
+                bufferedTime += bufferedWrite(tests, bufferedFile);
+            }
+            if (!Arrays.equals(Files.readAllBytes(legacyFile), Files.readAllBytes(bufferedFile)))
+                throw new IllegalStateException("Legacy and buffered writers produced different files");
+            System.out.println("Tests per suite: " + testsCount + " | repetitions: " + repetitions + " | file size: " + Files.size(bufferedFile) + " bytes");
+            System.out.println("Per test Files.write : " + BenchmarkTests.millis(legacyTime / repetitions) + " ms/suite");
+            System.out.println("TestsFileWriter      : " + BenchmarkTests.millis(bufferedTime / repetitions) + " ms/suite");
+            System.out.println("Speedup              : " + String.format("%.2f", (double) legacyTime / Math.max(1, bufferedTime)) + "x");
+        } finally {
+            Utils.deleteFolderAndItsContent(folder);
+        }
+    }
+
+    private static long legacyWrite(Collection<BeAFixTest> tests, Path output) throws IOException {
+        Files.deleteIfExists(output);
+        long start = System.nanoTime();
+        Files.createFile(output);
+        Files.write(output, "\n".getBytes(), StandardOpenOption.APPEND);
+        for (BeAFixTest test : tests) {
+            Files.write(output, ("--" + test.testType().toString() + "\n" + test.predicate() + "\n" + test.command() + "\n").getBytes(), StandardOpenOption.APPEND);
+            if (test.isRelated()) {
+                Files.write(output,
+                        ("--" + test.relatedBeAFixTest().testType().toString() + "\n" +
+                                test.relatedBeAFixTest().predicate() + "\n" +
+                                test.relatedBeAFixTest().command() + "\n")
+                                .getBytes(),
+                        StandardOpenOption.APPEND);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long bufferedWrite(Collection<BeAFixTest> tests, Path output) throws IOException {
+        Files.deleteIfExists(output);
+        long start = System.nanoTime();
+        Utils.writeTestsToFile(tests, output, true);
+        return System.nanoTime() - start;
+    }
+
+}
@@ -0,0 +1,271 @@
+package ar.edu.unrc.exa.dc.distributed;
+
+import ar.edu.unrc.exa.dc.tools.ARepair;
+import ar.edu.unrc.exa.dc.tools.ARepair.ARepairResult;
+import ar.edu.unrc.exa.dc.tools.BeAFix;
+import ar.edu.unrc.exa.dc.tools.BeAFixResult;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Logger;
+
+import static ar.edu.unrc.exa.dc.util.Utils.exceptionToString;
+
+/**
+ * Runs ARepair and BeAFix on behalf of a coordinator (see {@link WorkerPool}).
+ * <p>
+ * A worker serves one connection, and one request, at a time: the coordinator keeps the search space and the global
+ * tests, and sends the model, the tests and the tool settings with each request. Several workers can run on the same
+ * host as long as they use different ports and working directories.
+ * <p>
+ * A worker runs the tools on any model it receives, so by default it only listens on the loopback interface. Listening
+ * on other interfaces requires a shared token, coordinators sending a different token in their handshake are
+ * disconnected before any request is read.
+ * <p>
+ * A coordinator cancels a request by closing the connection, the worker watches the connection while a tool runs, and
+ * kills the tool's process when it is closed.
+ */
+public final class ICEBARWorker {
+
+    private static final String MODELS_FOLDER = "models";
+
+    private final int port;
+    private final InetAddress bindAddress;
+    private final String token;
+    private final ARepair aRepair;
+    private final BeAFix beAFix;
+    private final Path modelsFolder;
+    private final Logger logger;
+
+    /**
+     * @param port             the port to listen on
+     * @param bindAddress      the address to listen on, or {@code null} to only listen on the loopback interface
+     * @param token            the token coordinators must send in their handshake, required (not empty) unless
+     *                         {@code bindAddress} is a loopback address
+     * @param aRepair          an ARepair instance with this host's classpath, sat-solvers, and working directory
+     * @param beAFix           a BeAFix instance with this host's BeAFix jar and output directory
+     * @param workingDirectory the folder where received models and tests are written
+     * @param logger           the worker's logger
+     */
+    public ICEBARWorker(int port, InetAddress bindAddress, String token, ARepair aRepair, BeAFix beAFix, Path workingDirectory, Logger logger) throws IOException {
+        if (port <= 0 || port > 65535)
+            throw new IllegalArgumentException("invalid port (" + port + ")");
+        InetAddress address = bindAddress == null?InetAddress.getLoopbackAddress():bindAddress;
+        if (!address.isLoopbackAddress() && (token == null || token.isEmpty()))
+            throw new IllegalArgumentException("a token is required to listen on a non loopback address (" + address.getHostAddress() + ")");
+        if (aRepair == null)
+            throw new IllegalArgumentException("null ARepair instance");
+        if (beAFix == null)
+            throw new IllegalArgumentException("null BeAFix instance");
+        if (logger == null)
+            throw new IllegalArgumentException("null logger");
+        this.port = port;
+        this.bindAddress = address;
+        this.token = token == null?"":token;
+        this.aRepair = aRepair;
+        this.beAFix = beAFix;
+        this.modelsFolder = Files.createDirectories(workingDirectory.resolve(MODELS_FOLDER)).toAbsolutePath();
+        this.logger = logger;
+    }
+
+    /**
+     * Accepts and serves coordinator connections until the process is stopped.
+     */
+    public void serve() throws IOException {
+        try (ServerSocket server = new ServerSocket()) {
+            server.setReuseAddress(true);
+            server.bind(new InetSocketAddress(bindAddress, port));
+            logger.info("ICEBAR worker listening on " + bindAddress.getHostAddress() + ":" + port);
+            while (!Thread.currentThread().isInterrupted()) {
+                try (Socket coordinator = server.accept()) {
+                    logger.info("Serving coordinator " + coordinator.getRemoteSocketAddress());
+                    serve(coordinator);
+                } catch (IOException e) {
+                    logger.warning("Connection with coordinator ended with an exception\n" + exceptionToString(e));
+                }
+            }
+        }
+    }
+
+    private void serve(Socket coordinator) throws IOException {
+        coordinator.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(coordinator.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(coordinator.getOutputStream()));
+        if (!WorkerProtocol.readHandshake(in, token)) {
+            logger.warning("Coordinator " + coordinator.getRemoteSocketAddress() + " sent an invalid token, closing connection");
+            WorkerProtocol.writeError(out, "Invalid token");
+            return;
+        }
+        out.writeByte(WorkerProtocol.OK);
+        out.flush();
+        while (true) {
+            byte kind;
+            try {
+                kind = WorkerProtocol.readHeader(in);
+            } catch (EOFException e) {
+                logger.info("Coordinator closed the connection");
+                return;
+            }
+            Map<String, String> settings = WorkerProtocol.readSettings(in);
+            Path model = receiveFile(in);
+            try {
+                switch (kind) {
+                    case WorkerProtocol.AREPAIR: {
+                        Path tests = receiveFile(in);
+                        runARepair(settings, model, tests, coordinator, in, out);
+                        break;
+                    }
+                    case WorkerProtocol.BEAFIX_CHECK:
+                    case WorkerProtocol.BEAFIX_TESTS: {
+                        runBeAFix(settings, model, kind == WorkerProtocol.BEAFIX_CHECK, coordinator, in, out);
+                        break;
+                    }
+                    default: {
+                        WorkerProtocol.writeError(out, "Unknown request kind (" + kind + ")");
+                        return;
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.severe("Request failed\n" + exceptionToString(e));
+                WorkerProtocol.writeError(out, exceptionToString(e));
+            }
+        }
+    }
+
+    private Path receiveFile(DataInputStream in) throws IOException {
+        String name = WorkerProtocol.readString(in);
+        byte[] content = WorkerProtocol.readBytes(in);
+        Path file = modelsFolder.resolve(name).normalize();
+        if (!modelsFolder.equals(file.getParent()))
+            throw new IOException("Invalid file name (" + name + ")");
+        Files.write(file, content);
+        return file;
+    }
+
+    private void runARepair(Map<String, String> settings, Path model, Path tests, Socket coordinator, DataInputStream in, DataOutputStream out) throws IOException {
+        aRepair.settings(settings);
+        aRepair.modelToRepair(model);
+        aRepair.testsPath(tests);
+        if (!aRepair.cleanFixDirectory())
+            logger.warning("There was a problem cleaning ARepair .hidden folder, will keep going");
+        logger.info("Executing ARepair:\n" + aRepair.aRepairCommandToString());
+        ARepairResult result = runWatchingCoordinator(coordinator, in, aRepair::run);
+        if (result == null)
+            return;
+        logger.info("ARepair finished\n" + result);
+        out.writeByte(WorkerProtocol.OK);
+        WorkerProtocol.writeString(out, result.status().name());
+        WorkerProtocol.writeString(out, result.message());
+        WorkerProtocol.writeString(out, String.join("\n", result.failureOutput()));
+        out.writeBoolean(result.nullPointerExceptionFound());
+        out.writeBoolean(result.hasRepair());
+        if (result.hasRepair())
+            WorkerProtocol.writeBytes(out, Files.readAllBytes(result.repair()));
+        out.flush();
+    }
+
+    private void runBeAFix(Map<String, String> settings, Path model, boolean check, Socket coordinator, DataInputStream in, DataOutputStream out) throws IOException {
+        beAFix.settings(settings);
+        beAFix.pathToModel(model);
+        if (!beAFix.cleanOutputDir()) {
+            WorkerProtocol.writeError(out, "Couldn't delete BeAFix output directory");
+            return;
+        }
+        Files.deleteIfExists(beAFix.verificationFile());
+        BeAFixResult result = runWatchingCoordinator(coordinator, in, check?beAFix::runModelCheck:beAFix::runTestGeneration);
+        if (result == null)
+            return;
+        if (result.error()) {
+            logger.severe("BeAFix ended in error\n" + result.message());
+            WorkerProtocol.writeError(out, result.message());
+            return;
+        }
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        if (check) {
+            Path verification = beAFix.verificationFile();
+            files.put(verification.getFileName().toString(), Files.readAllBytes(verification));
+        } else if (Files.isDirectory(beAFix.outputDirectory())) {
+            try (DirectoryStream<Path> outputFiles = Files.newDirectoryStream(beAFix.outputDirectory())) {
+                for (Path outputFile : outputFiles) {
+                    if (Files.isRegularFile(outputFile))
+                        files.put(outputFile.getFileName().toString(), Files.readAllBytes(outputFile));
+                }
+            }
+        }
+        logger.info("BeAFix " + (check?"check":"test generation") + " finished, sending " + files.size() + " files");
+        out.writeByte(WorkerProtocol.OK);
+        WorkerProtocol.writeFiles(out, files);
+        out.flush();
+    }
+
+    /**
+     * Runs {@code tool} while watching the connection with the coordinator, which sends nothing while waiting for a
+     * response. If the coordinator closes the connection (cancelling the request) the tool is interrupted, which kills
+     * its process, and no response should be sent.
+     * @return the tool's result, or {@code null} if the request was cancelled
+     */
+    private <T> T runWatchingCoordinator(Socket coordinator, DataInputStream in, Callable<T> tool) throws IOException {
+        FutureTask<T> task = new FutureTask<>(tool);
+        Thread toolThread = new Thread(task, "ICEBAR worker tool");
+        toolThread.start();
+        coordinator.setSoTimeout(WorkerProtocol.POLL_INTERVAL_MS);
+        try {
+            while (!task.isDone()) {
+                int read;
+                try {
+                    read = in.read();
+                } catch (SocketTimeoutException e) {
+                    continue;
+                } catch (IOException e) {
+                    read = -1;
+                }
+                if (read >= 0)
+                    logger.warning("Coordinator sent data while waiting for a response, cancelling request");
+                else
+                    logger.info("Coordinator closed the connection, cancelling request");
+                toolThread.interrupt();
+                awaitTermination(toolThread);
+                return null;
+            }
+        } finally {
+            if (!coordinator.isClosed())
+                coordinator.setSoTimeout(0);
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the tool's result", e);
+        }
+    }
+
+    private static void awaitTermination(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+}
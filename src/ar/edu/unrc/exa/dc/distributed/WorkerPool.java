@@ -0,0 +1,281 @@
+package ar.edu.unrc.exa.dc.distributed;
+
+import ar.edu.unrc.exa.dc.tools.ARepair;
+import ar.edu.unrc.exa.dc.tools.ARepair.ARepairResult;
+import ar.edu.unrc.exa.dc.tools.BeAFix;
+import ar.edu.unrc.exa.dc.tools.BeAFixResult;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static ar.edu.unrc.exa.dc.util.Utils.exceptionToString;
+
+/**
+ * A set of remote {@link ICEBARWorker}s shared by the sessions of a coordinator.
+ * <p>
+ * Each call takes an idle worker (waiting for one if all are busy), sends it the model, tests, and settings of the
+ * given tool instance, and writes the files returned by the worker where the local tool would have written them, so
+ * callers get the same results they would get from running the tool locally. A worker whose connection fails is
+ * reconnected on its next use, and the failed call returns an error result.
+ */
+public final class WorkerPool implements Closeable {
+
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+
+    private static final class WorkerConnection {
+        private final InetSocketAddress address;
+        private final String token;
+        private Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+
+        private WorkerConnection(InetSocketAddress address, String token) {
+            this.address = address;
+            this.token = token;
+        }
+
+        private void connect() throws IOException {
+            if (socket != null)
+                return;
+            Socket newSocket = new Socket();
+            newSocket.connect(new InetSocketAddress(address.getHostString(), address.getPort()), CONNECT_TIMEOUT_MS);
+            newSocket.setTcpNoDelay(true);
+            socket = newSocket;
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            WorkerProtocol.writeHandshake(out, token);
+            if (in.readByte() != WorkerProtocol.OK) {
+                String message = WorkerProtocol.readString(in);
+                disconnect();
+                throw new IOException("Worker " + this + " rejected the handshake (" + message + ")");
+            }
+        }
+
+        /**
+         * Waits for the status that starts the worker's response. The worker sends nothing until its tool finishes, so
+         * the wait is polled, and if the calling thread is interrupted (e.g.: a cancelled check) the connection is
+         * closed, which makes the worker kill the tool's process.
+         */
+        private byte awaitResponse() throws IOException, InterruptedException {
+            socket.setSoTimeout(WorkerProtocol.POLL_INTERVAL_MS);
+            try {
+                while (true) {
+                    if (Thread.interrupted())
+                        throw new InterruptedException();
+                    try {
+                        return in.readByte();
+                    } catch (SocketTimeoutException ignored) {}
+                }
+            } finally {
+                if (socket != null)
+                    socket.setSoTimeout(0);
+            }
+        }
+
+        private void disconnect() {
+            if (socket == null)
+                return;
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+            socket = null;
+            in = null;
+            out = null;
+        }
+
+        @Override
+        public String toString() {
+            return address.getHostString() + ":" + address.getPort();
+        }
+
+    }
+
+    private final List<WorkerConnection> workers;
+    private final BlockingQueue<WorkerConnection> idleWorkers;
+
+    /**
+     * @param addresses a comma separated list of {@code host:port} worker addresses.
+     * @param token     the token sent to every worker in the connection's handshake, empty if workers have no token.
+     */
+    public static WorkerPool fromAddresses(String addresses, String token) {
+        if (addresses == null || addresses.trim().isEmpty())
+            throw new IllegalArgumentException("no worker addresses");
+        List<WorkerConnection> workers = new LinkedList<>();
+        for (String address : addresses.split(",")) {
+            String trimmed = address.trim();
+            if (trimmed.isEmpty())
+                continue;
+            int colon = trimmed.lastIndexOf(':');
+            if (colon <= 0 || colon == trimmed.length() - 1)
+                throw new IllegalArgumentException("Invalid worker address, expecting <host>:<port> but got (" + trimmed + ")");
+            int port;
+            try {
+                port = Integer.parseInt(trimmed.substring(colon + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid worker port (" + trimmed + ")");
+            }
+            if (port <= 0 || port > 65535)
+                throw new IllegalArgumentException("Invalid worker port (" + trimmed + ")");
+            workers.add(new WorkerConnection(InetSocketAddress.createUnresolved(trimmed.substring(0, colon), port), token == null?"":token));
+        }
+        if (workers.isEmpty())
+            throw new IllegalArgumentException("no worker addresses");
+        return new WorkerPool(workers);
+    }
+
+    private WorkerPool(List<WorkerConnection> workers) {
+        this.workers = workers;
+        this.idleWorkers = new LinkedBlockingQueue<>(workers);
+    }
+
+    public int size() {
+        return workers.size();
+    }
+
+    /**
+     * Runs ARepair, as configured by {@code aRepair}, on a worker. A fix is written to {@link ARepair#fixPath()}.
+     */
+    public ARepairResult runARepair(ARepair aRepair) {
+        WorkerConnection worker = null;
+        try {
+            worker = acquire();
+            worker.connect();
+            WorkerProtocol.writeHeader(worker.out, WorkerProtocol.AREPAIR);
+            WorkerProtocol.writeSettings(worker.out, aRepair.settings());
+            sendFile(worker.out, aRepair.modelToRepair());
+            sendFile(worker.out, aRepair.testsPath());
+            worker.out.flush();
+            if (worker.awaitResponse() != WorkerProtocol.OK) {
+                ARepairResult error = ARepairResult.error();
+                error.message("Worker " + worker + " failed\n" + WorkerProtocol.readString(worker.in));
+                return error;
+            }
+            ARepairResult result = ARepairResult.of(ARepairResult.Status.valueOf(WorkerProtocol.readString(worker.in)));
+            String message = WorkerProtocol.readString(worker.in);
+            if (!message.isEmpty())
+                result.message(message);
+            String failureOutput = WorkerProtocol.readString(worker.in);
+            if (!failureOutput.isEmpty())
+                result.failureOutput(Arrays.asList(failureOutput.split("\n")));
+            if (worker.in.readBoolean())
+                result.npeFound();
+            if (worker.in.readBoolean()) {
+                byte[] fixContent = WorkerProtocol.readBytes(worker.in);
+                if (Thread.currentThread().isInterrupted()) {
+                    ARepairResult error = ARepairResult.error();
+                    error.message("ARepair was cancelled, its result was dropped");
+                    return error;
+                }
+                Path fix = aRepair.fixPath();
+                Files.createDirectories(fix.toAbsolutePath().getParent());
+                Files.write(fix, fixContent);
+                result.repair(fix);
+            }
+            return result;
+        } catch (IOException | IllegalArgumentException e) {
+            if (worker != null)
+                worker.disconnect();
+            ARepairResult error = ARepairResult.error();
+            error.message("Communication with worker " + worker + " failed\n" + exceptionToString(e));
+            return error;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (worker != null)
+                worker.disconnect();
+            ARepairResult error = ARepairResult.error();
+            error.message("ARepair was cancelled" + (worker == null?" while waiting for a worker":" on worker " + worker));
+            return error;
+        } finally {
+            release(worker);
+        }
+    }
+
+    /**
+     * Runs BeAFix test generation, as configured by {@code beAFix}, on a worker. The generated tests are written to
+     * {@link BeAFix#outputDirectory()}.
+     */
+    public BeAFixResult runTestGeneration(BeAFix beAFix) {
+        BeAFixResult error = runBeAFix(beAFix, WorkerProtocol.BEAFIX_TESTS, beAFix.outputDirectory());
+        return error != null?error:beAFix.testGenerationResults();
+    }
+
+    /**
+     * Runs a BeAFix model check, as configured by {@code beAFix}, on a worker. The verification file is written to
+     * {@link BeAFix#verificationFile()}.
+     */
+    public BeAFixResult runModelCheck(BeAFix beAFix) {
+        BeAFixResult error = runBeAFix(beAFix, WorkerProtocol.BEAFIX_CHECK, beAFix.verificationFile().getParent());
+        return error != null?error:BeAFixResult.check(beAFix.verificationFile());
+    }
+
+    /**
+     * @return an error result, or {@code null} if the worker's files were written to {@code destination}.
+     */
+    private BeAFixResult runBeAFix(BeAFix beAFix, byte kind, Path destination) {
+        WorkerConnection worker = null;
+        try {
+            worker = acquire();
+            worker.connect();
+            WorkerProtocol.writeHeader(worker.out, kind);
+            WorkerProtocol.writeSettings(worker.out, beAFix.settings());
+            sendFile(worker.out, beAFix.pathToModel());
+            worker.out.flush();
+            if (worker.awaitResponse() != WorkerProtocol.OK)
+                return BeAFixResult.error("Worker " + worker + " failed\n" + WorkerProtocol.readString(worker.in));
+            Map<String, byte[]> files = WorkerProtocol.readFiles(worker.in);
+            //a result arriving after the request was cancelled is dropped, its files could overwrite a later request's
+            if (Thread.currentThread().isInterrupted())
+                return BeAFixResult.error("BeAFix was cancelled, its result from worker " + worker + " was dropped");
+            Files.createDirectories(destination);
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                Files.write(destination.resolve(file.getKey()), file.getValue());
+            }
+            return null;
+        } catch (IOException e) {
+            if (worker != null)
+                worker.disconnect();
+            return BeAFixResult.error("Communication with worker " + worker + " failed\n" + exceptionToString(e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (worker != null)
+                worker.disconnect();
+            return BeAFixResult.error("BeAFix was cancelled" + (worker == null?" while waiting for a worker":" on worker " + worker));
+        } finally {
+            release(worker);
+        }
+    }
+
+    private static void sendFile(DataOutputStream out, Path file) throws IOException {
+        if (file == null)
+            throw new IOException("Missing file to send to worker");
+        WorkerProtocol.writeString(out, file.getFileName().toString());
+        WorkerProtocol.writeBytes(out, Files.readAllBytes(file));
+    }
+
+    private WorkerConnection acquire() throws InterruptedException {
+        return idleWorkers.take();
+    }
+
+    private void release(WorkerConnection worker) {
+        if (worker != null)
+            idleWorkers.offer(worker);
+    }
+
+    @Override
+    public void close() {
+        for (WorkerConnection worker : workers) {
+            worker.disconnect();
+        }
+    }
+
+}
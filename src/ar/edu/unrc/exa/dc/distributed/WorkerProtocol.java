@@ -0,0 +1,157 @@
+package ar.edu.unrc.exa.dc.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wire format shared by {@link ICEBARWorker} and {@link WorkerPool}.
+ * <p>
+ * A connection starts with a handshake: {@link WorkerProtocol#MAGIC}, {@link WorkerProtocol#VERSION}, and the shared
+ * token, answered with a status, a worker closes the connection after answering {@link WorkerProtocol#ERROR}.
+ * Every request starts with {@link WorkerProtocol#MAGIC}, {@link WorkerProtocol#VERSION}, and a request kind, followed
+ * by the tool settings and the model (file name and bytes), ARepair requests also carry the tests file. Every response
+ * starts with a status, on {@link WorkerProtocol#ERROR} only a message follows, on {@link WorkerProtocol#OK} the
+ * request kind's payload follows: the ARepair status, message, failure output, NPE flag and fix, or the files written
+ * by BeAFix. The coordinator sends nothing while waiting for a response, and cancels a request by closing the
+ * connection, the worker then kills the tool's process and sends no response.
+ * Strings and files are sent as a length followed by bytes, so neither has a size limit other than
+ * {@link WorkerProtocol#MAX_BLOB_SIZE}.
+ */
+final class WorkerProtocol {
+
+    static final int MAGIC = 0x1CEBA2;
+    static final int VERSION = 3;
+
+    static final byte AREPAIR = 1;
+    static final byte BEAFIX_CHECK = 2;
+    static final byte BEAFIX_TESTS = 3;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    static final int MAX_BLOB_SIZE = 1 << 30;
+
+    /**
+     * How often (in milliseconds) a coordinator waiting for a response checks if the request was cancelled, and a
+     * worker running a tool checks if the coordinator closed the connection.
+     */
+    static final int POLL_INTERVAL_MS = 200;
+
+    private WorkerProtocol() {}
+
+    static void writeHandshake(DataOutputStream out, String token) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, token);
+        out.flush();
+    }
+
+    /**
+     * @return {@code true} if the handshake's token is {@code token}
+     */
+    static boolean readHandshake(DataInputStream in, String token) throws IOException {
+        readMagicAndVersion(in);
+        byte[] received = readBytes(in);
+        //constant time comparison, so the token can't be guessed from response times
+        return MessageDigest.isEqual(received, (token == null?"":token).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void writeHeader(DataOutputStream out, byte kind) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(kind);
+    }
+
+    /**
+     * @return the request kind
+     */
+    static byte readHeader(DataInputStream in) throws IOException {
+        readMagicAndVersion(in);
+        return in.readByte();
+    }
+
+    private static void readMagicAndVersion(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC)
+            throw new IOException("Not an ICEBAR worker request (magic " + Integer.toHexString(magic) + ")");
+        int version = in.readInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported ICEBAR worker protocol version (" + version + ", expecting " + VERSION + ")");
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_BLOB_SIZE)
+            throw new IOException("Invalid blob size (" + length + ")");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static void writeString(DataOutputStream out, String string) throws IOException {
+        writeBytes(out, (string == null?"":string).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    static void writeSettings(DataOutputStream out, Map<String, String> settings) throws IOException {
+        out.writeInt(settings.size());
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            writeString(out, setting.getKey());
+            writeString(out, setting.getValue());
+        }
+    }
+
+    static Map<String, String> readSettings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0)
+            throw new IOException("Invalid settings count (" + count + ")");
+        Map<String, String> settings = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            settings.put(readString(in), readString(in));
+        }
+        return settings;
+    }
+
+    static void writeFiles(DataOutputStream out, Map<String, byte[]> files) throws IOException {
+        out.writeInt(files.size());
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            writeString(out, file.getKey());
+            writeBytes(out, file.getValue());
+        }
+    }
+
+    static Map<String, byte[]> readFiles(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0)
+            throw new IOException("Invalid files count (" + count + ")");
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = readString(in);
+            if (name.isEmpty() || name.contains("/") || name.contains("\\") || name.equals("..") || name.equals("."))
+                throw new IOException("Invalid file name (" + name + ")");
+            files.put(name, readBytes(in));
+        }
+        return files;
+    }
+
+    static void writeError(DataOutputStream out, String message) throws IOException {
+        out.writeByte(ERROR);
+        writeString(out, message);
+        out.flush();
+    }
+
+}
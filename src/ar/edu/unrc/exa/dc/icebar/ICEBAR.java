@@ -1,34 +1,22 @@
 package ar.edu.unrc.exa.dc.icebar;
 
+import ar.edu.unrc.exa.dc.distributed.ICEBARWorker;
+import ar.edu.unrc.exa.dc.distributed.WorkerPool;
 import ar.edu.unrc.exa.dc.search.FixCandidate;
-import ar.edu.unrc.exa.dc.search.IterativeCEBasedAlloyRepair;
-import ar.edu.unrc.exa.dc.tools.ARepair;
-import ar.edu.unrc.exa.dc.tools.BeAFix;
+import ar.edu.unrc.exa.dc.search.SessionContext;
 import ar.edu.unrc.exa.dc.tools.BeAFixResult;
-import ar.edu.unrc.exa.dc.tools.InitialTests;
-import ar.edu.unrc.exa.dc.util.RepairGraph;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Optional;
 
-import static ar.edu.unrc.exa.dc.util.Utils.getMaxScopeFromAlsFile;
-import static ar.edu.unrc.exa.dc.util.Utils.startCandidateInfoFile;
-
 public class ICEBAR {
 
     private static final String VERSION = "2.9.0rc";
 
-    private static final String AREPAIR_SAT_SOLVERS = "sat-solvers";
-    private static final String AREPAIR_LIBS_ROOT = "libs";
-    private static final String AREPAIR_TARGET_ROOT = "target";
-    private static final String ALLOY_JAR = "alloy.jar";
-    private static final String APARSER_JAR = "aparser-1.0.jar";
-    private static final String AREPAIR_JAR = "arepair-1.0-jar-with-dependencies.jar";
-
     private static final String HELP_FLAG = "--help";
     private static final String VERSION_FLAG = "--version";
 
@@ -51,133 +39,74 @@ public class ICEBAR {
                         ICEBARExperiment.getInstance().propertiesPath().toString():
                         ICEBARProperties.DEFAULT_PROPERTIES
         );
-        BeAFix beafix = beafix();
-        ARepair arepair = arepair();
-        int laps = IterativeCEBasedAlloyRepair.LAPS_DEFAULT;
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_LAPS))
-            laps = ICEBARProperties.getInstance().getIntArgument(ICEBARProperties.ConfigKey.ICEBAR_LAPS);
-        IterativeCEBasedAlloyRepair iterativeCEBasedAlloyRepair = new IterativeCEBasedAlloyRepair(
-                ICEBARExperiment.getInstance().modelPath(),
-                ICEBARExperiment.getInstance().oraclePath(),
-                arepair,
-                beafix,
-                laps
-        );
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_UPDATE_AREPAIR_SCOPE_FROM_ORACLE)) {
-            boolean updateScopeFromOracle = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_UPDATE_AREPAIR_SCOPE_FROM_ORACLE);
-            if (updateScopeFromOracle)
-                arepair.setScope(Math.max(arepair.scope(), getMaxScopeFromAlsFile(ICEBARExperiment.getInstance().oraclePath())));
-        }
-        if (ICEBARExperiment.getInstance().hasInitialTests()) {
-            InitialTests initialTests = new InitialTests(ICEBARExperiment.getInstance().initialTestsPath());
-            iterativeCEBasedAlloyRepair.setInitialTests(initialTests);
-            beafix.testsStartingIndex(initialTests.getMaxIndex() + 1);
-            arepair.setScope(Math.max(arepair.scope(), initialTests.getMaxScope()));
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRIORIZATION)) {
-            iterativeCEBasedAlloyRepair.usePriorization(ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRIORIZATION));
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_SEARCH)) {
-            String search = ICEBARProperties.getInstance().getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_SEARCH);
-            if (search.trim().compareToIgnoreCase(IterativeCEBasedAlloyRepair.ICEBARSearch.DFS.toString()) == 0) {
-                iterativeCEBasedAlloyRepair.setSearch(IterativeCEBasedAlloyRepair.ICEBARSearch.DFS);
-            } else if (search.trim().compareToIgnoreCase(IterativeCEBasedAlloyRepair.ICEBARSearch.BFS.toString()) == 0) {
-                iterativeCEBasedAlloyRepair.setSearch(IterativeCEBasedAlloyRepair.ICEBARSearch.BFS);
-            } else {
-                throw new IllegalArgumentException("Invalid configuration value for " + ICEBARProperties.ConfigKey.ICEBAR_SEARCH.getKey() + " (" + search + ")");
-            }
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_INITIAL_TESTS_POSITION)) {
-            String initialTestsPosition = ICEBARProperties.getInstance().getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_INITIAL_TESTS_POSITION);
-            if (initialTestsPosition.trim().compareToIgnoreCase(IterativeCEBasedAlloyRepair.ICEBARInitialTestsLocation.APPEND.toString()) == 0) {
-                iterativeCEBasedAlloyRepair.setInitialTestsLocation(IterativeCEBasedAlloyRepair.ICEBARInitialTestsLocation.APPEND);
-            } else if (initialTestsPosition.trim().compareToIgnoreCase(IterativeCEBasedAlloyRepair.ICEBARInitialTestsLocation.PREPEND.toString()) == 0) {
-                iterativeCEBasedAlloyRepair.setInitialTestsLocation(IterativeCEBasedAlloyRepair.ICEBARInitialTestsLocation.PREPEND);
-            } else {
-                throw new IllegalArgumentException("Invalid configuration value for " + ICEBARProperties.ConfigKey.ICEBAR_INITIAL_TESTS_POSITION.getKey() + "(" + initialTestsPosition + ")");
-            }
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_ENABLE_RELAXEDFACTS_GENERATION)) {
-            boolean allowNoFacts = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_ENABLE_RELAXEDFACTS_GENERATION);
-            iterativeCEBasedAlloyRepair.allowFactsRelaxation(allowNoFacts);
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_GLOBAL_TRUSTED_TESTS)) {
-            boolean globalTrustedTests = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_GLOBAL_TRUSTED_TESTS);
-            iterativeCEBasedAlloyRepair.globalTrustedTests(globalTrustedTests);
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_ENABLE_FORCE_ASSERTION_TESTS)) {
-            boolean forceAssertionsTests = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_ENABLE_FORCE_ASSERTION_TESTS);
-            iterativeCEBasedAlloyRepair.forceAssertionGeneration(forceAssertionsTests);
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_TIMEOUT)) {
-            long timeout = ICEBARProperties.getInstance().getIntArgument(ICEBARProperties.ConfigKey.ICEBAR_TIMEOUT);
-            if (timeout < 0)
-                throw new IllegalArgumentException("invalid value for " + ICEBARProperties.ConfigKey.ICEBAR_TIMEOUT + " (" + timeout + ")");
-            iterativeCEBasedAlloyRepair.timeout(timeout);
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_KEEP_GOING_ON_AREPAIR_NPE)) {
-            boolean keepGoingAfterARepairNPE = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_KEEP_GOING_ON_AREPAIR_NPE);
-            iterativeCEBasedAlloyRepair.keepGoingAfterARepairNPE(keepGoingAfterARepairNPE);
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_NO_FIX_ONLY_TRUSTED_KEEP_GOING)) {
-            boolean keepGoingARepairNoFixAndOnlyTrustedTests = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_NO_FIX_ONLY_TRUSTED_KEEP_GOING);
-            iterativeCEBasedAlloyRepair.keepGoingARepairNoFixAndOnlyTrustedTests(keepGoingARepairNoFixAndOnlyTrustedTests);
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_EMPTY_SEARCH_SPACE_BUT_MAYBE_MORE_TESTS_RETRY)) {
-            boolean restartForMoreUnseenTests = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_EMPTY_SEARCH_SPACE_BUT_MAYBE_MORE_TESTS_RETRY);
-            iterativeCEBasedAlloyRepair.restartForMoreUnseenTests(restartForMoreUnseenTests);
-        }
-        boolean printProcessGraph = false;
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH)) {
-            printProcessGraph = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH);
-        }
-        iterativeCEBasedAlloyRepair.printProcessGraph(printProcessGraph);
-        if (printProcessGraph) {
-            boolean storeTestsForProcessGraph = false;
-            if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_STORE_TESTS)) {
-                storeTestsForProcessGraph = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_STORE_TESTS);
-            }
-            RepairGraph.storeTests(storeTestsForProcessGraph);
-            Path processGraphFolder = Paths.get("");
-            if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_FOLDER)) {
-                processGraphFolder = Paths.get(ICEBARProperties.getInstance().getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_FOLDER));
-            }
-            RepairGraph.graphsFolder(processGraphFolder);
-            boolean cleanProcessGraphFolder = false;
-            if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_FOLDER_CLEAN)) {
-                cleanProcessGraphFolder = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_FOLDER_CLEAN);
-            }
-            RepairGraph.cleanGraphsFolder(cleanProcessGraphFolder);
-        }
-        boolean checkRepeated = false;
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_CHECK_REPEATED_TESTS)) {
-            checkRepeated = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_CHECK_REPEATED_TESTS);
-        }
-        FixCandidate.checkRepeated(checkRepeated);
-        boolean treatARepairPartialFixesAsFixes = false;
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.AREPAIR_TREAT_PARTIAL_REPAIRS_AS_FIXES)) {
-            treatARepairPartialFixesAsFixes = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.AREPAIR_TREAT_PARTIAL_REPAIRS_AS_FIXES);
-        }
-        arepair.treatPartialRepairsAsFixes(treatARepairPartialFixesAsFixes);
-        boolean printUsedTests = false;
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRINT_ALL_USED_TESTS)) {
-            printUsedTests = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRINT_ALL_USED_TESTS);
+        if (ICEBARExperiment.getInstance().hasWorker()) {
+            worker();
+            return;
         }
-        iterativeCEBasedAlloyRepair.printAllUsedTests(printUsedTests);
-        boolean allowSecondarySearchSpace = false;
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.ICEBAR_SECONDARY_SEARCH_SPACE)) {
-            allowSecondarySearchSpace = ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_SECONDARY_SEARCH_SPACE);
+        if (ICEBARExperiment.getInstance().hasBatch()) {
+            batch();
+            return;
         }
-        iterativeCEBasedAlloyRepair.allowSecondarySearchSpace(allowSecondarySearchSpace);
-        startCandidateInfoFile();
-        Optional<FixCandidate> fix = iterativeCEBasedAlloyRepair.repair();
+        ICEBARSession session = new ICEBARSession(ICEBARExperiment.getInstance(), ICEBARProperties.getInstance());
+        Optional<FixCandidate> fix = session.run();
         if (fix.isPresent()) {
             System.out.println("Fix found\n" + fix.get() + "\n");
         } else {
             System.out.println("No Fix Found for model: " + ICEBARExperiment.getInstance().modelPath().toString() + "\n");
         }
-        if (printProcessGraph)
-            iterativeCEBasedAlloyRepair.printProcessGraph();
+    }
+
+    private static void batch() throws IOException {
+        ICEBARExperiment experiment = ICEBARExperiment.getInstance();
+        if (experiment.hasModel() || experiment.hasOracle() || experiment.hasInitialTests() || experiment.hasCheckpoint())
+            throw new IllegalArgumentException("--" + BATCH_KEY + " can only be used with --" + PROPERTIES_KEY + ", models, oracles, and initial tests must be defined in the batch manifest");
+        ICEBARProperties properties = ICEBARProperties.getInstance();
+        ICEBARBatch batch = ICEBARBatch.fromManifest(experiment.batchPath(), properties);
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_BATCH_SESSIONS))
+            batch.sessions(properties.getIntArgument(ICEBARProperties.ConfigKey.ICEBAR_BATCH_SESSIONS));
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_BATCH_RESULTS) && !properties.getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_BATCH_RESULTS).trim().isEmpty())
+            batch.results(Paths.get(properties.getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_BATCH_RESULTS).trim()));
+        WorkerPool workers = ICEBARSession.workerPool(properties);
+        try {
+            batch.workerPool(workers);
+            batch.run();
+        } finally {
+            if (workers != null)
+                workers.close();
+        }
+    }
+
+    private static void worker() throws IOException {
+        ICEBARExperiment experiment = ICEBARExperiment.getInstance();
+        if (experiment.hasModel() || experiment.hasOracle() || experiment.hasInitialTests() || experiment.hasCheckpoint() || experiment.hasBatch())
+            throw new IllegalArgumentException("--" + WORKER_KEY + " can only be used with --" + PROPERTIES_KEY);
+        ICEBARProperties properties = ICEBARProperties.getInstance();
+        InetAddress bindAddress = null;
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_DISTRIBUTED_BIND_ADDRESS)) {
+            String address = properties.getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_DISTRIBUTED_BIND_ADDRESS).trim();
+            if (!address.isEmpty()) {
+                try {
+                    bindAddress = InetAddress.getByName(address);
+                } catch (UnknownHostException e) {
+                    throw new IllegalArgumentException("Invalid worker bind address (" + address + ")");
+                }
+            }
+        }
+        SessionContext context = SessionContext.inWorkingDirectory(Paths.get(WORKER_FOLDER_PREFIX + experiment.workerPort()));
+        try {
+            ICEBARWorker worker = new ICEBARWorker(
+                    experiment.workerPort(),
+                    bindAddress,
+                    ICEBARSession.workerToken(properties),
+                    ICEBARSession.arepair(properties, context),
+                    ICEBARSession.beafix(properties, context),
+                    context.workingDirectory(),
+                    context.logger()
+            );
+            worker.serve();
+        } finally {
+            context.close();
+        }
     }
 
     private static void parseCommandLine(String[] args) {
@@ -206,6 +135,10 @@ public class ICEBAR {
     private static final String ORACLE_KEY = "oracle";
     private static final String PROPERTIES_KEY = "properties";
     private static final String INITIAL_TESTS_KEY = "initialtests";
+    private static final String RESUME_KEY = "resume";
+    private static final String BATCH_KEY = "batch";
+    private static final String WORKER_KEY = "worker";
+    private static final String WORKER_FOLDER_PREFIX = "icebar_worker_";
     private static void setConfig(String key, String value) {
         Path path = Paths.get(value);
         switch (key.toLowerCase()) {
@@ -237,6 +170,30 @@ public class ICEBAR {
                 ICEBARExperiment.getInstance().initialTestsPath(initialTestsPath);
                 break;
             }
+            case RESUME_KEY: {
+                if (ICEBARExperiment.getInstance().hasCheckpoint())
+                    throw new IllegalArgumentException("Already a checkpoint path has been defined (current: " + ICEBARExperiment.getInstance().checkpointPath().toString() + " | new: " + value + ")");
+                Path checkpointPath = path.toAbsolutePath();
+                ICEBARExperiment.getInstance().checkpointPath(checkpointPath);
+                break;
+            }
+            case BATCH_KEY: {
+                if (ICEBARExperiment.getInstance().hasBatch())
+                    throw new IllegalArgumentException("Already a batch manifest has been defined (current: " + ICEBARExperiment.getInstance().batchPath().toString() + " | new: " + value + ")");
+                Path batchPath = path.toAbsolutePath();
+                ICEBARExperiment.getInstance().batchPath(batchPath);
+                break;
+            }
+            case WORKER_KEY: {
+                if (ICEBARExperiment.getInstance().hasWorker())
+                    throw new IllegalArgumentException("Already a worker port has been defined (current: " + ICEBARExperiment.getInstance().workerPort() + " | new: " + value + ")");
+                try {
+                    ICEBARExperiment.getInstance().workerPort(Integer.parseInt(value));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid worker port (" + value + ")");
+                }
+                break;
+            }
             default : throw new IllegalArgumentException("Invalid configuration key (" + key + ")");
         }
     }
@@ -251,9 +208,15 @@ public class ICEBAR {
                 "\t--" + ORACLE_KEY + "<path to .als file>              :  The path to the oracle (containing predicates, assertions, and anything related to those which can't be modified to repair) (*).\n" +
                 "\t--" + PROPERTIES_KEY + "<path to .properties file>   :  ICEBAR properties, please look at 'icebar_stein.properties' as an example (**).\n" +
                 "\t--" + INITIAL_TESTS_KEY + "<path to .tests file>      :  Initial tests set which will be used in conjunction with counterexample based tests (***).\n" +
+                "\t--" + RESUME_KEY + "<path to checkpoint file>          :  Resumes a previous search from a checkpoint written by ICEBAR (see icebar.checkpoint.folder) (****).\n" +
+                "\t--" + BATCH_KEY + "<path to manifest file>             :  Runs every session described in the manifest, one <model>;<oracle>[;<properties>[;<initial tests>]] per line (*****).\n" +
+                "\t--" + WORKER_KEY + "<port>                             :  Runs ARepair and BeAFix for coordinators listing this host in icebar.distributed.workers (******).\n" +
                 "(*)   : This is a required argument.\n" +
                 "(**)  : Default properties will be used instead (from icebar.properties).\n" +
                 "(***) : Optional argument, default is no initial tests.\n" +
+                "(****): Optional argument, the same model, oracle, and properties used when the checkpoint was written must be used.\n" +
+                "(*****): Replaces --" + MODEL_KEY + ", --" + ORACLE_KEY + ", and --" + INITIAL_TESTS_KEY + ", results are written to icebar.batch.results (see also icebar.batch.sessions).\n" +
+                "(******): Only --" + PROPERTIES_KEY + " can be used with --" + WORKER_KEY + ", ARepair and BeAFix are configured from the worker's properties, their settings from the coordinator's. Workers only listen on loopback unless icebar.distributed.bindaddress and icebar.distributed.token are set.\n" +
                 "About initial tests:\n" +
                 "A test is defined as a predicate and a run <predicate's name> expect (0|1) command\n" +
                 "Each test must be separated by a line containing " + BeAFixResult.TEST_SEPARATOR + "\n" +
@@ -265,50 +228,4 @@ public class ICEBAR {
         System.out.println(VERSION);
     }
 
-    private static BeAFix beafix() {
-        BeAFix beAFix = new BeAFix();
-        beAFix.setBeAFixJar(Paths.get(ICEBARProperties.getInstance().getStringArgument(ICEBARProperties.ConfigKey.BEAFIX_JAR)));
-        beAFix.setOutputDir(Paths.get("BeAFixOutput").toAbsolutePath());
-        beAFix.createOutDirIfNonExistent(true);
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.BEAFIX_INSTANCE_TESTS))
-            beAFix.instanceTests(ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.BEAFIX_INSTANCE_TESTS));
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.BEAFIX_TESTS))
-            beAFix.testsToGenerate(ICEBARProperties.getInstance().getIntArgument(ICEBARProperties.ConfigKey.BEAFIX_TESTS));
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.BEAFIX_MODEL_OVERRIDES_FOLDER)) {
-            String modelOverridesFolderValue = ICEBARProperties.getInstance().getStringArgument(ICEBARProperties.ConfigKey.BEAFIX_MODEL_OVERRIDES_FOLDER);
-            Path modelOverridesFolder = modelOverridesFolderValue.trim().isEmpty()?null:Paths.get(modelOverridesFolderValue);
-            beAFix.modelOverridesFolder(modelOverridesFolder);
-            beAFix.modelOverrides(modelOverridesFolder != null);
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.BEAFIX_BUGGY_FUNCS_FILE)) {
-            String buggyFuncsFileValue = ICEBARProperties.getInstance().getStringArgument(ICEBARProperties.ConfigKey.BEAFIX_BUGGY_FUNCS_FILE);
-            Path buggyFuncsFile = buggyFuncsFileValue.trim().isEmpty()?null:Paths.get(buggyFuncsFileValue);
-            beAFix.buggyFunctions(buggyFuncsFile);
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.BEAFIX_AREPAIR_COMPAT_RELAXED_MODE)) {
-            beAFix.aRepairCompatibilityRelaxedMode(ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.BEAFIX_AREPAIR_COMPAT_RELAXED_MODE));
-        }
-        if (ICEBARProperties.getInstance().argumentExist(ICEBARProperties.ConfigKey.BEAFIX_NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS)) {
-            beAFix.noInstanceTestForNegativeTestWhenNoFacts(ICEBARProperties.getInstance().getBooleanArgument(ICEBARProperties.ConfigKey.BEAFIX_NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS));
-        }
-        return beAFix;
-    }
-
-    private static ARepair arepair() {
-        List<Path> classpath = new LinkedList<>();
-        Path aRepairRoot = Paths.get(ICEBARProperties.getInstance().getStringArgument(ICEBARProperties.ConfigKey.AREPAIR_ROOT));
-        Path aRepairSatSolvers = Paths.get(AREPAIR_SAT_SOLVERS);
-        Path aRepairAlloyJar = Paths.get(aRepairRoot.toString(), AREPAIR_LIBS_ROOT, ALLOY_JAR);
-        Path aRepairAParserJar = Paths.get(aRepairRoot.toString(), AREPAIR_LIBS_ROOT, APARSER_JAR);
-        Path aRepairJar = Paths.get(aRepairRoot.toString(), AREPAIR_TARGET_ROOT, AREPAIR_JAR);
-        classpath.add(aRepairJar);
-        classpath.add(aRepairAParserJar);
-        classpath.add(aRepairAlloyJar);
-        ARepair aRepair = new ARepair();
-        aRepair.setWorkingDirectory(aRepairRoot);
-        aRepair.setClasspath(classpath);
-        aRepair.setSatSolversPath(aRepairSatSolvers);
-        return aRepair;
-    }
-
 }
@@ -0,0 +1,210 @@
+package ar.edu.unrc.exa.dc.icebar;
+
+import ar.edu.unrc.exa.dc.distributed.WorkerPool;
+import ar.edu.unrc.exa.dc.search.FixCandidate;
+import ar.edu.unrc.exa.dc.tools.InitialTests;
+import ar.edu.unrc.exa.dc.util.Utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs several ICEBAR sessions, described by a manifest file, inside the same JVM and writes a single results file.
+ * <p>
+ * Each non empty line of the manifest that does not start with {@code #} describes one session:
+ * {@code <model>;<oracle>[;<properties>[;<initial tests>]]}, relative paths are resolved against the manifest's folder.
+ * Sessions without a properties file use the batch's properties. Each session writes its logs, reports, and
+ * intermediate files to its own working directory inside the sessions folder.
+ */
+public final class ICEBARBatch {
+
+    public static final String RESULTS_FILE_DEFAULT = "icebar_batch.info";
+    public static final int SESSIONS_DEFAULT = 1;
+    public static final String SESSIONS_FOLDER_DEFAULT = "icebar_batch_sessions";
+    private static final String COMMENT = "#";
+    private static final String ERROR = "ERROR";
+    private static final String RESULTS_HEADER = "MODEL" + Report.SEPARATOR + "ORACLE" + Report.SEPARATOR + "REPORT" + "\n";
+
+    public static final class Entry {
+        private final Path model;
+        private final Path oracle;
+        private final Path properties;
+        private final Path initialTests;
+
+        private Entry(Path model, Path oracle, Path properties, Path initialTests) {
+            this.model = model;
+            this.oracle = oracle;
+            this.properties = properties;
+            this.initialTests = initialTests;
+        }
+
+        public Path model() { return model; }
+
+        public Path oracle() { return oracle; }
+
+        public Path properties() { return properties; }
+
+        public Path initialTests() { return initialTests; }
+
+        @Override
+        public String toString() {
+            return model + Report.SEPARATOR + oracle;
+        }
+
+    }
+
+    private final List<Entry> entries;
+    private final ICEBARProperties batchProperties;
+    private final Map<Path, InitialTests> initialTestsCache = new ConcurrentHashMap<>();
+    private int sessions = SESSIONS_DEFAULT;
+    private Path results = Paths.get(RESULTS_FILE_DEFAULT);
+    private Path sessionsFolder = Paths.get(SESSIONS_FOLDER_DEFAULT);
+    private WorkerPool workerPool = null;
+
+    public static ICEBARBatch fromManifest(Path manifest, ICEBARProperties batchProperties) throws IOException {
+        if (!Utils.isValidPath(manifest, Utils.PathCheck.FILE))
+            throw new IllegalArgumentException("Invalid batch manifest (" + (manifest==null?"NULL":manifest.toString()) + ")");
+        if (batchProperties == null)
+            throw new IllegalArgumentException("null batch properties");
+        Path manifestFolder = manifest.toAbsolutePath().getParent();
+        List<Entry> entries = new LinkedList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(manifest)) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.trim().startsWith(COMMENT))
+                continue;
+            String[] values = line.split(Report.SEPARATOR);
+            if (values.length < 2 || values.length > 4)
+                throw new IllegalArgumentException("Invalid manifest line " + lineNumber + ", expecting <model>;<oracle>[;<properties>[;<initial tests>]] but got (" + line + ")");
+            Path model = resolve(manifestFolder, values[0]);
+            Path oracle = resolve(manifestFolder, values[1]);
+            Path properties = values.length > 2 ? resolve(manifestFolder, values[2]) : null;
+            Path initialTests = values.length > 3 ? resolve(manifestFolder, values[3]) : null;
+            if (!Utils.isValidPath(model, Utils.PathCheck.ALS))
+                throw new IllegalArgumentException("Invalid model in manifest line " + lineNumber + " (" + model + ")");
+            if (!Utils.isValidPath(oracle, Utils.PathCheck.ALS))
+                throw new IllegalArgumentException("Invalid oracle in manifest line " + lineNumber + " (" + oracle + ")");
+            if (properties != null && !Utils.isValidPath(properties, Utils.PathCheck.PROPERTIES))
+                throw new IllegalArgumentException("Invalid properties in manifest line " + lineNumber + " (" + properties + ")");
+            if (initialTests != null && !Utils.isValidPath(initialTests, Utils.PathCheck.TESTS))
+                throw new IllegalArgumentException("Invalid initial tests in manifest line " + lineNumber + " (" + initialTests + ")");
+            entries.add(new Entry(model, oracle, properties, initialTests));
+        }
+        return new ICEBARBatch(entries, batchProperties);
+    }
+
+    private static Path resolve(Path folder, String value) {
+        if (value.trim().isEmpty())
+            return null;
+        return folder.resolve(value.trim()).normalize();
+    }
+
+    private ICEBARBatch(List<Entry> entries, ICEBARProperties batchProperties) {
+        this.entries = entries;
+        this.batchProperties = batchProperties;
+    }
+
+    public List<Entry> entries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public void sessions(int sessions) {
+        if (sessions <= 0)
+            throw new IllegalArgumentException("non positive sessions (" + sessions + ")");
+        this.sessions = sessions;
+    }
+
+    public void results(Path results) {
+        if (results == null)
+            throw new IllegalArgumentException("null results path");
+        this.results = results;
+    }
+
+    /**
+     * @param sessionsFolder the folder containing the working directory of each session, named
+     *                       {@code <manifest entry>_<model name>}.
+     */
+    public void sessionsFolder(Path sessionsFolder) {
+        if (sessionsFolder == null)
+            throw new IllegalArgumentException("null sessions folder");
+        this.sessionsFolder = sessionsFolder;
+    }
+
+    /**
+     * @param workerPool workers shared by every session of the batch, or {@code null} to run ARepair and BeAFix
+     *                   locally (or on each session's own workers, see {@code icebar.distributed.workers}).
+     */
+    public void workerPool(WorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+
+    /**
+     * Runs every session of the manifest using at most {@code sessions} concurrent sessions, and writes one line per
+     * session (in manifest order) to the results file.
+     */
+    public void run() throws IOException {
+        int poolSize = Math.min(sessions, Math.max(1, entries.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        List<Future<String>> sessionResults = new LinkedList<>();
+        try {
+            int entryIndex = 0;
+            for (Entry entry : entries) {
+                Path workingDirectory = sessionsFolder.resolve(++entryIndex + "_" + entry.model().getFileName().toString().replace(".als", ""));
+                sessionResults.add(pool.submit(() -> runSession(entry, workingDirectory)));
+            }
+            StringBuilder resultsContent = new StringBuilder(RESULTS_HEADER);
+            Iterator<Entry> entriesIt = entries.iterator();
+            for (Future<String> sessionResult : sessionResults) {
+                Entry entry = entriesIt.next();
+                String result;
+                try {
+                    result = sessionResult.get();
+                } catch (ExecutionException e) {
+                    result = ERROR + " (" + firstLine(e.getCause()) + ")";
+                }
+                resultsContent.append(entry).append(Report.SEPARATOR).append(result).append("\n");
+            }
+            Files.write(results, resultsContent.toString().getBytes());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private String runSession(Entry entry, Path workingDirectory) throws IOException {
+        ICEBARExperiment experiment = ICEBARExperiment.newExperiment();
+        experiment.modelPath(entry.model());
+        experiment.oraclePath(entry.oracle());
+        if (entry.initialTests() != null)
+            experiment.initialTestsPath(entry.initialTests());
+        ICEBARProperties properties = batchProperties;
+        if (entry.properties() != null) {
+            experiment.propertiesPath(entry.properties());
+            properties = ICEBARProperties.fromFile(entry.properties().toString());
+        }
+        ICEBARSession session = new ICEBARSession(experiment, properties);
+        session.initialTestsCache(initialTestsCache);
+        session.workingDirectory(workingDirectory);
+        if (workerPool != null)
+            session.workerPool(workerPool);
+        System.out.println("Starting session for " + entry.model());
+        Optional<FixCandidate> fix = session.run();
+        System.out.println((fix.isPresent()?"Fix found":"No Fix Found") + " for model: " + entry.model());
+        return session.report().map(Report::toString).orElse(ERROR + " (no report)");
+    }
+
+    private static String firstLine(Throwable e) {
+        String message = e == null?null:e.toString();
+        if (message == null)
+            return "unknown";
+        int newLine = message.indexOf('\n');
+        return newLine < 0?message:message.substring(0, newLine);
+    }
+
+}
@@ -10,6 +10,9 @@ public final class ICEBARExperiment {
     private Path oraclePath;
     private Path propertiesPath;
     private Path initialTestsPath;
+    private Path checkpointPath;
+    private Path batchPath;
+    private int workerPort = 0;
 
     private static ICEBARExperiment instance;
 
@@ -19,6 +22,13 @@ public final class ICEBARExperiment {
         return instance;
     }
 
+    /**
+     * @return a new experiment, independent of the one returned by {@link ICEBARExperiment#getInstance()}.
+     */
+    public static ICEBARExperiment newExperiment() {
+        return new ICEBARExperiment();
+    }
+
     private ICEBARExperiment() {}
 
     public void modelPath(Path modelPath) {
@@ -45,6 +55,24 @@ public final class ICEBARExperiment {
         this.initialTestsPath = initialTestsPath;
     }
 
+    public void checkpointPath(Path checkpointPath) {
+        if (!Utils.isValidPath(checkpointPath, Utils.PathCheck.FILE))
+            throw new IllegalArgumentException("invalid checkpoint path (" + checkpointPath + ")");
+        this.checkpointPath = checkpointPath;
+    }
+
+    public void batchPath(Path batchPath) {
+        if (!Utils.isValidPath(batchPath, Utils.PathCheck.FILE))
+            throw new IllegalArgumentException("invalid batch manifest path (" + batchPath + ")");
+        this.batchPath = batchPath;
+    }
+
+    public void workerPort(int workerPort) {
+        if (workerPort <= 0 || workerPort > 65535)
+            throw new IllegalArgumentException("invalid worker port (" + workerPort + ")");
+        this.workerPort = workerPort;
+    }
+
     public Path modelPath() {
         return modelPath;
     }
@@ -61,6 +89,18 @@ public final class ICEBARExperiment {
         return initialTestsPath;
     }
 
+    public Path checkpointPath() {
+        return checkpointPath;
+    }
+
+    public Path batchPath() {
+        return batchPath;
+    }
+
+    public int workerPort() {
+        return workerPort;
+    }
+
     public boolean hasModel() {
         return modelPath != null;
     }
@@ -77,4 +117,16 @@ public final class ICEBARExperiment {
         return initialTestsPath != null;
     }
 
+    public boolean hasCheckpoint() {
+        return checkpointPath != null;
+    }
+
+    public boolean hasBatch() {
+        return batchPath != null;
+    }
+
+    public boolean hasWorker() {
+        return workerPort != 0;
+    }
+
 }
@@ -133,6 +133,86 @@ public class ICEBARProperties {
         ICEBAR_SECONDARY_SEARCH_SPACE {
             @Override
             public String getKey() { return "icebar.search.searchspace.secondary"; }
+        },
+        ICEBAR_TIERED_TEST_GENERATION {
+            @Override
+            public String getKey() { return "icebar.search.tieredtestgeneration"; }
+        },
+        ICEBAR_PRUNE_EQUIVALENT_CANDIDATES {
+            @Override
+            public String getKey() { return "icebar.search.prune.equivalent"; }
+        },
+        ICEBAR_PRUNE_SUBSUMED_CANDIDATES {
+            @Override
+            public String getKey() { return "icebar.search.prune.subsumed"; }
+        },
+        ICEBAR_REDUCE_TEST_SUITES {
+            @Override
+            public String getKey() { return "icebar.search.testreduction"; }
+        },
+        ICEBAR_PRESCREEN_FIXES {
+            @Override
+            public String getKey() { return "icebar.search.prescreen"; }
+        },
+        ICEBAR_FAILURE_FIRST_CHECK {
+            @Override
+            public String getKey() { return "icebar.search.check.failurefirst"; }
+        },
+        ICEBAR_CHECK_PARALLELISM {
+            @Override
+            public String getKey() { return "icebar.search.check.parallelism"; }
+        },
+        ICEBAR_GENERATION_PARALLELISM {
+            @Override
+            public String getKey() { return "icebar.search.testgeneration.parallelism"; }
+        },
+        ICEBAR_CONCURRENT_GENERATION_PASSES {
+            @Override
+            public String getKey() { return "icebar.search.testgeneration.concurrentpasses"; }
+        },
+        ICEBAR_TEST_ORDERING {
+            @Override
+            public String getKey() { return "icebar.search.testordering"; }
+        },
+        ICEBAR_CHECKPOINT_FOLDER {
+            @Override
+            public String getKey() { return "icebar.checkpoint.folder"; }
+        },
+        ICEBAR_CHECKPOINT_FREQUENCY {
+            @Override
+            public String getKey() { return "icebar.checkpoint.frequency"; }
+        },
+        ICEBAR_BATCH_SESSIONS {
+            @Override
+            public String getKey() { return "icebar.batch.sessions"; }
+        },
+        ICEBAR_BATCH_RESULTS {
+            @Override
+            public String getKey() { return "icebar.batch.results"; }
+        },
+        ICEBAR_DISTRIBUTED_WORKERS {
+            @Override
+            public String getKey() { return "icebar.distributed.workers"; }
+        },
+        ICEBAR_DISTRIBUTED_BIND_ADDRESS {
+            @Override
+            public String getKey() { return "icebar.distributed.bindaddress"; }
+        },
+        ICEBAR_DISTRIBUTED_TOKEN {
+            @Override
+            public String getKey() { return "icebar.distributed.token"; }
+        },
+        ICEBAR_EARLY_EXIT_GRACE {
+            @Override
+            public String getKey() { return "icebar.earlyexit.grace"; }
+        },
+        ICEBAR_SCRATCH {
+            @Override
+            public String getKey() { return "icebar.scratch"; }
+        },
+        ICEBAR_SCRATCH_FOLDER {
+            @Override
+            public String getKey() { return "icebar.scratch.folder"; }
         }
         ;
         public abstract String getKey();
@@ -162,9 +242,21 @@ public class ICEBARProperties {
         return instance;
     }
 
+    /**
+     * @param configFile the .properties file to load
+     * @return a new properties instance, independent of the one returned by {@link ICEBARProperties#getInstance()}.
+     */
+    public static ICEBARProperties fromFile(String configFile) throws IOException {
+        return new ICEBARProperties(configFile);
+    }
+
     private ICEBARProperties() throws IOException {
+        this(null);
+    }
+
+    private ICEBARProperties(String configFile) throws IOException {
         prop = new Properties();
-        loadPropertiesFromFile(null);
+        loadPropertiesFromFile(configFile);
     }
 
     private void loadPropertiesFromFile(String fromFile) throws IOException {
@@ -231,6 +323,7 @@ public class ICEBARProperties {
 
     private boolean isBooleanKey(ConfigKey key) {
         switch (key) {
+            case ICEBAR_SCRATCH:
             case ICEBAR_GLOBAL_TRUSTED_TESTS:
             case ICEBAR_ENABLE_RELAXEDFACTS_GENERATION:
             case ICEBAR_PRIORIZATION:
@@ -246,6 +339,13 @@ public class ICEBARProperties {
             case ICEBAR_CHECK_REPEATED_TESTS:
             case ICEBAR_PRINT_PROCESS_GRAPH_STORE_TESTS:
             case ICEBAR_SECONDARY_SEARCH_SPACE:
+            case ICEBAR_TIERED_TEST_GENERATION:
+            case ICEBAR_PRUNE_EQUIVALENT_CANDIDATES:
+            case ICEBAR_PRUNE_SUBSUMED_CANDIDATES:
+            case ICEBAR_REDUCE_TEST_SUITES:
+            case ICEBAR_PRESCREEN_FIXES:
+            case ICEBAR_FAILURE_FIRST_CHECK:
+            case ICEBAR_CONCURRENT_GENERATION_PASSES:
             case AREPAIR_TREAT_PARTIAL_REPAIRS_AS_FIXES:
             case BEAFIX_NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS:
             case BEAFIX_INSTANCE_TESTS: return true;
@@ -256,6 +356,11 @@ public class ICEBARProperties {
     private boolean isIntKey(ConfigKey key) {
         switch (key) {
             case BEAFIX_TESTS :
+            case ICEBAR_CHECKPOINT_FREQUENCY:
+            case ICEBAR_CHECK_PARALLELISM:
+            case ICEBAR_GENERATION_PARALLELISM:
+            case ICEBAR_BATCH_SESSIONS:
+            case ICEBAR_EARLY_EXIT_GRACE:
             case ICEBAR_TIMEOUT:
             case ICEBAR_LAPS: return true;
             default : return false;
@@ -270,6 +375,13 @@ public class ICEBARProperties {
             case BEAFIX_BUGGY_FUNCS_FILE :
             case ICEBAR_PRINT_PROCESS_GRAPH_FOLDER:
             case ICEBAR_INITIAL_TESTS_POSITION:
+            case ICEBAR_TEST_ORDERING:
+            case ICEBAR_CHECKPOINT_FOLDER:
+            case ICEBAR_BATCH_RESULTS:
+            case ICEBAR_DISTRIBUTED_WORKERS:
+            case ICEBAR_DISTRIBUTED_BIND_ADDRESS:
+            case ICEBAR_DISTRIBUTED_TOKEN:
+            case ICEBAR_SCRATCH_FOLDER:
             case AREPAIR_ROOT : return true;
             default : return false;
         }
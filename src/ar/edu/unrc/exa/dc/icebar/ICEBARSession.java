@@ -0,0 +1,427 @@
+package ar.edu.unrc.exa.dc.icebar;
+
+import ar.edu.unrc.exa.dc.distributed.WorkerPool;
+import ar.edu.unrc.exa.dc.search.FixCandidate;
+import ar.edu.unrc.exa.dc.search.IterativeCEBasedAlloyRepair;
+import ar.edu.unrc.exa.dc.search.SessionContext;
+import ar.edu.unrc.exa.dc.tools.ARepair;
+import ar.edu.unrc.exa.dc.tools.BeAFix;
+import ar.edu.unrc.exa.dc.tools.InitialTests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static ar.edu.unrc.exa.dc.util.Utils.continueCandidateInfoFile;
+import static ar.edu.unrc.exa.dc.util.Utils.getMaxScopeFromAlsFile;
+import static ar.edu.unrc.exa.dc.util.Utils.startCandidateInfoFile;
+
+/**
+ * A single ICEBAR run: one model and oracle, repaired with the configuration given by an {@code ICEBARProperties}
+ * instance.
+ */
+public final class ICEBARSession {
+
+    private static final String AREPAIR_SAT_SOLVERS = "sat-solvers";
+    private static final String AREPAIR_LIBS_ROOT = "libs";
+    private static final String AREPAIR_TARGET_ROOT = "target";
+    private static final String ALLOY_JAR = "alloy.jar";
+    private static final String APARSER_JAR = "aparser-1.0.jar";
+    private static final String AREPAIR_JAR = "arepair-1.0-jar-with-dependencies.jar";
+    private static final String AREPAIR_WORKING_DIRECTORY = "ARepair";
+    private static final String BEAFIX_OUTPUT = "BeAFixOutput";
+
+    private final ICEBARExperiment experiment;
+    private final ICEBARProperties properties;
+    private Map<Path, InitialTests> initialTestsCache = null;
+    private Path workingDirectory = null;
+    private WorkerPool workerPool = null;
+    private Report report = null;
+
+    public ICEBARSession(ICEBARExperiment experiment, ICEBARProperties properties) {
+        if (experiment == null)
+            throw new IllegalArgumentException("null experiment");
+        if (properties == null)
+            throw new IllegalArgumentException("null properties");
+        if (!experiment.hasModel())
+            throw new IllegalArgumentException("No model defined for experiment");
+        if (!experiment.hasOracle())
+            throw new IllegalArgumentException("No oracle defined for experiment");
+        this.experiment = experiment;
+        this.properties = properties;
+    }
+
+    /**
+     * Sets a cache of already parsed initial tests, shared by sessions using the same initial tests file.
+     * @param initialTestsCache a map from initial tests files to parsed initial tests, must be thread safe if shared
+     *                          by concurrent sessions.
+     */
+    public void initialTestsCache(Map<Path, InitialTests> initialTestsCache) {
+        this.initialTestsCache = initialTestsCache;
+    }
+
+    /**
+     * Sets the folder where this session writes its logs, reports, and intermediate files, by default the current
+     * directory is used. Sessions running in parallel must use different working directories.
+     */
+    public void workingDirectory(Path workingDirectory) {
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * Sets the workers used to run ARepair and BeAFix, shared with other sessions. When not set, the workers listed
+     * in {@code icebar.distributed.workers} are used, if any, and the tools are run locally otherwise.
+     */
+    public void workerPool(WorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+
+    public ICEBARExperiment experiment() {
+        return experiment;
+    }
+
+    /**
+     * @return the report of the last call to {@link ICEBARSession#run()}, if the search reached a final state.
+     */
+    public Optional<Report> report() {
+        return Optional.ofNullable(report);
+    }
+
+    public Optional<FixCandidate> run() throws IOException {
+        SessionContext context = workingDirectory == null?SessionContext.inCurrentDirectory():SessionContext.inWorkingDirectory(workingDirectory);
+        WorkerPool ownWorkerPool = null;
+        try {
+            scratch(context);
+            WorkerPool workers = workerPool;
+            if (workers == null) {
+                workers = ownWorkerPool = workerPool(properties);
+            }
+            return keepFix(context, run(context, workers));
+        } finally {
+            if (ownWorkerPool != null)
+                ownWorkerPool.close();
+            try {
+                //tools' logs only keep the tail of their output, they are worth keeping for diagnostics
+                context.keepFromScratch("*.log");
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * @return the workers listed in {@code icebar.distributed.workers}, or {@code null} if none.
+     */
+    static WorkerPool workerPool(ICEBARProperties properties) {
+        if (!properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_DISTRIBUTED_WORKERS))
+            return null;
+        String workers = properties.getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_DISTRIBUTED_WORKERS);
+        return workers.trim().isEmpty()?null:WorkerPool.fromAddresses(workers, workerToken(properties));
+    }
+
+    /**
+     * @return the token shared by coordinators and workers ({@code icebar.distributed.token}), empty if none.
+     */
+    static String workerToken(ICEBARProperties properties) {
+        if (!properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_DISTRIBUTED_TOKEN))
+            return "";
+        return properties.getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_DISTRIBUTED_TOKEN).trim();
+    }
+
+    private Optional<FixCandidate> run(SessionContext context, WorkerPool workers) throws IOException {
+        BeAFix beafix = beafix(properties, context);
+        ARepair arepair = arepair(properties, context);
+        int laps = IterativeCEBasedAlloyRepair.LAPS_DEFAULT;
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_LAPS))
+            laps = properties.getIntArgument(ICEBARProperties.ConfigKey.ICEBAR_LAPS);
+        IterativeCEBasedAlloyRepair iterativeCEBasedAlloyRepair = new IterativeCEBasedAlloyRepair(
+                context,
+                experiment.modelPath(),
+                experiment.oraclePath(),
+                arepair,
+                beafix,
+                laps
+        );
+        iterativeCEBasedAlloyRepair.workers(workers);
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_UPDATE_AREPAIR_SCOPE_FROM_ORACLE)) {
+            boolean updateScopeFromOracle = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_UPDATE_AREPAIR_SCOPE_FROM_ORACLE);
+            if (updateScopeFromOracle)
+                arepair.setScope(Math.max(arepair.scope(), getMaxScopeFromAlsFile(experiment.oraclePath())));
+        }
+        if (experiment.hasInitialTests()) {
+            InitialTests initialTests = initialTestsCache == null?
+                    new InitialTests(experiment.initialTestsPath()):
+                    initialTestsCache.computeIfAbsent(experiment.initialTestsPath(), InitialTests::new);
+            iterativeCEBasedAlloyRepair.setInitialTests(initialTests);
+            beafix.testsStartingIndex(initialTests.getMaxIndex() + 1);
+            arepair.setScope(Math.max(arepair.scope(), initialTests.getMaxScope()));
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRIORIZATION)) {
+            iterativeCEBasedAlloyRepair.usePriorization(properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRIORIZATION));
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_SEARCH)) {
+            String search = properties.getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_SEARCH);
+            if (search.trim().compareToIgnoreCase(IterativeCEBasedAlloyRepair.ICEBARSearch.DFS.toString()) == 0) {
+                iterativeCEBasedAlloyRepair.setSearch(IterativeCEBasedAlloyRepair.ICEBARSearch.DFS);
+            } else if (search.trim().compareToIgnoreCase(IterativeCEBasedAlloyRepair.ICEBARSearch.BFS.toString()) == 0) {
+                iterativeCEBasedAlloyRepair.setSearch(IterativeCEBasedAlloyRepair.ICEBARSearch.BFS);
+            } else {
+                throw new IllegalArgumentException("Invalid configuration value for " + ICEBARProperties.ConfigKey.ICEBAR_SEARCH.getKey() + " (" + search + ")");
+            }
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_INITIAL_TESTS_POSITION)) {
+            String initialTestsPosition = properties.getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_INITIAL_TESTS_POSITION);
+            if (initialTestsPosition.trim().compareToIgnoreCase(IterativeCEBasedAlloyRepair.ICEBARInitialTestsLocation.APPEND.toString()) == 0) {
+                iterativeCEBasedAlloyRepair.setInitialTestsLocation(IterativeCEBasedAlloyRepair.ICEBARInitialTestsLocation.APPEND);
+            } else if (initialTestsPosition.trim().compareToIgnoreCase(IterativeCEBasedAlloyRepair.ICEBARInitialTestsLocation.PREPEND.toString()) == 0) {
+                iterativeCEBasedAlloyRepair.setInitialTestsLocation(IterativeCEBasedAlloyRepair.ICEBARInitialTestsLocation.PREPEND);
+            } else {
+                throw new IllegalArgumentException("Invalid configuration value for " + ICEBARProperties.ConfigKey.ICEBAR_INITIAL_TESTS_POSITION.getKey() + "(" + initialTestsPosition + ")");
+            }
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_ENABLE_RELAXEDFACTS_GENERATION)) {
+            boolean allowNoFacts = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_ENABLE_RELAXEDFACTS_GENERATION);
+            iterativeCEBasedAlloyRepair.allowFactsRelaxation(allowNoFacts);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_GLOBAL_TRUSTED_TESTS)) {
+            boolean globalTrustedTests = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_GLOBAL_TRUSTED_TESTS);
+            iterativeCEBasedAlloyRepair.globalTrustedTests(globalTrustedTests);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_ENABLE_FORCE_ASSERTION_TESTS)) {
+            boolean forceAssertionsTests = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_ENABLE_FORCE_ASSERTION_TESTS);
+            iterativeCEBasedAlloyRepair.forceAssertionGeneration(forceAssertionsTests);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_TIMEOUT)) {
+            long timeout = properties.getIntArgument(ICEBARProperties.ConfigKey.ICEBAR_TIMEOUT);
+            if (timeout < 0)
+                throw new IllegalArgumentException("invalid value for " + ICEBARProperties.ConfigKey.ICEBAR_TIMEOUT + " (" + timeout + ")");
+            iterativeCEBasedAlloyRepair.timeout(timeout);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_KEEP_GOING_ON_AREPAIR_NPE)) {
+            boolean keepGoingAfterARepairNPE = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_KEEP_GOING_ON_AREPAIR_NPE);
+            iterativeCEBasedAlloyRepair.keepGoingAfterARepairNPE(keepGoingAfterARepairNPE);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_NO_FIX_ONLY_TRUSTED_KEEP_GOING)) {
+            boolean keepGoingARepairNoFixAndOnlyTrustedTests = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_NO_FIX_ONLY_TRUSTED_KEEP_GOING);
+            iterativeCEBasedAlloyRepair.keepGoingARepairNoFixAndOnlyTrustedTests(keepGoingARepairNoFixAndOnlyTrustedTests);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_EMPTY_SEARCH_SPACE_BUT_MAYBE_MORE_TESTS_RETRY)) {
+            boolean restartForMoreUnseenTests = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_EMPTY_SEARCH_SPACE_BUT_MAYBE_MORE_TESTS_RETRY);
+            iterativeCEBasedAlloyRepair.restartForMoreUnseenTests(restartForMoreUnseenTests);
+        }
+        boolean printProcessGraph = false;
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH)) {
+            printProcessGraph = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH);
+        }
+        iterativeCEBasedAlloyRepair.printProcessGraph(printProcessGraph);
+        if (printProcessGraph) {
+            boolean storeTestsForProcessGraph = false;
+            if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_STORE_TESTS)) {
+                storeTestsForProcessGraph = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_STORE_TESTS);
+            }
+            context.storeGraphTests(storeTestsForProcessGraph);
+            if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_FOLDER)) {
+                String processGraphFolder = properties.getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_FOLDER);
+                if (!processGraphFolder.trim().isEmpty())
+                    context.graphsFolder(context.resolve(Paths.get(processGraphFolder.trim())));
+            }
+            boolean cleanProcessGraphFolder = false;
+            if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_FOLDER_CLEAN)) {
+                cleanProcessGraphFolder = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRINT_PROCESS_GRAPH_FOLDER_CLEAN);
+            }
+            context.cleanGraphsFolder(cleanProcessGraphFolder);
+        }
+        boolean checkRepeated = false;
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_CHECK_REPEATED_TESTS)) {
+            checkRepeated = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_CHECK_REPEATED_TESTS);
+        }
+        context.checkRepeated(checkRepeated);
+        boolean treatARepairPartialFixesAsFixes = false;
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.AREPAIR_TREAT_PARTIAL_REPAIRS_AS_FIXES)) {
+            treatARepairPartialFixesAsFixes = properties.getBooleanArgument(ICEBARProperties.ConfigKey.AREPAIR_TREAT_PARTIAL_REPAIRS_AS_FIXES);
+        }
+        arepair.treatPartialRepairsAsFixes(treatARepairPartialFixesAsFixes);
+        boolean printUsedTests = false;
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRINT_ALL_USED_TESTS)) {
+            printUsedTests = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRINT_ALL_USED_TESTS);
+        }
+        iterativeCEBasedAlloyRepair.printAllUsedTests(printUsedTests);
+        boolean allowSecondarySearchSpace = false;
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_SECONDARY_SEARCH_SPACE)) {
+            allowSecondarySearchSpace = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_SECONDARY_SEARCH_SPACE);
+        }
+        iterativeCEBasedAlloyRepair.allowSecondarySearchSpace(allowSecondarySearchSpace);
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_TIERED_TEST_GENERATION)) {
+            boolean tieredTestGeneration = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_TIERED_TEST_GENERATION);
+            iterativeCEBasedAlloyRepair.tieredTestGeneration(tieredTestGeneration);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRUNE_EQUIVALENT_CANDIDATES)) {
+            boolean pruneEquivalentCandidates = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRUNE_EQUIVALENT_CANDIDATES);
+            iterativeCEBasedAlloyRepair.pruneEquivalentCandidates(pruneEquivalentCandidates);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRUNE_SUBSUMED_CANDIDATES)) {
+            boolean pruneSubsumedCandidates = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRUNE_SUBSUMED_CANDIDATES);
+            iterativeCEBasedAlloyRepair.pruneSubsumedCandidates(pruneSubsumedCandidates);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_REDUCE_TEST_SUITES)) {
+            boolean reduceTestSuites = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_REDUCE_TEST_SUITES);
+            iterativeCEBasedAlloyRepair.reduceTestSuites(reduceTestSuites);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_PRESCREEN_FIXES)) {
+            boolean preScreenFixes = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_PRESCREEN_FIXES);
+            iterativeCEBasedAlloyRepair.preScreenFixes(preScreenFixes);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_FAILURE_FIRST_CHECK)) {
+            boolean failureFirstCheck = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_FAILURE_FIRST_CHECK);
+            iterativeCEBasedAlloyRepair.failureFirstCheck(failureFirstCheck);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_CHECK_PARALLELISM)) {
+            int checkParallelism = properties.getIntArgument(ICEBARProperties.ConfigKey.ICEBAR_CHECK_PARALLELISM);
+            iterativeCEBasedAlloyRepair.checkParallelism(checkParallelism);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_GENERATION_PARALLELISM)) {
+            int generationParallelism = properties.getIntArgument(ICEBARProperties.ConfigKey.ICEBAR_GENERATION_PARALLELISM);
+            iterativeCEBasedAlloyRepair.generationParallelism(generationParallelism);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_CONCURRENT_GENERATION_PASSES)) {
+            boolean concurrentGenerationPasses = properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_CONCURRENT_GENERATION_PASSES);
+            iterativeCEBasedAlloyRepair.concurrentGenerationPasses(concurrentGenerationPasses);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_TEST_ORDERING)) {
+            String testOrdering = properties.getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_TEST_ORDERING);
+            IterativeCEBasedAlloyRepair.ICEBARTestOrdering ordering = null;
+            for (IterativeCEBasedAlloyRepair.ICEBARTestOrdering value : IterativeCEBasedAlloyRepair.ICEBARTestOrdering.values()) {
+                if (testOrdering.trim().compareToIgnoreCase(value.toString()) == 0)
+                    ordering = value;
+            }
+            if (ordering == null)
+                throw new IllegalArgumentException("Invalid configuration value for " + ICEBARProperties.ConfigKey.ICEBAR_TEST_ORDERING.getKey() + "(" + testOrdering + ")");
+            iterativeCEBasedAlloyRepair.setTestOrdering(ordering);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_CHECKPOINT_FOLDER)) {
+            String checkpointFolder = properties.getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_CHECKPOINT_FOLDER);
+            if (!checkpointFolder.trim().isEmpty())
+                iterativeCEBasedAlloyRepair.checkpointFolder(context.resolve(Paths.get(checkpointFolder.trim())).toAbsolutePath());
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_CHECKPOINT_FREQUENCY)) {
+            iterativeCEBasedAlloyRepair.checkpointFrequency(properties.getIntArgument(ICEBARProperties.ConfigKey.ICEBAR_CHECKPOINT_FREQUENCY));
+        }
+        if (experiment.hasCheckpoint()) {
+            iterativeCEBasedAlloyRepair.resumeFrom(experiment.checkpointPath());
+            continueCandidateInfoFile(context.workingDirectory());
+        } else {
+            startCandidateInfoFile(context.workingDirectory());
+        }
+        Optional<FixCandidate> fix = iterativeCEBasedAlloyRepair.repair();
+        report = iterativeCEBasedAlloyRepair.report().orElse(null);
+        if (printProcessGraph)
+            iterativeCEBasedAlloyRepair.printProcessGraph();
+        return fix;
+    }
+
+    static BeAFix beafix(ICEBARProperties properties, SessionContext context) {
+        BeAFix beAFix = new BeAFix();
+        beAFix.setBeAFixJar(Paths.get(properties.getStringArgument(ICEBARProperties.ConfigKey.BEAFIX_JAR)));
+        beAFix.setOutputDir(context.resolveScratch(BEAFIX_OUTPUT).toAbsolutePath());
+        beAFix.setLogsDirectory(context.scratchDirectory());
+        beAFix.createOutDirIfNonExistent(true);
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_EARLY_EXIT_GRACE))
+            beAFix.earlyExitGrace(properties.getIntArgument(ICEBARProperties.ConfigKey.ICEBAR_EARLY_EXIT_GRACE));
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.BEAFIX_INSTANCE_TESTS))
+            beAFix.instanceTests(properties.getBooleanArgument(ICEBARProperties.ConfigKey.BEAFIX_INSTANCE_TESTS));
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.BEAFIX_TESTS))
+            beAFix.testsToGenerate(properties.getIntArgument(ICEBARProperties.ConfigKey.BEAFIX_TESTS));
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.BEAFIX_MODEL_OVERRIDES_FOLDER)) {
+            String modelOverridesFolderValue = properties.getStringArgument(ICEBARProperties.ConfigKey.BEAFIX_MODEL_OVERRIDES_FOLDER);
+            Path modelOverridesFolder = modelOverridesFolderValue.trim().isEmpty()?null:Paths.get(modelOverridesFolderValue);
+            beAFix.modelOverridesFolder(modelOverridesFolder);
+            beAFix.modelOverrides(modelOverridesFolder != null);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.BEAFIX_BUGGY_FUNCS_FILE)) {
+            String buggyFuncsFileValue = properties.getStringArgument(ICEBARProperties.ConfigKey.BEAFIX_BUGGY_FUNCS_FILE);
+            Path buggyFuncsFile = buggyFuncsFileValue.trim().isEmpty()?null:Paths.get(buggyFuncsFileValue);
+            beAFix.buggyFunctions(buggyFuncsFile);
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.BEAFIX_AREPAIR_COMPAT_RELAXED_MODE)) {
+            beAFix.aRepairCompatibilityRelaxedMode(properties.getBooleanArgument(ICEBARProperties.ConfigKey.BEAFIX_AREPAIR_COMPAT_RELAXED_MODE));
+        }
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.BEAFIX_NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS)) {
+            beAFix.noInstanceTestForNegativeTestWhenNoFacts(properties.getBooleanArgument(ICEBARProperties.ConfigKey.BEAFIX_NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS));
+        }
+        return beAFix;
+    }
+
+    /**
+     * @return the folder where ARepair's fixes are kept once the session ends, the ARepair working directory used
+     * when the session has no scratch directory.
+     */
+    private static Path durableARepairWorkingDirectory(ICEBARProperties properties, SessionContext context) {
+        if (context.hasDedicatedWorkingDirectory())
+            return context.resolve(AREPAIR_WORKING_DIRECTORY);
+        return Paths.get(properties.getStringArgument(ICEBARProperties.ConfigKey.AREPAIR_ROOT));
+    }
+
+    private void scratch(SessionContext context) throws IOException {
+        boolean useScratch = !properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_SCRATCH) ||
+                properties.getBooleanArgument(ICEBARProperties.ConfigKey.ICEBAR_SCRATCH);
+        if (!useScratch)
+            return;
+        String scratchFolder = properties.getStringArgument(ICEBARProperties.ConfigKey.ICEBAR_SCRATCH_FOLDER).trim();
+        if (!scratchFolder.isEmpty()) {
+            context.scratchRoot(Paths.get(scratchFolder));
+        } else {
+            Optional<Path> scratchRoot = SessionContext.defaultScratchRoot();
+            if (scratchRoot.isPresent())
+                context.scratchRoot(scratchRoot.get());
+        }
+    }
+
+    /**
+     * Copies a fix written to the scratch directory to where ARepair would have written it without one.
+     */
+    private Optional<FixCandidate> keepFix(SessionContext context, Optional<FixCandidate> fix) throws IOException {
+        if (!fix.isPresent() || !context.hasScratchDirectory())
+            return fix;
+        Path fixModel = fix.get().modelToRepair().toAbsolutePath();
+        if (!fixModel.startsWith(context.scratchDirectory()))
+            return fix;
+        Path durableFix = ARepair.fixPathIn(durableARepairWorkingDirectory(properties, context));
+        Files.createDirectories(durableFix.getParent());
+        Files.copy(fixModel, durableFix, StandardCopyOption.REPLACE_EXISTING);
+        return Optional.of(FixCandidate.aRepairCheckCandidate(durableFix, fix.get().depth()));
+    }
+
+    static ARepair arepair(ICEBARProperties properties, SessionContext context) throws IOException {
+        List<Path> classpath = new LinkedList<>();
+        Path aRepairRoot = Paths.get(properties.getStringArgument(ICEBARProperties.ConfigKey.AREPAIR_ROOT));
+        Path aRepairSatSolvers = Paths.get(AREPAIR_SAT_SOLVERS);
+        Path aRepairWorkingDirectory = aRepairRoot;
+        if (context.hasScratchDirectory() || context.hasDedicatedWorkingDirectory()) {
+            //ARepair writes its fixes relative to its working directory, each session needs its own
+            aRepairRoot = aRepairRoot.toAbsolutePath();
+            aRepairSatSolvers = aRepairRoot.resolve(AREPAIR_SAT_SOLVERS);
+            aRepairWorkingDirectory = Files.createDirectories(context.scratchDirectory().resolve(AREPAIR_WORKING_DIRECTORY));
+        }
+        Path aRepairAlloyJar = Paths.get(aRepairRoot.toString(), AREPAIR_LIBS_ROOT, ALLOY_JAR);
+        Path aRepairAParserJar = Paths.get(aRepairRoot.toString(), AREPAIR_LIBS_ROOT, APARSER_JAR);
+        Path aRepairJar = Paths.get(aRepairRoot.toString(), AREPAIR_TARGET_ROOT, AREPAIR_JAR);
+        classpath.add(aRepairJar);
+        classpath.add(aRepairAParserJar);
+        classpath.add(aRepairAlloyJar);
+        ARepair aRepair = new ARepair();
+        aRepair.setWorkingDirectory(aRepairWorkingDirectory);
+        aRepair.setLogsDirectory(context.scratchDirectory());
+        aRepair.setClasspath(classpath);
+        aRepair.setSatSolversPath(aRepairSatSolvers);
+        if (properties.argumentExist(ICEBARProperties.ConfigKey.ICEBAR_EARLY_EXIT_GRACE))
+            aRepair.earlyExitGrace(properties.getIntArgument(ICEBARProperties.ConfigKey.ICEBAR_EARLY_EXIT_GRACE));
+        return aRepair;
+    }
+
+}
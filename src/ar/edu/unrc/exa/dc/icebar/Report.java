@@ -12,14 +12,18 @@ public class Report {
         private final int evaluatedCandidates;
         private final int evaluatedCandidatesLeadingToNoFix;
         private final int evaluatedCandidatesLeadingToSpuriousFix;
+        private final int prunedEquivalentCandidates;
+        private final int prunedSubsumedCandidates;
 
-        public TestsAndCandidatesCounters(int totalUsedTests, int totalUsedTrustedTests, int totalUsedUntrustedTests, int evaluatedCandidates, int evaluatedCandidatesLeadingToNoFix, int evaluatedCandidatesLeadingToSpuriousFix) {
+        public TestsAndCandidatesCounters(int totalUsedTests, int totalUsedTrustedTests, int totalUsedUntrustedTests, int evaluatedCandidates, int evaluatedCandidatesLeadingToNoFix, int evaluatedCandidatesLeadingToSpuriousFix, int prunedEquivalentCandidates, int prunedSubsumedCandidates) {
             this.totalUsedTests = totalUsedTests;
             this.totalUsedTrustedTests = totalUsedTrustedTests;
             this.totalUsedUntrustedTests = totalUsedUntrustedTests;
             this.evaluatedCandidates = evaluatedCandidates;
             this.evaluatedCandidatesLeadingToNoFix = evaluatedCandidatesLeadingToNoFix;
             this.evaluatedCandidatesLeadingToSpuriousFix = evaluatedCandidatesLeadingToSpuriousFix;
+            this.prunedEquivalentCandidates = prunedEquivalentCandidates;
+            this.prunedSubsumedCandidates = prunedSubsumedCandidates;
         }
 
         @Override
@@ -29,7 +33,9 @@ public class Report {
                     totalUsedUntrustedTests + SEPARATOR +
                     evaluatedCandidates + SEPARATOR +
                     evaluatedCandidatesLeadingToNoFix + SEPARATOR +
-                    evaluatedCandidatesLeadingToSpuriousFix;
+                    evaluatedCandidatesLeadingToSpuriousFix + SEPARATOR +
+                    prunedEquivalentCandidates + SEPARATOR +
+                    prunedSubsumedCandidates;
         }
 
     }
@@ -0,0 +1,164 @@
+package ar.edu.unrc.exa.dc.search;
+
+import ar.edu.unrc.exa.dc.util.TestSet;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps track of the test suites ARepair was already called with, so candidates that would call ARepair with one of
+ * them again can be dropped before being evaluated. Since global tests only grow, a candidate's suite is only known
+ * when it is evaluated, so this is checked then, and not when the candidate is added to the search space.
+ * <p>
+ * A test suite is identified by a fingerprint of the model being repaired and the ids of its tests (global and local),
+ * since test ids are kept in a bitset the fingerprint doesn't depend on the order in which the tests were added.
+ * <p>
+ * Optionally, the test suites for which ARepair couldn't find a fix are also kept, and candidates whose test suite
+ * includes one of them are dropped, assuming that ARepair won't find a fix after adding more tests to a suite it already
+ * failed with. Only minimal failing suites are kept, bucketed by size, so only suites not bigger than a candidate's
+ * suite are checked against it.
+ */
+final class CandidatePruning implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final class Fingerprint implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String model;
+        private final TestSet tests;
+        private final int hash;
+
+        Fingerprint(FixCandidate candidate, TestSet globalTests) {
+            this.model = candidate.modelToRepair().toAbsolutePath().toString();
+            this.tests = candidate.testSuite(globalTests);
+            this.hash = 31 * model.hashCode() + tests.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other)
+                return true;
+            if (!(other instanceof Fingerprint))
+                return false;
+            Fingerprint otherFingerprint = (Fingerprint) other;
+            return hash == otherFingerprint.hash && model.equals(otherFingerprint.model) && tests.equals(otherFingerprint.tests);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+    private final boolean pruneEquivalent;
+    private final boolean pruneSubsumed;
+    private final Set<Fingerprint> evaluatedSuites = new HashSet<>();
+    private final TreeMap<Integer, List<TestSet>> failedSuites = new TreeMap<>(); //minimal failing suites by size
+    private int prunedEquivalentCandidates = 0;
+    private int prunedSubsumedCandidates = 0;
+
+    CandidatePruning(boolean pruneEquivalent, boolean pruneSubsumed) {
+        this.pruneEquivalent = pruneEquivalent;
+        this.pruneSubsumed = pruneSubsumed;
+    }
+
+    /**
+     * @return a copy of this pruning which prunes equivalent and subsumed candidates as set by {@code pruneEquivalent}
+     * and {@code pruneSubsumed}, the evaluated and failed test suites are only kept for the enabled kinds of pruning.
+     */
+    CandidatePruning withFlags(boolean pruneEquivalent, boolean pruneSubsumed) {
+        CandidatePruning pruning = new CandidatePruning(pruneEquivalent, pruneSubsumed);
+        if (pruneEquivalent)
+            pruning.evaluatedSuites.addAll(evaluatedSuites);
+        if (pruneSubsumed)
+            failedSuites.forEach((size, suites) -> pruning.failedSuites.put(size, new LinkedList<>(suites)));
+        pruning.prunedEquivalentCandidates = prunedEquivalentCandidates;
+        pruning.prunedSubsumedCandidates = prunedSubsumedCandidates;
+        return pruning;
+    }
+
+    /**
+     * Records that ARepair was called on {@code candidate} with {@code globalTests} as global tests.
+     */
+    void evaluated(FixCandidate candidate, TestSet globalTests) {
+        if (pruneEquivalent)
+            evaluatedSuites.add(new Fingerprint(candidate, globalTests));
+    }
+
+    /**
+     * @return {@code true} if {@code candidate}, with {@code globalTests} as global tests, has the same test suite as
+     * an already evaluated candidate, and so should not be evaluated.
+     */
+    boolean prune(FixCandidate candidate, TestSet globalTests) {
+        if (pruneEquivalent && evaluatedSuites.contains(new Fingerprint(candidate, globalTests))) {
+            prunedEquivalentCandidates++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records that ARepair couldn't find a fix for {@code candidate} with {@code globalTests} as global tests.
+     */
+    void failed(FixCandidate candidate, TestSet globalTests) {
+        if (!pruneSubsumed)
+            return;
+        TestSet suite = candidate.testSuite(globalTests);
+        int size = suite.size();
+        if (hasFailedSubset(suite, size))
+            return;
+        for (Collection<TestSet> bucket : failedSuites.tailMap(size, false).values()) {
+            bucket.removeIf(suite::isSubsetOf);
+        }
+        failedSuites.values().removeIf(Collection::isEmpty);
+        failedSuites.computeIfAbsent(size, s -> new LinkedList<>()).add(suite);
+    }
+
+    /**
+     * @return {@code true} if the test suite of {@code candidate}, with {@code globalTests} as global tests, includes a
+     * suite for which ARepair couldn't find a fix, and so the candidate should not be evaluated.
+     */
+    boolean subsumed(FixCandidate candidate, TestSet globalTests) {
+        if (!pruneSubsumed || failedSuites.isEmpty())
+            return false;
+        TestSet suite = candidate.testSuite(globalTests);
+        if (hasFailedSubset(suite, suite.size())) {
+            prunedSubsumedCandidates++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean hasFailedSubset(TestSet suite, int size) {
+        for (List<TestSet> bucket : failedSuites.headMap(size, true).values()) {
+            for (TestSet failedSuite : bucket) {
+                if (failedSuite.isSubsetOf(suite))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    int prunedEquivalentCandidates() {
+        return prunedEquivalentCandidates;
+    }
+
+    int prunedSubsumedCandidates() {
+        return prunedSubsumedCandidates;
+    }
+
+    @Override
+    public String toString() {
+        return "Evaluated test suites: " + evaluatedSuites.size() + " | Pruned equivalent candidates: " + prunedEquivalentCandidates +
+                " | Failed test suites: " + failedSuites.values().stream().mapToInt(List::size).sum() + " | Pruned subsumed candidates: " + prunedSubsumedCandidates;
+    }
+
+}
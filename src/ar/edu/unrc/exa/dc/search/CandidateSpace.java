@@ -1,8 +1,11 @@
 package ar.edu.unrc.exa.dc.search;
 
+import java.io.Serializable;
 import java.util.*;
 
-public class CandidateSpace {
+public class CandidateSpace implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final boolean usePriority;
     private final boolean useQueue;
@@ -1,111 +1,113 @@
 package ar.edu.unrc.exa.dc.search;
 
 import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
-import ar.edu.unrc.exa.dc.util.TestHashes;
+import ar.edu.unrc.exa.dc.util.TestSet;
+import ar.edu.unrc.exa.dc.util.TestTable;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.logging.FileHandler;
-import java.util.logging.Logger;
-import java.util.logging.SimpleFormatter;
+import java.util.Collections;
 
 import static ar.edu.unrc.exa.dc.util.Utils.*;
 
-public final class FixCandidate {
+public final class FixCandidate implements Serializable {
 
-    private static final Logger logger = Logger.getLogger(IterativeCEBasedAlloyRepair.class.getName());
-    private static final Path logFile = Paths.get("Candidates.log");
+    private static final long serialVersionUID = 1L;
 
-    static {
-        try {
-            // This block configure the logger with handler and formatter
-            FileHandler fh = new FileHandler(logFile.toString());
-            logger.addHandler(fh);
-            SimpleFormatter formatter = new SimpleFormatter();
-            fh.setFormatter(formatter);
-        } catch (SecurityException | IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private static boolean checkRepeated = false;
-    public static void checkRepeated(boolean checkRepeated) { FixCandidate.checkRepeated = checkRepeated; }
-
-    private final Path modelToRepair;
+    private transient Path modelToRepair;
     private final int depth;
-    private final Collection<BeAFixTest> untrustedTests; //only untrusted tests
-    private final Collection<BeAFixTest> trustedTests; //only trusted tests
+    private final TestTable testTable; //null for candidates without a session
+    private final TestSet untrustedTests; //only untrusted tests, as ids in testTable
+    private final TestSet trustedTests; //only trusted tests, as ids in testTable
     private int repairedProperties = 0;
     private final String id;
-    private final TestHashes testHashes = new TestHashes();
+    private final TestSet seenTests; //local tests of this candidate and its ancestors, only kept when checking repeated tests
     private final FixCandidate from;
     private final boolean hasLocalTests;
 
     public static FixCandidate initialCandidate(Path modelToRepair) {
-        return new FixCandidate(modelToRepair, 0, null, null, null);
+        return new FixCandidate(null, modelToRepair, 0, new TestSet(), new TestSet(), null);
     }
 
     public static FixCandidate aRepairCheckCandidate(Path modelToRepair, int depth) {
-        return new FixCandidate(modelToRepair, depth, null, null, null);
+        return new FixCandidate(null, modelToRepair, depth, new TestSet(), new TestSet(), null);
+    }
+
+    public static FixCandidate descendant(SessionContext context, Path modelToRepair, Collection<BeAFixTest> untrustedTests, FixCandidate parent) {
+        return descendant(context, modelToRepair, untrustedTests, null, parent);
+    }
+
+    public static FixCandidate descendant(SessionContext context, Path modelToRepair, Collection<BeAFixTest> untrustedTests, Collection<BeAFixTest> trustedTests, FixCandidate parent) {
+        checkDescendant(context, parent);
+        return new FixCandidate(context, modelToRepair, parent.depth() + 1, intern(context, untrustedTests, true), intern(context, trustedTests, false), parent);
     }
 
-    public static FixCandidate descendant(Path modelToRepair, Collection<BeAFixTest> untrustedTests, FixCandidate parent) {
-        return descendant(modelToRepair, untrustedTests, null, parent);
+    /**
+     * Creates a descendant of {@code parent} with the parent's local tests plus {@code addedUntrustedTests} and
+     * {@code addedTrustedTests}.
+     */
+    public static FixCandidate descendantAdding(SessionContext context, Path modelToRepair, FixCandidate parent, Collection<BeAFixTest> addedUntrustedTests, Collection<BeAFixTest> addedTrustedTests) {
+        checkDescendant(context, parent);
+        TestSet untrustedTests = parent.untrustedTests.copy();
+        untrustedTests.addAll(intern(context, addedUntrustedTests, true));
+        TestSet trustedTests = parent.trustedTests.copy();
+        trustedTests.addAll(intern(context, addedTrustedTests, false));
+        return new FixCandidate(context, modelToRepair, parent.depth() + 1, untrustedTests, trustedTests, parent);
     }
 
-    public static FixCandidate descendant(Path modelToRepair, Collection<BeAFixTest> untrustedTests, Collection<BeAFixTest> trustedTests, FixCandidate parent) {
+    private static void checkDescendant(SessionContext context, FixCandidate parent) {
         if (parent == null)
             throw new IllegalArgumentException("Can't have a descendant with a null parent");
-        return new FixCandidate(modelToRepair, parent.depth() + 1, untrustedTests, trustedTests, parent);
+        if (context == null)
+            throw new IllegalArgumentException("Can't have a descendant with a null context");
     }
 
-    private FixCandidate(Path modelToRepair, int depth, Collection<BeAFixTest> untrustedTests, Collection<BeAFixTest> trustedTests, FixCandidate from) {
+    private static TestSet intern(SessionContext context, Collection<BeAFixTest> tests, boolean untrusted) {
+        TestSet testIds = new TestSet();
+        if (tests == null)
+            return testIds;
+        for (BeAFixTest test : tests) {
+            if (untrusted && test.testType().equals(BeAFixTest.TestType.TRUSTED))
+                throw new IllegalArgumentException("trusted or counterexample found in untrusted tests (" + test.testType() + ")");
+            testIds.add(context.testTable().intern(test));
+        }
+        return testIds;
+    }
+
+    private FixCandidate(SessionContext context, Path modelToRepair, int depth, TestSet untrustedTests, TestSet trustedTests, FixCandidate from) {
         id = generateRandomName();
         this.from = from;
         if (!isValidPath(modelToRepair, PathCheck.ALS))
             throw new IllegalArgumentException("Invalid model to repair (" + (modelToRepair==null?"NULL":modelToRepair.toString()) + ")");
         if (depth < 0)
             throw new IllegalArgumentException("negative depth (" + depth + ")");
-        if (untrustedTests != null) {
-            for (BeAFixTest uTest : untrustedTests) {
-                if (uTest.testType().equals(BeAFixTest.TestType.TRUSTED)) {
-                    throw new IllegalArgumentException("trusted or counterexample found in untrusted tests (" + uTest.testType() + ")");
-                }
-            }
-        }
         this.modelToRepair = modelToRepair;
         this.depth = depth;
-        this.untrustedTests = untrustedTests==null?new LinkedList<>():filterAlreadySeen(untrustedTests, from);
-        this.trustedTests = trustedTests==null?new LinkedList<>():filterAlreadySeen(trustedTests, from);
-        hasLocalTests = (!this.untrustedTests.isEmpty() || !this.trustedTests.isEmpty());
-    }
-
-    private Collection<BeAFixTest> filterAlreadySeen(Collection<BeAFixTest> tests, FixCandidate from) {
-        if (from == null)
-            return tests;
-        Collection<BeAFixTest> filtered = new LinkedList<>();
-        for (BeAFixTest test : tests) {
-            if (!checkRepeated || !alreadySeen(test, this)) {
-                filtered.add(test);
-                testHashes.add(test);
-            } else {
-                logger.warning("Filtered test [" + test.currentTestHashCode() + "]");
-            }
+        this.testTable = context == null?null:context.testTable();
+        boolean checkRepeated = context != null && context.checkRepeated();
+        if (checkRepeated && from != null && from.seenTests != null) {
+            int before = untrustedTests.size() + trustedTests.size();
+            untrustedTests.removeAll(from.seenTests);
+            trustedTests.removeAll(from.seenTests);
+            int filtered = before - untrustedTests.size() - trustedTests.size();
+            if (filtered > 0)
+                context.logger().warning("Filtered " + filtered + " already seen tests");
         }
-        return filtered;
-    }
-
-    private boolean alreadySeen(BeAFixTest test, FixCandidate from) {
-        if (from == null)
-            return false;
-        else if (from.testHashes.contains(test))
-            return true;
-        else if (from.from != null)
-            return alreadySeen(test, from.from);
-        return false;
+        this.untrustedTests = untrustedTests;
+        this.trustedTests = trustedTests;
+        if (checkRepeated) {
+            seenTests = from == null || from.seenTests == null?new TestSet():from.seenTests.copy();
+            seenTests.addAll(untrustedTests);
+            seenTests.addAll(trustedTests);
+        } else {
+            seenTests = null;
+        }
+        hasLocalTests = !untrustedTests.isEmpty() || !trustedTests.isEmpty();
     }
 
     public Path modelToRepair() {
@@ -117,11 +119,36 @@ public final class FixCandidate {
     }
 
     public Collection<BeAFixTest> untrustedTests() {
-        return this.untrustedTests;
+        return testTable == null?Collections.emptyList():testTable.tests(untrustedTests);
     }
 
     public Collection<BeAFixTest> trustedTests() {
-        return this.trustedTests;
+        return testTable == null?Collections.emptyList():testTable.tests(trustedTests);
+    }
+
+    public int localTestsCount() {
+        return untrustedTests.size() + trustedTests.size();
+    }
+
+    /**
+     * @return the ids of the local tests (trusted and untrusted) of this candidate together with {@code globalTests}.
+     */
+    public TestSet testSuite(TestSet globalTests) {
+        TestSet suite = globalTests == null?new TestSet():globalTests.copy();
+        suite.addAll(untrustedTests);
+        suite.addAll(trustedTests);
+        return suite;
+    }
+
+    public boolean sameLocalTests(FixCandidate other) {
+        return untrustedTests.equals(other.untrustedTests) && trustedTests.equals(other.trustedTests);
+    }
+
+    /**
+     * @return {@code true} if every local test of this candidate is also a local test of {@code other}.
+     */
+    public boolean localTestsSubsetOf(FixCandidate other) {
+        return untrustedTests.isSubsetOf(other.untrustedTests) && trustedTests.isSubsetOf(other.trustedTests);
     }
 
     public void repairedProperties(int repairedProperties) {
@@ -146,6 +173,16 @@ public final class FixCandidate {
 
     public FixCandidate parent() { return from; }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeUTF(modelToRepair.toAbsolutePath().toString());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        modelToRepair = Paths.get(in.readUTF());
+    }
+
     @Override
     public String toString() {
         return "Model: " + modelToRepair.toString() + "\n" + "Depth: " + depth + "\n" + "Repaired properties: " + repairedProperties;
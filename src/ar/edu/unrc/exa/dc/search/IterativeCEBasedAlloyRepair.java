@@ -1,5 +1,6 @@
 package ar.edu.unrc.exa.dc.search;
 
+import ar.edu.unrc.exa.dc.distributed.WorkerPool;
 import ar.edu.unrc.exa.dc.icebar.Report;
 import ar.edu.unrc.exa.dc.tools.ARepair;
 import ar.edu.unrc.exa.dc.tools.ARepair.ARepairResult;
@@ -11,40 +12,37 @@ import ar.edu.unrc.exa.dc.util.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.logging.FileHandler;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
-import java.util.logging.SimpleFormatter;
 
 import static ar.edu.unrc.exa.dc.util.Utils.*;
 
 public class IterativeCEBasedAlloyRepair {
 
-    private static final Logger logger = Logger.getLogger(IterativeCEBasedAlloyRepair.class.getName());
-    private static final Path logFile = Paths.get("Repair.log");
-
-    static {
-        try {
-            // This block configure the logger with handler and formatter
-            FileHandler fh = new FileHandler(logFile.toString());
-            logger.addHandler(fh);
-            SimpleFormatter formatter = new SimpleFormatter();
-            fh.setFormatter(formatter);
-        } catch (SecurityException | IOException e) {
-            e.printStackTrace();
-        }
-    }
-
     public static final int LAPS_DEFAULT = 4;
     public static final String REPAIR_PROCESS_FILENAME = "icebar_search_graph";
 
+    private final SessionContext context;
+    private final Logger logger;
     private final ARepair aRepair;
     private final BeAFix beAFix;
     private final Set<BeAFixTest> trustedCounterexampleTests;
+    private final TestSet trustedCounterexampleTestIds = new TestSet(); //same as trustedCounterexampleTests, as ids in the session's test table
+    private CandidatePruning pruning;
     private final Path modelToRepair;
     private final Path oracle;
+    private OracleMerger oracleMerger = null;
+    private TestSuiteMaterializer testSuite = null;
     private final int laps;
     private int totalTestsGenerated;
     private int arepairCalls;
@@ -82,6 +80,67 @@ public class IterativeCEBasedAlloyRepair {
     private boolean forceAssertionGeneration = false;
     public void forceAssertionGeneration(boolean forceAssertionGeneration) { this.forceAssertionGeneration = forceAssertionGeneration; }
 
+    private boolean tieredTestGeneration = false;
+    /**
+     * @param tieredTestGeneration when {@code true}, BeAFix is first run without instance tests, and only run again
+     *                             with them when no counterexample tests are generated.
+     */
+    public void tieredTestGeneration(boolean tieredTestGeneration) { this.tieredTestGeneration = tieredTestGeneration; }
+
+    private boolean pruneEquivalentCandidates = false;
+    /**
+     * @param pruneEquivalentCandidates when {@code true}, candidates that would call ARepair with the same tests as an
+     *                                  already evaluated candidate are not evaluated.
+     */
+    public void pruneEquivalentCandidates(boolean pruneEquivalentCandidates) { this.pruneEquivalentCandidates = pruneEquivalentCandidates; }
+
+    private boolean pruneSubsumedCandidates = false;
+    /**
+     * @param pruneSubsumedCandidates when {@code true}, candidates whose tests include all the tests of a candidate for
+     *                                which ARepair couldn't find a fix are not evaluated.
+     */
+    public void pruneSubsumedCandidates(boolean pruneSubsumedCandidates) { this.pruneSubsumedCandidates = pruneSubsumedCandidates; }
+
+    private boolean preScreenFixes = false;
+    private TestSet knownCounterexampleTestIds = null; //trusted counterexample tests found on any branch
+    private int preScreenedFixes = 0;
+    private int preScreenChecks = 0;
+    /**
+     * @param preScreenFixes when {@code true}, a fix found by ARepair is first checked against the trusted
+     *                       counterexample tests found on other branches, a fix failing any of them is spurious and the
+     *                       screened tests are used for its descendant, without checking it against the oracle.
+     */
+    public void preScreenFixes(boolean preScreenFixes) { this.preScreenFixes = preScreenFixes; }
+
+    public enum ICEBARTestOrdering {
+        NONE, FAIL_FAST, BENCHMARK
+    }
+
+    private ICEBARTestOrdering testOrdering = ICEBARTestOrdering.NONE;
+    private TestRanking testRanking = null;
+    private long unorderedARepairNanos = 0;
+    private long orderedARepairNanos = 0;
+    /**
+     * @param testOrdering how tests are ordered in the tests given to ARepair: as they were generated ({@code NONE}),
+     *                     by descending number of candidate fixes they made fail ({@code FAIL_FAST}), or running ARepair
+     *                     with both orders and comparing their times ({@code BENCHMARK}, using the reordered result, only
+     *                     the reordered run is counted in the report's ARepair calls and time). Reordering the global
+     *                     tests makes the tests file be written from scratch every time their order changes, instead of
+     *                     only appending new global tests (see {@link TestSuiteMaterializer}).
+     */
+    public void setTestOrdering(ICEBARTestOrdering testOrdering) {
+        if (testOrdering == null)
+            throw new IllegalArgumentException("null test ordering");
+        this.testOrdering = testOrdering;
+    }
+
+    private TestSuiteReducer testSuiteReducer = null;
+    /**
+     * @param reduceTestSuites when {@code true}, duplicated and subsumed tests are removed from the tests given to
+     *                         ARepair (fixes are still checked against the oracle).
+     */
+    public void reduceTestSuites(boolean reduceTestSuites) { this.testSuiteReducer = reduceTestSuites?new TestSuiteReducer():null; }
+
     private long timeout = 0;
     public void timeout(long timeout) { this.timeout = timeout; }
 
@@ -96,7 +155,29 @@ public class IterativeCEBasedAlloyRepair {
     private boolean searchRestarted = false;
     public void restartForMoreUnseenTests(boolean restartForMoreUnseenTests) {this.restartForMoreUnseenTests = restartForMoreUnseenTests;}
 
-    public IterativeCEBasedAlloyRepair(Path modelToRepair, Path oracle, ARepair aRepair, BeAFix beAFix, int laps) {
+    public static final int CHECKPOINT_FREQUENCY_DEFAULT = 1;
+    private Path checkpointFolder = null;
+    public void checkpointFolder(Path checkpointFolder) { this.checkpointFolder = checkpointFolder; }
+
+    private int checkpointFrequency = CHECKPOINT_FREQUENCY_DEFAULT;
+    public void checkpointFrequency(int checkpointFrequency) {
+        if (checkpointFrequency <= 0)
+            throw new IllegalArgumentException("non positive checkpoint frequency (" + checkpointFrequency + ")");
+        this.checkpointFrequency = checkpointFrequency;
+    }
+
+    private Path resumeFrom = null;
+    public void resumeFrom(Path checkpoint) { this.resumeFrom = checkpoint; }
+
+    private WorkerPool workers = null;
+    /**
+     * @param workers remote workers used to run ARepair and BeAFix, or {@code null} to run them locally.
+     */
+    public void workers(WorkerPool workers) { this.workers = workers; }
+
+    public IterativeCEBasedAlloyRepair(SessionContext context, Path modelToRepair, Path oracle, ARepair aRepair, BeAFix beAFix, int laps) {
+        if (context == null)
+            throw new IllegalArgumentException("null session context");
         if (!isValidPath(modelToRepair, Utils.PathCheck.ALS))
             throw new IllegalArgumentException("Invalid model to repair path (" + (modelToRepair==null?"NULL":modelToRepair.toString()) + ")");
         if (!isValidPath(oracle, Utils.PathCheck.ALS))
@@ -107,10 +188,12 @@ public class IterativeCEBasedAlloyRepair {
             throw new IllegalArgumentException("null BeAFix instance");
         if (laps < 0)
             throw new IllegalArgumentException("Negative value for laps");
+        this.context = context;
+        this.logger = context.logger();
         this.aRepair = aRepair;
         this.aRepair.modelToRepair(modelToRepair);
         this.beAFix = beAFix;
-        this.trustedCounterexampleTests = new HashSet<>();
+        this.trustedCounterexampleTests = new LinkedHashSet<>(); //kept in insertion order, so the tests file only grows at the end of the global tests
         this.modelToRepair = modelToRepair;
         this.oracle = oracle;
         this.laps = laps;
@@ -121,8 +204,8 @@ public class IterativeCEBasedAlloyRepair {
         this.evaluatedCandidatesLeadingToSpurious = 0;
     }
 
-    public IterativeCEBasedAlloyRepair(Path modelToRepair, Path oracle, ARepair aRepair, BeAFix beAFix) {
-        this(modelToRepair, oracle, aRepair, beAFix, LAPS_DEFAULT);
+    public IterativeCEBasedAlloyRepair(SessionContext context, Path modelToRepair, Path oracle, ARepair aRepair, BeAFix beAFix) {
+        this(context, modelToRepair, oracle, aRepair, beAFix, LAPS_DEFAULT);
     }
 
     private InitialTests initialTests;
@@ -133,6 +216,51 @@ public class IterativeCEBasedAlloyRepair {
         this.usePriorization = usePriorization;
     }
 
+    private boolean failureFirstCheck = false;
+    private LinkedList<String> propertiesCheckOrder = null; //most recently violated first
+    private List<String> violatedProperties = null; //violated by the last checked fix, null if unknown
+    /**
+     * @param failureFirstCheck when {@code true}, and priorization is disabled (so the number of passing properties
+     *                          is not needed), fixes are checked one oracle property at a time, most recently violated
+     *                          properties first, stopping at the first violated property.
+     */
+    public void failureFirstCheck(boolean failureFirstCheck) { this.failureFirstCheck = failureFirstCheck; }
+
+    private int checkParallelism = 1;
+    private ExecutorService checkExecutor = null;
+    /**
+     * @param checkParallelism when greater than 1, fixes are checked running one BeAFix check per oracle property,
+     *                         at most {@code checkParallelism} at the same time.
+     */
+    public void checkParallelism(int checkParallelism) {
+        if (checkParallelism < 1)
+            throw new IllegalArgumentException("check parallelism must be positive (" + checkParallelism + ")");
+        this.checkParallelism = checkParallelism;
+    }
+
+    private int generationParallelism = 1;
+    private ExecutorService generationExecutor = null;
+    /**
+     * @param generationParallelism when greater than 1, tests are generated running one BeAFix test generation per
+     *                              oracle property (per violated property when the properties violated by the fix are
+     *                              known), at most {@code generationParallelism} at the same time.
+     */
+    public void generationParallelism(int generationParallelism) {
+        if (generationParallelism < 1)
+            throw new IllegalArgumentException("test generation parallelism must be positive (" + generationParallelism + ")");
+        this.generationParallelism = generationParallelism;
+    }
+
+    private boolean concurrentGenerationPasses = false;
+    private ExecutorService generationPassesExecutor = null;
+    /**
+     * @param concurrentGenerationPasses when {@code true}, and relaxed facts test generation is enabled, the relaxed
+     *                                   facts and forced assertions test generation passes are started at the same
+     *                                   time as the normal pass, and their tests are only used if the normal pass has
+     *                                   no counterexamples (as when running them afterwards).
+     */
+    public void concurrentGenerationPasses(boolean concurrentGenerationPasses) { this.concurrentGenerationPasses = concurrentGenerationPasses; }
+
     private boolean printProcessGraph = false;
     public void printProcessGraph(boolean printProcessGraph) { this.printProcessGraph = printProcessGraph; }
 
@@ -149,19 +277,19 @@ public class IterativeCEBasedAlloyRepair {
             throw new IllegalStateException("Repair process was run with 'printProcessGraph' set to false");
         if (repairGraph == null)
             throw new IllegalStateException("repairGraph is null");
-        File dotFile = Paths.get(REPAIR_PROCESS_FILENAME + ".dot").toFile();
+        File dotFile = repairGraph.graphsFolder().resolve(REPAIR_PROCESS_FILENAME + ".dot").toFile();
         if (dotFile.exists() && !dotFile.delete()) {
             logger.severe("Couldn't delete " + dotFile);
             return;
         }
-        File svgFile = Paths.get(REPAIR_PROCESS_FILENAME + ".svg").toFile();
+        File svgFile = repairGraph.graphsFolder().resolve(REPAIR_PROCESS_FILENAME + ".svg").toFile();
         if (svgFile.exists() && !svgFile.delete()) {
             logger.severe("Couldn't delete " + svgFile);
             return;
         }
-        if (!repairGraph.generateDotFile(dotFile.toString()))
+        if (!repairGraph.generateDotFile(dotFile.getName()))
             logger.severe("Couldn't generate dot file");
-        if (!repairGraph.generateSVG(dotFile.toString()))
+        if (!repairGraph.generateSVG(dotFile.getName()))
             logger.severe("Couldn't generate svg file");
     }
     public Optional<FixCandidate> repair() throws IOException {
@@ -172,31 +300,90 @@ public class IterativeCEBasedAlloyRepair {
         //CEGAR process
         CandidateSpace searchSpace = null;
         CandidateSpace secondarySearchSpace = null;
-        switch (search) {
-            case DFS: {
-                searchSpace = usePriorization?CandidateSpace.priorityStack():CandidateSpace.normalStack();
-                if (allowSecondarySearchSpace)
-                    secondarySearchSpace = usePriorization?CandidateSpace.priorityStack():CandidateSpace.normalStack();
-                break;
+        FixCandidate originalCandidate;
+        int maxReachedLap = 0;
+        if (resumeFrom != null) {
+            SearchCheckpoint checkpoint = SearchCheckpoint.load(resumeFrom);
+            if (!checkpoint.belongsTo(modelToRepair, oracle))
+                throw new IllegalArgumentException("Checkpoint (" + resumeFrom + ") was taken for model " + checkpoint.modelToRepair() + " and oracle " + checkpoint.oracle());
+            String settingsDifferences = checkpoint.searchSettingsDifferences(searchSettings());
+            if (settingsDifferences == null)
+                logger.warning("Checkpoint (" + resumeFrom + ") has no record of its search settings, resuming with the current ones");
+            else if (!settingsDifferences.isEmpty())
+                throw new IllegalArgumentException("Checkpoint (" + resumeFrom + ") was taken with different search settings:" + settingsDifferences);
+            logger.info("Resuming search from checkpoint " + resumeFrom + "\n" + checkpoint);
+            if (checkpoint.testTable() == null)
+                throw new IllegalArgumentException("Checkpoint (" + resumeFrom + ") has no test table");
+            context.testTable(checkpoint.testTable());
+            searchSpace = checkpoint.searchSpace();
+            secondarySearchSpace = checkpoint.secondarySearchSpace();
+            if (allowSecondarySearchSpace && secondarySearchSpace == null)
+                throw new IllegalArgumentException("Secondary search space is enabled but the checkpoint (" + resumeFrom + ") was taken without it");
+            originalCandidate = checkpoint.originalCandidate();
+            maxReachedLap = checkpoint.maxReachedLap();
+            searchRestarted = checkpoint.searchRestarted();
+            addGlobalTrustedTests(checkpoint.trustedCounterexampleTests());
+            pruning = checkpoint.pruning() == null?new CandidatePruning(pruneEquivalentCandidates, pruneSubsumedCandidates):checkpoint.pruning().withFlags(pruneEquivalentCandidates, pruneSubsumedCandidates);
+            if (!testOrdering.equals(ICEBARTestOrdering.NONE))
+                testRanking = checkpoint.testRanking() == null?new TestRanking(context.testTable()):checkpoint.testRanking();
+            if (preScreenFixes)
+                knownCounterexampleTestIds = checkpoint.knownCounterexampleTests() == null?new TestSet():checkpoint.knownCounterexampleTests();
+            beAFix.testsStartingIndex(checkpoint.testsStartingIndex());
+            totalTestsGenerated = checkpoint.totalTestsGenerated();
+            arepairCalls = checkpoint.arepairCalls();
+            evaluatedCandidates = checkpoint.evaluatedCandidates();
+            evaluatedCandidatesLeadingToNoFix = checkpoint.evaluatedCandidatesLeadingToNoFix();
+            evaluatedCandidatesLeadingToSpurious = checkpoint.evaluatedCandidatesLeadingToSpurious();
+            arepairTimeCounter = checkpoint.arepairTimeCounter();
+            beafixTimeCounter = checkpoint.beafixTimeCounter();
+            totalTime = checkpoint.totalTime();
+            if (printProcessGraph) {
+                if (checkpoint.repairGraph() == null)
+                    throw new IllegalArgumentException("Process graph printing is enabled but the checkpoint (" + resumeFrom + ") was taken without it");
+                repairGraph = checkpoint.repairGraph();
             }
-            case BFS: {
-                searchSpace = usePriorization?CandidateSpace.priorityQueue():CandidateSpace.normalQueue();
-                if (allowSecondarySearchSpace)
-                    secondarySearchSpace = usePriorization?CandidateSpace.priorityQueue():CandidateSpace.normalQueue();
-                break;
+            if (printAllUsedTests) {
+                trustedTests = checkpoint.trustedTests() == null?new TestHashes(context.testTable()):checkpoint.trustedTests();
+                untrustedTests = checkpoint.untrustedTests() == null?new TestHashes(context.testTable()):checkpoint.untrustedTests();
+            }
+        } else {
+            switch (search) {
+                case DFS: {
+                    searchSpace = usePriorization ? CandidateSpace.priorityStack() : CandidateSpace.normalStack();
+                    if (allowSecondarySearchSpace)
+                        secondarySearchSpace = usePriorization ? CandidateSpace.priorityStack() : CandidateSpace.normalStack();
+                    break;
+                }
+                case BFS: {
+                    searchSpace = usePriorization ? CandidateSpace.priorityQueue() : CandidateSpace.normalQueue();
+                    if (allowSecondarySearchSpace)
+                        secondarySearchSpace = usePriorization ? CandidateSpace.priorityQueue() : CandidateSpace.normalQueue();
+                    break;
+                }
+            }
+            originalCandidate = FixCandidate.initialCandidate(modelToRepair);
+            searchSpace.push(originalCandidate);
+            pruning = new CandidatePruning(pruneEquivalentCandidates, pruneSubsumedCandidates);
+            if (!testOrdering.equals(ICEBARTestOrdering.NONE))
+                testRanking = new TestRanking(context.testTable());
+            if (preScreenFixes)
+                knownCounterexampleTestIds = new TestSet();
+            if (printProcessGraph)
+                repairGraph = RepairGraph.createNewGraph(context, originalCandidate);
+            if (printAllUsedTests) {
+                trustedTests = new TestHashes(context.testTable());
+                untrustedTests = new TestHashes(context.testTable());
             }
         }
-        FixCandidate originalCandidate = FixCandidate.initialCandidate(modelToRepair);
-        searchSpace.push(originalCandidate);
-        int maxReachedLap = 0;
-        if (printProcessGraph)
-            repairGraph = RepairGraph.createNewGraph(originalCandidate);
-        if (printAllUsedTests) {
-            trustedTests = new TestHashes();
-            untrustedTests = new TestHashes();
-        }
+        int lastCheckpoint = evaluatedCandidates;
         totalTime.clockStart();
         while (!searchSpace.isEmpty() || allowSecondarySearchSpace) {
+            if (checkpointFolder != null && evaluatedCandidates - lastCheckpoint >= checkpointFrequency) {
+                totalTime.clockEnd();
+                writeCheckpoint(searchSpace, secondarySearchSpace, originalCandidate, maxReachedLap, arepairTimeCounter, beafixTimeCounter, totalTime);
+                totalTime.clockStart();
+                lastCheckpoint = evaluatedCandidates;
+            }
             if (searchSpace.isEmpty() && allowSecondarySearchSpace) {
                 assert secondarySearchSpace != null;
                 if (!secondarySearchSpace.isEmpty()) {
@@ -206,52 +393,88 @@ public class IterativeCEBasedAlloyRepair {
                 else break;
             }
             FixCandidate current = searchSpace.pop();
+            //global tests, evaluated suites, and failing suites might have changed after current was added
+            if (current != originalCandidate && (pruneEquivalent(current) || pruneSubsumed(current)))
+                continue;
             evaluatedCandidates++;
             maxReachedLap = Math.max(maxReachedLap, current.depth());
             logger.info("Repairing current candidate\n" + current);
             arepairTimeCounter.clockStart();
-            ARepairResult aRepairResult = runARepairWithCurrentConfig(current);
+            ARepairResult aRepairResult = runARepairWithCurrentConfig(current, arepairTimeCounter);
             arepairTimeCounter.clockEnd();
-            writeCandidateInfo(current, trustedCounterexampleTests, aRepairResult);
+            writeCandidateInfo(context.workingDirectory(), current, trustedCounterexampleTests, aRepairResult);
             if (printProcessGraph) {
                 repairGraph.addARepairCall(current, this.trustedCounterexampleTests);
             }
             logger.info("ARepair finished\n" + aRepairResult.toString());
-            if (aRepairResult.equals(ARepairResult.ERROR)) {
+            if (aRepairResult.is(ARepairResult.Status.ERROR)) {
                 logger.severe("ARepair call ended in error:\n" + aRepairResult.message());
                 if (aRepairResult.nullPointerExceptionFound() && keepGoingAfterARepairNPE) {
                     logger.warning("ARepair ended with a NullPointerException but we are going to ignore that and hope for the best");
                     continue;
                 }
-                Report report = Report.arepairFailed(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTests.size(), arepairTimeCounter, beafixTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-                writeReport(report);
+                Report report = Report.arepairFailed(current, current.localTestsCount() + trustedCounterexampleTests.size(), arepairTimeCounter, beafixTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
+                finish(report);
                 return Optional.empty();
             }
+            pruning.evaluated(current, trustedCounterexampleTestIds);
             boolean repairFound = aRepairResult.hasRepair();
-            boolean noTests = aRepairResult.equals(ARepairResult.NO_TESTS);
+            boolean noTests = aRepairResult.is(ARepairResult.Status.NO_TESTS);
             boolean keepGoing = !repairFound && !noTests && keepGoingARepairNoFixAndOnlyTrustedTests && searchSpace.isEmpty() && !trustedCounterexampleTests.isEmpty() && current.untrustedTests().isEmpty();
             boolean checkAndGenerate = repairFound || noTests || keepGoing;
+            if (aRepairResult.is(ARepairResult.Status.NOT_REPAIRED) && !keepGoing)
+                pruning.failed(current, trustedCounterexampleTestIds);
             if (printProcessGraph && !checkAndGenerate) {
                 repairGraph.addNoFixFoundFrom(current);
             }
-            if (checkAndGenerate) {
-                boolean fromOriginal = aRepairResult.equals(ARepairResult.NO_TESTS) || keepGoing;
+            List<BeAFixTest> failedKnownTests = Collections.emptyList();
+            if (repairFound && current.depth() < laps) {
+                beafixTimeCounter.clockStart();
+                failedKnownTests = preScreen(current, aRepairResult.repair());
+                beafixTimeCounter.clockEnd();
+            }
+            if (!failedKnownTests.isEmpty()) {
+                logger.info("Fix fails counterexample tests found on other branches, skipping BeAFix check");
+                evaluatedCandidatesLeadingToSpurious++;
+                preScreenedFixes++;
+                if (printProcessGraph) {
+                    repairGraph.addSpuriousFixFrom(current);
+                    evaluatedCandidatesLeadingToNoFix++;
+                }
+                if (timeoutReached(current, totalTime, beafixTimeCounter, arepairTimeCounter))
+                    return Optional.empty();
+                if (printProcessGraph)
+                    repairGraph.addGeneratedTestsFrom(current, Collections.emptyList(), failedKnownTests);
+                if (testRanking != null && failedKnownTests.size() == 1) //only a single screened test is known to be failed
+                    testRanking.failed(failedKnownTests);
+                FixCandidate newCandidate = FixCandidate.descendantAdding(context, modelToRepair, current, null, failedKnownTests);
+                newCandidate.repairedProperties(current.repairedProperties());
+                if (!newCandidate.hasLocalTests()) {
+                    logger.warning("Candidate " + newCandidate.id() + " is invalid (no new tests could be added)");
+                } else if (!prune(newCandidate)) {
+                    searchSpace.push(newCandidate);
+                    if (printAllUsedTests) {
+                        failedKnownTests.forEach(trustedTests::add);
+                    }
+                }
+            } else if (checkAndGenerate) {
+                boolean fromOriginal = aRepairResult.is(ARepairResult.Status.NO_TESTS) || keepGoing;
                 FixCandidate repairCandidate = fromOriginal?current:FixCandidate.aRepairCheckCandidate(aRepairResult.repair(), current.depth());
                 logger.info("Validating current candidate with BeAFix");
                 beafixTimeCounter.clockStart();
-                BeAFixResult beAFixCheckResult = runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.CHECK, false, false);
+                BeAFixResult beAFixCheckResult = runBeAFixCheck(repairCandidate);
                 beafixTimeCounter.clockEnd();
                 logger.info( "BeAFix check finished\n" + beAFixCheckResult.toString());
                 int repairedPropertiesForCurrent = beAFixCheckResult.passingProperties();
                 if (beAFixCheckResult.error()) {
                     logger.severe("BeAFix check ended in error, ending search");
-                    Report report = Report.beafixCheckFailed(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTests.size(), beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-                    writeReport(report);
+                    Report report = Report.beafixCheckFailed(current, current.localTestsCount() + trustedCounterexampleTests.size(), beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
+                    finish(report);
                     return Optional.empty();
                 } else if (beAFixCheckResult.checkResult()) {
                     logger.info("BeAFix validated the repair, fix found");
-                    Report report = Report.repairFound(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTests.size(), beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-                    writeReport(report);
+                    Report report = Report.repairFound(current, current.localTestsCount() + trustedCounterexampleTests.size(), beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
+                    finish(report);
                     if (printProcessGraph) {
                         repairGraph.addRealFixFrom(current);
                     }
@@ -268,26 +491,50 @@ public class IterativeCEBasedAlloyRepair {
                         }
                     }
                     if (current.depth() < laps) {
-                        if (timeout > 0) {
-                            totalTime.updateTotalTime();
-                            if (totalTime.toMinutes() >= timeout) {
-                                logger.info("ICEBAR timeout (" + timeout + " minutes) reached");
-                                Report report = Report.timeout(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTests.size(), beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-                                writeReport(report);
-                                if (printProcessGraph) {
-                                    repairGraph.addTimeoutFrom(current);
-                                }
-                                return Optional.empty();
+                        if (timeoutReached(current, totalTime, beafixTimeCounter, arepairTimeCounter))
+                            return Optional.empty();
+
+                        //instance tests are ignored when there are counterexample tests, unless they are used in the secondary search space
+                        boolean tiered = tieredTestGeneration && beAFix.instanceTests() && !allowSecondarySearchSpace;
+                        GenerationPass relaxedPass = null;
+                        GenerationPass forcedPass = null;
+                        if (concurrentGenerationPasses && allowFactsRelaxation) {
+                            //started before knowing if they are needed, discarded if the normal pass has counterexamples
+                            try {
+                                relaxedPass = startGenerationPass(repairCandidate, "relaxed", true, false);
+                                if (forceAssertionGeneration)
+                                    forcedPass = startGenerationPass(repairCandidate, "forced", false, true);
+                            } catch (IOException e) {
+                                logger.warning("Couldn't start relaxed test generation passes, they will be run after the normal pass if needed\n" + Utils.exceptionToString(e));
+                                cancel(relaxedPass, forcedPass);
+                                relaxedPass = null;
+                                forcedPass = null;
                             }
                         }
-
+                        int counterexampleTierTests = 0;
                         beafixTimeCounter.clockStart();
-                        BeAFixResult beAFixResult = runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.TESTS, false, false);
+                        BeAFixResult beAFixResult = tiered?runBeAFixCounterexampleTestsGeneration(repairCandidate):runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.TESTS, false, false);
                         beafixTimeCounter.clockEnd();
                         if (checkIfInvalidAndReportBeAFixResults(beAFixResult, current, beafixTimeCounter, arepairTimeCounter))
                             return Optional.empty();
+                        if (tiered && beAFixResult.getCounterexampleTests().isEmpty() && beAFixResult.getCounterExampleUntrustedTests().isEmpty()) {
+                            logger.info("No counterexample tests, generating with instance tests...");
+                            counterexampleTierTests = beAFixResult.generatedTests();
+                            if (counterexampleTierTests > 0)
+                                beAFix.testsStartingIndex(Math.max(beAFix.testsStartingIndex(), beAFixResult.getMaxIndex()) + 1);
+                            beafixTimeCounter.clockStart();
+                            beAFixResult = runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.TESTS, false, false);
+                            beafixTimeCounter.clockEnd();
+                            if (checkIfInvalidAndReportBeAFixResults(beAFixResult, current, beafixTimeCounter, arepairTimeCounter))
+                                return Optional.empty();
+                        }
                         List<BeAFixTest> counterexampleTests = beAFixResult.getCounterexampleTests();
                         List<BeAFixTest> counterexampleUntrustedTests = beAFixResult.getCounterExampleUntrustedTests();
+                        if (testRanking != null && !fromOriginal) {
+                            //counterexamples of a fix rejected by the oracle
+                            testRanking.failed(counterexampleTests);
+                            testRanking.failed(counterexampleUntrustedTests);
+                        }
                         List<BeAFixTest> predicateTests = beAFixResult.getPredicateTests();
                         List<BeAFixTest> relaxedPredicateTests = null;
                         List<BeAFixTest> relaxedAssertionsTests = null;
@@ -299,7 +546,12 @@ public class IterativeCEBasedAlloyRepair {
                             else
                                 logger.info("Counterexamples are available but secondary search space is enabled, generating with relaxed facts...");
                             beafixTimeCounter.clockStart();
-                            beAFixResult = runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.TESTS, true, false);
+                            if (relaxedPass != null) {
+                                logger.info("Using tests generated concurrently with relaxed facts");
+                                beAFixResult = passResult(relaxedPass);
+                            } else {
+                                beAFixResult = runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.TESTS, true, false);
+                            }
                             beafixTimeCounter.clockEnd();
                             if (checkIfInvalidAndReportBeAFixResults(beAFixResult, current, beafixTimeCounter, arepairTimeCounter))
                                 return Optional.empty();
@@ -307,9 +559,15 @@ public class IterativeCEBasedAlloyRepair {
                             testsGenerated = !relaxedPredicateTests.isEmpty();
                             if (forceAssertionGeneration) {
                                 logger.info("Generating with assertion forced test generation...");
-                                beAFix.testsStartingIndex(Math.max(beAFix.testsStartingIndex(), beAFixResult.getMaxIndex()) + 1);
+                                BeAFixResult beAFixResult_forcedAssertionTestGeneration;
                                 beafixTimeCounter.clockStart();
-                                BeAFixResult beAFixResult_forcedAssertionTestGeneration = runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.TESTS, false, true);
+                                beAFix.testsStartingIndex(Math.max(beAFix.testsStartingIndex(), beAFixResult.getMaxIndex()) + 1);
+                                if (forcedPass != null) {
+                                    logger.info("Using tests generated concurrently with assertion forced test generation");
+                                    beAFixResult_forcedAssertionTestGeneration = passResult(forcedPass);
+                                } else {
+                                    beAFixResult_forcedAssertionTestGeneration = runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.TESTS, false, true);
+                                }
                                 beafixTimeCounter.clockEnd();
                                 if (checkIfInvalidAndReportBeAFixResults(beAFixResult_forcedAssertionTestGeneration, current, beafixTimeCounter, arepairTimeCounter))
                                     return Optional.empty();
@@ -324,8 +582,9 @@ public class IterativeCEBasedAlloyRepair {
                                 testsGenerationLogged = true;
                             }
                         }
+                        cancel(relaxedPass, forcedPass);
                         if (printProcessGraph && !testsGenerationLogged) {
-                            boolean trustedAsGlobal = globalTrustedTests || (current.untrustedTests().isEmpty() && current.trustedTests().isEmpty());
+                            boolean trustedAsGlobal = globalTrustedTests || !current.hasLocalTests();
                             Collection<BeAFixTest> globalTests = trustedAsGlobal?counterexampleTests:Collections.emptyList();
                             Collection<BeAFixTest> localTests = new LinkedList<>();
                             if (!trustedAsGlobal)
@@ -334,11 +593,17 @@ public class IterativeCEBasedAlloyRepair {
                             localTests.addAll(predicateTests);
                             repairGraph.addGeneratedTestsFrom(current, globalTests, localTests);
                         }
+                        if (knownCounterexampleTestIds != null) {
+                            for (BeAFixTest test : counterexampleTests) {
+                                if (!test.isBranchedTest())
+                                    knownCounterexampleTestIds.add(context.testTable().intern(test));
+                            }
+                        }
                         boolean trustedTestsAdded;
                         boolean addLocalTrustedTests;
                         boolean globalTestsAdded = false;
-                        if (globalTrustedTests || (current.untrustedTests().isEmpty() && current.trustedTests().isEmpty())) {
-                            trustedTestsAdded = this.trustedCounterexampleTests.addAll(counterexampleTests);
+                        if (globalTrustedTests || !current.hasLocalTests()) {
+                            trustedTestsAdded = addGlobalTrustedTests(counterexampleTests);
                             globalTestsAdded = trustedTestsAdded;
                             addLocalTrustedTests = false;
                         } else { //local trusted tests except from original
@@ -347,22 +612,17 @@ public class IterativeCEBasedAlloyRepair {
                         }
                         int newBranches = 0;
                         if (!counterexampleTests.isEmpty()) {
-                            Set<BeAFixTest> localTrustedTests = new HashSet<>(current.trustedTests());
-                            Set<BeAFixTest> localUntrustedTests = new HashSet<>(current.untrustedTests());
-                            if (addLocalTrustedTests) {
-                                localTrustedTests.addAll(counterexampleTests);
-                            }
                             if (trustedTestsAdded) {
-                                FixCandidate newCandidate = FixCandidate.descendant(modelToRepair, localUntrustedTests, localTrustedTests, current);
+                                FixCandidate newCandidate = FixCandidate.descendantAdding(context, modelToRepair, current, null, addLocalTrustedTests?counterexampleTests:null);
                                 newCandidate.repairedProperties(repairedPropertiesForCurrent);
-                                if (newCandidate.hasLocalTests() || globalTestsAdded) {
+                                if (!newCandidate.hasLocalTests() && !globalTestsAdded) {
+                                    logger.warning("Candidate " + newCandidate.id() + " is invalid (no new tests could be added)");
+                                } else if (!prune(newCandidate)) {
                                     searchSpace.push(newCandidate);
                                     newBranches = 1;
                                     if (printAllUsedTests) {
                                         counterexampleTests.forEach(trustedTests::add);
                                     }
-                                } else {
-                                    logger.warning("Candidate " + newCandidate.id() + " is invalid (no new tests could be added)");
                                 }
                             }
                         }
@@ -430,7 +690,7 @@ public class IterativeCEBasedAlloyRepair {
                         if (printProcessGraph && !testsGenerated) {
                             repairGraph.addNoTestsFrom(current);
                         }
-                        totalTestsGenerated += beAFixResult.generatedTests() + (relaxedPredicateTests==null?0:relaxedPredicateTests.size()) + (relaxedAssertionsTests==null?0:relaxedAssertionsTests.size());
+                        totalTestsGenerated += counterexampleTierTests + beAFixResult.generatedTests() + (relaxedPredicateTests==null?0:relaxedPredicateTests.size()) + (relaxedAssertionsTests==null?0:relaxedAssertionsTests.size());
                         logger.info("Total tests generated: " + totalTestsGenerated);
                         logger.info("Generated branches: " + newBranches);
                         beAFix.testsStartingIndex(Math.max(beAFix.testsStartingIndex(), beAFixResult.getMaxIndex()) + 1);
@@ -447,13 +707,13 @@ public class IterativeCEBasedAlloyRepair {
             if (justRunningARepairOnce() && !noTests && !repairFound) {
                 logger.info("ICEBAR running ARepair once could not find a fix");
                 Report report = Report.arepairOnceNoFixFound(totalTestsGenerated, beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-                writeReport(report);
+                finish(report);
                 return Optional.empty();
             }
             if (justRunningARepairOnce() && !noTests && repairFound) {
                 logger.info("ICEBAR running ARepair once found a spurious fix");
                 Report report = Report.arepairOnceSpurious(totalTestsGenerated, beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-                writeReport(report);
+                finish(report);
                 return Optional.empty();
             }
             if (restartForMoreUnseenTests && searchSpace.isEmpty()) {
@@ -466,30 +726,107 @@ public class IterativeCEBasedAlloyRepair {
         }
         logger.info("ICEBAR ended with no more candidates");
         Report report = Report.exhaustedSearchSpace(maxReachedLap, totalTestsGenerated, beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-        writeReport(report);
+        finish(report);
         return Optional.empty();
     }
 
 
+    private Report report = null;
+    public Optional<Report> report() { return Optional.ofNullable(report); }
+
+    /**
+     * @return {@code true} if the ICEBAR timeout was reached, in which case the search is finished with a timeout report.
+     */
+    private boolean timeoutReached(FixCandidate current, TimeCounter totalTime, TimeCounter beafixTimeCounter, TimeCounter arepairTimeCounter) throws IOException {
+        if (timeout <= 0)
+            return false;
+        totalTime.updateTotalTime();
+        if (totalTime.toMinutes() < timeout)
+            return false;
+        logger.info("ICEBAR timeout (" + timeout + " minutes) reached");
+        Report report = Report.timeout(current, current.localTestsCount() + trustedCounterexampleTests.size(), beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
+        finish(report);
+        if (printProcessGraph) {
+            repairGraph.addTimeoutFrom(current);
+        }
+        return true;
+    }
+
+    private void finish(Report report) throws IOException {
+        this.report = report;
+        if (testOrdering.equals(ICEBARTestOrdering.BENCHMARK))
+            logger.info(testOrderingBenchmarkSummary());
+        if (preScreenFixes)
+            logger.info("Pre-screening: " + preScreenChecks + " BeAFix checks (included in BeAFix time), " + preScreenedFixes + " BeAFix oracle checks skipped (fixes found spurious)");
+        if (checkExecutor != null)
+            checkExecutor.shutdownNow();
+        if (generationExecutor != null)
+            generationExecutor.shutdownNow();
+        if (generationPassesExecutor != null)
+            generationPassesExecutor.shutdownNow();
+        writeReport(context.workingDirectory(), report);
+    }
+
+    /**
+     * @return the settings that change which candidates the search evaluates or which tests they get, a search can
+     * only be resumed from a checkpoint taken with the same settings.
+     */
+    private Map<String, String> searchSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("search", search.name());
+        settings.put("priorization", Boolean.toString(usePriorization));
+        settings.put("laps", Integer.toString(laps));
+        settings.put("secondary search space", Boolean.toString(allowSecondarySearchSpace));
+        settings.put("initial tests location", initialTestsLocation.name());
+        settings.put("facts relaxation", Boolean.toString(allowFactsRelaxation));
+        settings.put("global trusted tests", Boolean.toString(globalTrustedTests));
+        settings.put("force assertion generation", Boolean.toString(forceAssertionGeneration));
+        settings.put("tiered test generation", Boolean.toString(tieredTestGeneration));
+        settings.put("prune equivalent candidates", Boolean.toString(pruneEquivalentCandidates));
+        settings.put("prune subsumed candidates", Boolean.toString(pruneSubsumedCandidates));
+        settings.put("pre-screen fixes", Boolean.toString(preScreenFixes));
+        settings.put("test ordering", testOrdering.name());
+        settings.put("test suite reduction", Boolean.toString(testSuiteReducer != null));
+        settings.put("keep going after ARepair NPE", Boolean.toString(keepGoingAfterARepairNPE));
+        settings.put("keep going with only trusted tests", Boolean.toString(keepGoingARepairNoFixAndOnlyTrustedTests));
+        settings.put("restart for more tests", Boolean.toString(restartForMoreUnseenTests));
+        return settings;
+    }
+
+    private void writeCheckpoint(CandidateSpace searchSpace, CandidateSpace secondarySearchSpace, FixCandidate originalCandidate, int maxReachedLap, TimeCounter arepairTimeCounter, TimeCounter beafixTimeCounter, TimeCounter totalTime) {
+        SearchCheckpoint checkpoint = new SearchCheckpoint(
+                modelToRepair, oracle, searchSettings(),
+                searchSpace, secondarySearchSpace, originalCandidate,
+                trustedCounterexampleTests, context.testTable(), beAFix.testsStartingIndex(), maxReachedLap, searchRestarted,
+                totalTestsGenerated, arepairCalls, evaluatedCandidates, evaluatedCandidatesLeadingToNoFix, evaluatedCandidatesLeadingToSpurious,
+                trustedTests, untrustedTests, repairGraph, pruning, testRanking, knownCounterexampleTestIds,
+                arepairTimeCounter, beafixTimeCounter, totalTime
+        );
+        Path checkpointFile = SearchCheckpoint.checkpointFile(checkpointFolder);
+        try {
+            checkpoint.save(checkpointFile);
+            logger.info("Checkpoint written to " + checkpointFile + " (" + evaluatedCandidates + " evaluated candidates)");
+        } catch (IOException e) {
+            logger.severe("An exception occurred while writing checkpoint (" + checkpointFile + "), search will continue\n" + exceptionToString(e));
+        }
+    }
+
     private static final int BRANCHING_ERROR = -1; //TODO: currently not in use
     private int createBranches(FixCandidate current, List<BeAFixTest> fromTests, boolean multipleBranches, CandidateSpace searchSpace, int repairedPropertiesForCurrent) {
         int branches = 0;
         for (List<BeAFixTest> combination : createBranchesCombinations(fromTests, multipleBranches)) {
             if (combination.isEmpty())
                 continue;
-            Set<BeAFixTest> localTrustedTests = new HashSet<>(current.trustedTests());
-            Set<BeAFixTest> localUntrustedTests = new HashSet<>(current.untrustedTests());
-            localUntrustedTests.addAll(combination);
-            FixCandidate newCandidate = FixCandidate.descendant(modelToRepair, localUntrustedTests, localTrustedTests, current);
+            FixCandidate newCandidate = FixCandidate.descendantAdding(context, modelToRepair, current, combination, null);
             newCandidate.repairedProperties(repairedPropertiesForCurrent);
-            if (newCandidate.hasLocalTests()) {
+            if (!newCandidate.hasLocalTests()) {
+                logger.warning("Candidate " + newCandidate.id() + " is invalid (no new tests could be added)");
+            } else if (!prune(newCandidate)) {
                 searchSpace.push(newCandidate);
                 branches++;
                 if (printAllUsedTests) {
                     combination.forEach(untrustedTests::add);
                 }
-            } else {
-                logger.warning("Candidate " + newCandidate.id() + " is invalid (no new tests could be added)");
             }
         }
         return branches;
@@ -560,7 +897,7 @@ public class IterativeCEBasedAlloyRepair {
         if (!beAFixResult.error()) {
             String beafixMsg = "BeAFix finished\n";
             if (!beAFixResult.isCheck()) {
-                beAFixResult.parseAllTests();
+                beAFixResult.summarizeTests();
             }
             beafixMsg += beAFixResult + "\n";
             logger.info(beafixMsg);
@@ -568,56 +905,432 @@ public class IterativeCEBasedAlloyRepair {
         } else {
             logger.severe("BeAFix test generation ended in error, ending search");
             Report report = Report.beafixGenFailed(current, totalTestsGenerated, beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-            writeReport(report);
+            finish(report);
             return true;
         }
     }
 
-    private ARepairResult runARepairWithCurrentConfig(FixCandidate candidate) {
+    /**
+     * @param arepairTimeCounter the search's ARepair time counter, running, paused during the unordered run of the test
+     *                           ordering benchmark, which is not part of the search.
+     */
+    private ARepairResult runARepairWithCurrentConfig(FixCandidate candidate, TimeCounter arepairTimeCounter) {
         if (!aRepair.cleanFixDirectory())
             logger.warning("There was a problem cleaning ARepair .hidden folder, will keep going (cross your fingers)");
-        List<BeAFixTest> tests = new LinkedList<>(trustedCounterexampleTests);
-        tests.addAll(candidate.untrustedTests());
-        tests.addAll(candidate.trustedTests());
-        if (tests.isEmpty() && (initialTests == null || initialTests.getInitialTests().isEmpty()))
-            return ARepairResult.NO_TESTS;
-        Path testsPath = Paths.get(modelToRepair.toAbsolutePath().toString().replace(".als", "_tests.als"));
-        File testsFile = testsPath.toFile();
-        if (testsFile.exists()) {
-            if (!testsFile.delete()) {
-                logger.severe("Couldn't delete tests file (" + testsFile + ")");
-                ARepairResult error = ARepairResult.ERROR;
-                error.message("Couldn't delete tests file (" + testsFile + ")");
-                return error;
+        Collection<BeAFixTest> globalTests = trustedCounterexampleTests;
+        Collection<BeAFixTest> untrustedTests = candidate.untrustedTests();
+        Collection<BeAFixTest> trustedTests = candidate.trustedTests();
+        if (testSuiteReducer != null) {
+            TestSuiteReducer.Reduction reduction = testSuiteReducer.reduce(globalTests, untrustedTests, trustedTests);
+            globalTests = reduction.globalTests();
+            untrustedTests = reduction.untrustedTests();
+            trustedTests = reduction.trustedTests();
+            logger.info("Test suite reduction removed " + reduction.removedTests() + " tests (" + globalTests.size() + " global, " + (untrustedTests.size() + trustedTests.size()) + " local tests left)");
+        }
+        if (globalTests.isEmpty() && untrustedTests.isEmpty() && trustedTests.isEmpty() && (initialTests == null || initialTests.getInitialTests().isEmpty()))
+            return ARepairResult.noTests();
+        arepairCalls++;
+        ARepairResult aRepairResult;
+        switch (testOrdering) {
+            case FAIL_FAST: {
+                aRepairResult = runARepair(testRanking.order(globalTests), testRanking.order(untrustedTests), testRanking.order(trustedTests));
+                break;
+            }
+            case BENCHMARK: {
+                arepairTimeCounter.clockEnd();
+                long start = System.nanoTime();
+                ARepairResult unorderedResult = runARepair(globalTests, untrustedTests, trustedTests);
+                long unorderedTime = System.nanoTime() - start;
+                arepairTimeCounter.clockStart();
+                if (unorderedResult.is(ARepairResult.Status.ERROR))
+                    return unorderedResult;
+                if (!aRepair.cleanFixDirectory())
+                    logger.warning("There was a problem cleaning ARepair .hidden folder, will keep going (cross your fingers)");
+                start = System.nanoTime();
+                aRepairResult = runARepair(testRanking.order(globalTests), testRanking.order(untrustedTests), testRanking.order(trustedTests));
+                long orderedTime = System.nanoTime() - start;
+                unorderedARepairNanos += unorderedTime;
+                orderedARepairNanos += orderedTime;
+                logger.info("Test ordering benchmark: ARepair took " + unorderedTime / 1_000_000 + "ms without reordering and " + orderedTime / 1_000_000 + "ms with reordering\n" + testOrderingBenchmarkSummary());
+                if (!unorderedResult.status().equals(aRepairResult.status()))
+                    logger.warning("Test ordering benchmark: ARepair ended with " + unorderedResult.status() + " without reordering, but with " + aRepairResult.status() + " with reordering");
+                break;
             }
+            default: aRepairResult = runARepair(globalTests, untrustedTests, trustedTests);
+        }
+        if (testRanking != null && !aRepairResult.is(ARepairResult.Status.ERROR)) {
+            List<BeAFixTest> suite = new LinkedList<>(globalTests);
+            suite.addAll(untrustedTests);
+            suite.addAll(trustedTests);
+            int failingTests = testRanking.failedIn(aRepairResult.failureOutput(), suite);
+            if (failingTests > 0)
+                logger.info("ARepair reported " + failingTests + " failing tests");
         }
+        return aRepairResult;
+    }
+
+    private ARepairResult runARepair(Collection<BeAFixTest> globalTests, Collection<BeAFixTest> untrustedTests, Collection<BeAFixTest> trustedTests) {
+        List<BeAFixTest> tests = new LinkedList<>(globalTests);
+        tests.addAll(untrustedTests);
+        tests.addAll(trustedTests);
         int testCount;
         try {
+            if (testSuite == null) {
+                testSuite = new TestSuiteMaterializer(
+                        workingFile(modelToRepair, "_tests.als"),
+                        initialTests == null?null:initialTests.getInitialTests(),
+                        initialTestsLocation.equals(ICEBARInitialTestsLocation.PREPEND)
+                );
+            }
+            testCount = testSuite.materialize(globalTests, untrustedTests, trustedTests);
             if (initialTests != null) {
                 if (initialTestsLocation.equals(ICEBARInitialTestsLocation.PREPEND))
                     tests.addAll(0, initialTests.getInitialTests());
                 else
                     tests.addAll(initialTests.getInitialTests());
             }
-            testCount = generateTestsFile(tests, testsPath);
         } catch (IOException e) {
             logger.severe("An exception occurred while trying to generate tests file\n" + Utils.exceptionToString(e) + "\n");
-            ARepairResult error = ARepairResult.ERROR;
+            ARepairResult error = ARepairResult.error();
             error.message(Utils.exceptionToString(e));
             return error;
         }
         logger.info("Running ARepair with " + testCount + " tests");
         writeTestsToLog(tests, logger);
-        aRepair.testsPath(testsPath);
+        aRepair.testsPath(testSuite.output());
         logger.info("Executing ARepair:\n" + aRepair.aRepairCommandToString());
-        ARepairResult aRepairResult = aRepair.run();
-        arepairCalls++;
-        return aRepairResult;
+        return workers == null?aRepair.run():workers.runARepair(aRepair);
+    }
+
+    private String testOrderingBenchmarkSummary() {
+        return "Test ordering benchmark (" + arepairCalls + " ARepair calls): " +
+                unorderedARepairNanos / 1_000_000 + "ms without reordering, " +
+                orderedARepairNanos / 1_000_000 + "ms with reordering, speedup " +
+                String.format("%.2f", (double) unorderedARepairNanos / Math.max(1, orderedARepairNanos)) + "x";
     }
 
     private enum BeAFixMode {TESTS, CHECK}
 
+    /**
+     * Intermediate files are written to the session's scratch directory if it has one. Otherwise they are written next
+     * to {@code model}, unless the session has its own working directory, in which case they are written there so
+     * sessions repairing the same model don't overwrite each other's files.
+     */
+    private Path workingFile(Path model, String suffix) {
+        if (context.hasScratchDirectory())
+            return context.resolveScratch(model.getFileName().toString().replace(".als", suffix));
+        if (context.hasDedicatedWorkingDirectory())
+            return context.resolve(model.getFileName().toString().replace(".als", suffix)).toAbsolutePath();
+        return Paths.get(model.toAbsolutePath().toString().replace(".als", suffix));
+    }
+
+    /**
+     * Runs BeAFix test generation without instance tests, instance tests must be enabled in {@code beAFix}.
+     */
+    private BeAFixResult runBeAFixCounterexampleTestsGeneration(FixCandidate candidate) {
+        beAFix.instanceTests(false);
+        try {
+            return runBeAFixWithCurrentConfig(candidate, BeAFixMode.TESTS, false, false);
+        } finally {
+            beAFix.instanceTests(true);
+        }
+    }
+
+    /**
+     * Checks {@code candidate} against the oracle. When failure-first checks are enabled, and the number of passing
+     * properties is not needed, properties are checked one at a time, and the result of the last checked property is
+     * returned (its number of passing properties is meaningless). When parallel checks are enabled, properties are
+     * checked at the same time (see {@link #runBeAFixParallelCheck(FixCandidate, boolean)}).
+     */
+    private BeAFixResult runBeAFixCheck(FixCandidate candidate) {
+        violatedProperties = null;
+        boolean propertyChecks = checkParallelism > 1 || (failureFirstCheck && !usePriorization);
+        if (!propertyChecks)
+            return runBeAFixWithCurrentConfig(candidate, BeAFixMode.CHECK, false, false);
+        if (propertiesCheckOrder == null) {
+            try {
+                propertiesCheckOrder = new LinkedList<>(oracleMerger().properties());
+            } catch (IOException e) {
+                logger.severe("An exception occurred while trying to read the oracle\n" + Utils.exceptionToString(e) + "\n");
+                return BeAFixResult.error(Utils.exceptionToString(e));
+            }
+            if (propertiesCheckOrder.isEmpty())
+                logger.warning("Oracle commands can't be checked one at a time, fixes will be checked against the whole oracle");
+        }
+        if (propertiesCheckOrder.isEmpty())
+            return runBeAFixWithCurrentConfig(candidate, BeAFixMode.CHECK, false, false);
+        BeAFixResult beAFixResult = checkParallelism > 1?runBeAFixParallelCheck(candidate, !usePriorization):runBeAFixFailureFirstCheck(candidate);
+        if (beAFixResult.error()) {
+            //e.g.: a command the oracle merger couldn't isolate, the whole oracle is checked from now on
+            logger.warning("Checking oracle commands one at a time ended in error, fixes will be checked against the whole oracle\n" + beAFixResult.message());
+            propertiesCheckOrder.clear();
+            violatedProperties = null;
+            return runBeAFixWithCurrentConfig(candidate, BeAFixMode.CHECK, false, false);
+        }
+        return beAFixResult;
+    }
+
+    /**
+     * Checks one oracle property at a time against {@code candidate}, most recently violated properties first,
+     * stopping at the first violated one.
+     */
+    private BeAFixResult runBeAFixFailureFirstCheck(FixCandidate candidate) {
+        BeAFixResult beAFixResult = null;
+        int checkedProperties = 0;
+        for (String property : propertiesCheckOrder) {
+            beAFixResult = runBeAFixWithCurrentConfig(candidate, BeAFixMode.CHECK, false, false, property);
+            checkedProperties++;
+            if (beAFixResult.error())
+                return beAFixResult;
+            if (!beAFixResult.checkResult()) {
+                logger.info("Oracle property (" + property + ") violated, " + (propertiesCheckOrder.size() - checkedProperties) + " properties left unchecked");
+                violatedProperties(Collections.singletonList(property), checkedProperties == propertiesCheckOrder.size());
+                break;
+            }
+        }
+        return beAFixResult;
+    }
+
+    /**
+     * Checks each oracle property against {@code candidate} in its own BeAFix run, running at most
+     * {@code checkParallelism} runs at the same time (submitted most recently violated properties first when
+     * failure-first checks are enabled), and combines their results.
+     * @param verdictOnly when {@code true}, runs still pending when a property is violated are cancelled.
+     */
+    private BeAFixResult runBeAFixParallelCheck(FixCandidate candidate, boolean verdictOnly) {
+        try {
+            if (!beAFix.cleanOutputDir())
+                return BeAFixResult.error("Couldn't delete BeAFix output directory");
+        } catch (IOException e) {
+            logger.severe("An exception occurred when trying to clean BeAFix output directory\n" + exceptionToString(e));
+            return BeAFixResult.error("An exception occurred when trying to clean BeAFix output directory\n" + exceptionToString(e));
+        }
+        List<String> properties = new ArrayList<>(propertiesCheckOrder);
+        if (checkExecutor == null)
+            checkExecutor = jobsExecutor(checkParallelism, "oracle property check");
+        CompletionService<BeAFixResult> checks = new ExecutorCompletionService<>(checkExecutor);
+        Map<Future<BeAFixResult>, String> pendingChecks = new HashMap<>();
+        List<BeAFixResult> results = new LinkedList<>();
+        List<String> violated = new LinkedList<>();
+        try {
+            int propertyIndex = 0;
+            for (String property : properties) {
+                propertyIndex++;
+                BeAFix propertyCheck = beAFix.copy();
+                Path modelToCheckWithOraclePath = workingFile(candidate.modelToRepair(), "_withOracle_" + propertyIndex + ".als");
+                Files.deleteIfExists(modelToCheckWithOraclePath);
+                oracleMerger().merge(candidate.modelToRepair(), modelToCheckWithOraclePath, property);
+                propertyCheck.pathToModel(modelToCheckWithOraclePath);
+                Files.deleteIfExists(propertyCheck.verificationFile());
+                propertyCheck.setLogsDirectory(Files.createDirectories(beAFix.logsDirectory().resolve("check_" + propertyIndex)));
+                pendingChecks.put(checks.submit(() -> workers == null?propertyCheck.runModelCheck():workers.runModelCheck(propertyCheck)), property);
+            }
+            while (!pendingChecks.isEmpty()) {
+                Future<BeAFixResult> check = checks.take();
+                String property = pendingChecks.remove(check);
+                BeAFixResult result = check.get();
+                if (result.error())
+                    return result;
+                results.add(result);
+                if (!result.checkResult()) {
+                    violated.add(property);
+                    if (verdictOnly)
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            logger.severe("An exception occurred while trying to generate model with oracle files\n" + Utils.exceptionToString(e) + "\n");
+            return BeAFixResult.error(Utils.exceptionToString(e));
+        } catch (ExecutionException e) {
+            return BeAFixResult.error("An exception was caught when checking an oracle property\n" + exceptionToString(e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BeAFixResult.error("Interrupted while checking oracle properties");
+        } finally {
+            pendingChecks.keySet().forEach(check -> check.cancel(true));
+        }
+        if (!violated.isEmpty()) {
+            logger.info("Oracle properties violated: " + String.join(", ", violated) + " (" + (properties.size() - results.size()) + " properties left unchecked)");
+            violatedProperties(violated, results.size() == properties.size());
+        }
+        return BeAFixResult.combinedCheck(results, properties.size());
+    }
+
+    /**
+     * @param allChecked whether every property was checked, so {@code properties} are all the violated properties.
+     */
+    private void violatedProperties(List<String> properties, boolean allChecked) {
+        if (allChecked)
+            violatedProperties = new ArrayList<>(properties);
+        if (!failureFirstCheck)
+            return;
+        for (String property : properties) {
+            propertiesCheckOrder.remove(property);
+            propertiesCheckOrder.addFirst(property);
+        }
+    }
+
+    /**
+     * Generates tests for {@code candidate} running one BeAFix test generation per oracle property, only for the
+     * properties violated by {@code candidate} when they are known (see {@link #runBeAFixCheck(FixCandidate)}), and
+     * merges their tests as if they were generated by a single run. Every run starts from the current starting index,
+     * their tests are renumbered when merged.
+     */
+    private BeAFixResult runBeAFixShardedTestGeneration(FixCandidate candidate, boolean relaxedFacts, boolean forceAssertionGeneration) {
+        List<String> properties;
+        boolean onlyViolated = violatedProperties != null && !violatedProperties.isEmpty();
+        if (onlyViolated) {
+            properties = violatedProperties;
+        } else {
+            try {
+                properties = oracleMerger().properties();
+            } catch (IOException e) {
+                logger.severe("An exception occurred while trying to read the oracle\n" + Utils.exceptionToString(e) + "\n");
+                return BeAFixResult.error(Utils.exceptionToString(e));
+            }
+        }
+        if (properties.size() < 2)
+            return runBeAFixWithCurrentConfig(candidate, BeAFixMode.TESTS, relaxedFacts, forceAssertionGeneration, onlyViolated?properties.get(0):null);
+        try {
+            if (!beAFix.cleanOutputDir())
+                return BeAFixResult.error("Couldn't delete BeAFix output directory");
+        } catch (IOException e) {
+            logger.severe("An exception occurred when trying to clean BeAFix output directory\n" + exceptionToString(e));
+            return BeAFixResult.error("An exception occurred when trying to clean BeAFix output directory\n" + exceptionToString(e));
+        }
+        beAFix.pathToModel(workingFile(candidate.modelToRepair(), "_withOracle.als"));
+        beAFix.factsRelaxationGeneration(relaxedFacts);
+        beAFix.forceAssertionTestsGeneration(forceAssertionGeneration);
+        if (generationExecutor == null)
+            generationExecutor = jobsExecutor(generationParallelism, "test generation shard");
+        List<BeAFix> shards = new ArrayList<>(properties.size());
+        List<Future<BeAFixResult>> shardResults = new ArrayList<>(properties.size());
+        try {
+            Files.createDirectories(beAFix.outputDirectory());
+            int shardIndex = 0;
+            for (String property : properties) {
+                shardIndex++;
+                BeAFix shard = beAFix.copy();
+                Path modelToCheckWithOraclePath = workingFile(candidate.modelToRepair(), "_withOracle_" + shardIndex + ".als");
+                Files.deleteIfExists(modelToCheckWithOraclePath);
+                oracleMerger().merge(candidate.modelToRepair(), modelToCheckWithOraclePath, property);
+                shard.pathToModel(modelToCheckWithOraclePath);
+                shard.setOutputDir(beAFix.outputDirectory().resolve("shard_" + shardIndex));
+                shard.setLogsDirectory(Files.createDirectories(beAFix.logsDirectory().resolve("shard_" + shardIndex)));
+                shards.add(shard);
+                shardResults.add(generationExecutor.submit(() -> workers == null?shard.runTestGeneration():workers.runTestGeneration(shard)));
+            }
+            for (Future<BeAFixResult> shardResult : shardResults) {
+                BeAFixResult result = shardResult.get();
+                if (result.error())
+                    return result;
+            }
+            return beAFix.mergeTestGenerationResults(shards);
+        } catch (IOException e) {
+            logger.severe("An exception occurred while generating tests in shards\n" + Utils.exceptionToString(e) + "\n");
+            return BeAFixResult.error(Utils.exceptionToString(e));
+        } catch (ExecutionException e) {
+            return BeAFixResult.error("An exception was caught when generating tests for an oracle property\n" + exceptionToString(e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BeAFixResult.error("Interrupted while generating tests");
+        } finally {
+            shardResults.forEach(shardResult -> shardResult.cancel(true));
+        }
+    }
+
+    /**
+     * A test generation pass started before knowing if its tests are needed, running on its own copy of BeAFix, with
+     * its own model with oracle and output directory, starting from the same test index as the normal pass (its tests
+     * are renumbered when used, see {@link #passResult(GenerationPass)}).
+     */
+    private static final class GenerationPass {
+
+        private final BeAFix beAFix;
+        private final Future<BeAFixResult> result;
+
+        private GenerationPass(BeAFix beAFix, Future<BeAFixResult> result) {
+            this.beAFix = beAFix;
+            this.result = result;
+        }
+
+        private BeAFixResult result() {
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                return BeAFixResult.error("An exception was caught when generating tests\n" + exceptionToString(e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return BeAFixResult.error("Interrupted while generating tests");
+            }
+        }
+
+        private void cancel() {
+            result.cancel(true);
+        }
+
+    }
+
+    private GenerationPass startGenerationPass(FixCandidate candidate, String name, boolean relaxedFacts, boolean forceAssertionGeneration) throws IOException {
+        BeAFix pass = beAFix.copy();
+        Path modelToCheckWithOraclePath = workingFile(candidate.modelToRepair(), "_withOracle_" + name + ".als");
+        Files.deleteIfExists(modelToCheckWithOraclePath);
+        oracleMerger().merge(candidate.modelToRepair(), modelToCheckWithOraclePath);
+        pass.pathToModel(modelToCheckWithOraclePath);
+        //outside BeAFix's output directory, which is cleaned by the normal pass
+        pass.setOutputDir(beAFix.outputDirectory().resolveSibling(beAFix.outputDirectory().getFileName() + "_" + name));
+        if (!pass.cleanOutputDir()) //tests left from a previous lap would be taken as generated by this pass
+            throw new IOException("Couldn't delete BeAFix output directory (" + pass.outputDirectory() + ")");
+        pass.setLogsDirectory(Files.createDirectories(beAFix.logsDirectory().resolve(name)));
+        pass.factsRelaxationGeneration(relaxedFacts);
+        pass.forceAssertionTestsGeneration(forceAssertionGeneration);
+        if (generationPassesExecutor == null)
+            generationPassesExecutor = jobsExecutor(2, "test generation pass");
+        return new GenerationPass(pass, generationPassesExecutor.submit(() -> workers == null?pass.runTestGeneration():workers.runTestGeneration(pass)));
+    }
+
+    /**
+     * @return the tests generated by {@code pass}, written to BeAFix's output directory and renumbered as if they were
+     * generated by BeAFix from its current starting index.
+     */
+    private BeAFixResult passResult(GenerationPass pass) {
+        BeAFixResult result = pass.result();
+        if (result.error())
+            return result;
+        try {
+            Files.createDirectories(beAFix.outputDirectory());
+            return beAFix.mergeTestGenerationResults(Collections.singletonList(pass.beAFix));
+        } catch (IOException e) {
+            logger.severe("An exception occurred while trying to renumber concurrently generated tests\n" + Utils.exceptionToString(e) + "\n");
+            return BeAFixResult.error(Utils.exceptionToString(e));
+        }
+    }
+
+    private static void cancel(GenerationPass... passes) {
+        for (GenerationPass pass : passes) {
+            if (pass != null)
+                pass.cancel();
+        }
+    }
+
+    private static ExecutorService jobsExecutor(int threads, String name) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     private BeAFixResult runBeAFixWithCurrentConfig(FixCandidate candidate, BeAFixMode mode, boolean relaxedFacts, boolean forceAssertionGeneration) {
+        if (mode.equals(BeAFixMode.TESTS) && generationParallelism > 1)
+            return runBeAFixShardedTestGeneration(candidate, relaxedFacts, forceAssertionGeneration);
+        return runBeAFixWithCurrentConfig(candidate, mode, relaxedFacts, forceAssertionGeneration, null);
+    }
+
+    /**
+     * @param property when not {@code null}, the only oracle command kept in the model with oracle.
+     */
+    private BeAFixResult runBeAFixWithCurrentConfig(FixCandidate candidate, BeAFixMode mode, boolean relaxedFacts, boolean forceAssertionGeneration, String property) {
         try {
             if (!beAFix.cleanOutputDir()) {
                 return BeAFixResult.error("Couldn't delete BeAFix output directory");
@@ -626,7 +1339,7 @@ public class IterativeCEBasedAlloyRepair {
             logger.severe("An exception occurred when trying to clean BeAFix output directory\n" + exceptionToString(e));
             return BeAFixResult.error("An exception occurred when trying to clean BeAFix output directory\n" + exceptionToString(e));
         }
-        Path modelToCheckWithOraclePath = Paths.get(candidate.modelToRepair().toAbsolutePath().toString().replace(".als", "_withOracle.als"));
+        Path modelToCheckWithOraclePath = workingFile(candidate.modelToRepair(), "_withOracle.als");
         File modelToCheckWithOracleFile = modelToCheckWithOraclePath.toFile();
         if (modelToCheckWithOracleFile.exists()) {
             if (!modelToCheckWithOracleFile.delete()) {
@@ -635,7 +1348,10 @@ public class IterativeCEBasedAlloyRepair {
             }
         }
         try {
-            mergeFiles(candidate.modelToRepair(), oracle, modelToCheckWithOraclePath);
+            if (property == null)
+                oracleMerger().merge(candidate.modelToRepair(), modelToCheckWithOraclePath);
+            else
+                oracleMerger().merge(candidate.modelToRepair(), modelToCheckWithOraclePath, property);
         } catch (IOException e) {
             logger.severe("An exception occurred while trying to generate model with oracle file\n" + Utils.exceptionToString(e) + "\n");
             return BeAFixResult.error(Utils.exceptionToString(e));
@@ -646,22 +1362,110 @@ public class IterativeCEBasedAlloyRepair {
         beAFix.forceAssertionTestsGeneration(forceAssertionGeneration);
         switch (mode) {
             case TESTS: {
-                beAFixResult = beAFix.runTestGeneration();
+                beAFixResult = workers == null?beAFix.runTestGeneration():workers.runTestGeneration(beAFix);
                 break;
             }
             case CHECK: {
-                beAFixResult = beAFix.runModelCheck();
+                beAFixResult = workers == null?beAFix.runModelCheck():workers.runModelCheck(beAFix);
                 break;
             }
         }
         return beAFixResult;
     }
 
+    private OracleMerger oracleMerger() throws IOException {
+        if (oracleMerger == null)
+            oracleMerger = OracleMerger.forOracle(oracle);
+        return oracleMerger;
+    }
+
     private Report.TestsAndCandidatesCounters generateTestsAndCandidateCounters() {
         int totalTests = printAllUsedTests?(trustedTests.count() + untrustedTests.count()):totalTestsGenerated;
         int trustedTestsUsed = printAllUsedTests?trustedTests.count():-1;
         int untrustedTestsUsed = printAllUsedTests? untrustedTests.count():-1;
-        return new Report.TestsAndCandidatesCounters(totalTests, trustedTestsUsed, untrustedTestsUsed, evaluatedCandidates, evaluatedCandidatesLeadingToNoFix, evaluatedCandidatesLeadingToSpurious);
+        return new Report.TestsAndCandidatesCounters(totalTests, trustedTestsUsed, untrustedTestsUsed, evaluatedCandidates, evaluatedCandidatesLeadingToNoFix, evaluatedCandidatesLeadingToSpurious, pruning == null?0:pruning.prunedEquivalentCandidates(), pruning == null?0:pruning.prunedSubsumedCandidates());
+    }
+
+    /**
+     * Checks {@code repair} against the trusted counterexample tests found on any branch, and not already used by
+     * {@code candidate}, in a single BeAFix check of the fix with those tests appended (each test is a command with its
+     * expected outcome, so the fix is valid only if it passes every test). The verification file doesn't tell which
+     * tests failed, so the whole batch is returned instead of running more checks to find them (a screening costs at
+     * most one check, and saves the oracle check when the fix fails).
+     * @return the screened tests if {@code repair} fails any of them, or an empty list if {@code repair} passes every
+     * test, pre-screening is disabled, or BeAFix couldn't check them (the fix is then checked against the oracle as usual).
+     */
+    private List<BeAFixTest> preScreen(FixCandidate candidate, Path repair) {
+        if (knownCounterexampleTestIds == null)
+            return Collections.emptyList();
+        TestSet screeningTestIds = knownCounterexampleTestIds.copy();
+        screeningTestIds.removeAll(candidate.testSuite(trustedCounterexampleTestIds));
+        if (screeningTestIds.isEmpty())
+            return Collections.emptyList();
+        List<BeAFixTest> screened = context.testTable().tests(screeningTestIds);
+        logger.info("Pre-screening fix with " + screened.size() + " counterexample tests found on other branches");
+        BeAFixResult screening = screen(repair, screened);
+        logger.info("Pre-screening finished\n" + screening);
+        if (screening.error()) {
+            logger.warning("Pre-screening ended in error, will check the fix with BeAFix\n" + screening.message());
+            return Collections.emptyList();
+        }
+        if (screening.checkResult())
+            return Collections.emptyList();
+        return screened;
+    }
+
+    private BeAFixResult screen(Path repair, Collection<BeAFixTest> tests) {
+        preScreenChecks++;
+        BeAFix screening = beAFix.copy();
+        Path screenedModel = workingFile(modelToRepair, "_prescreen.als");
+        try {
+            Files.copy(repair, screenedModel, StandardCopyOption.REPLACE_EXISTING);
+            try (TestsFileWriter writer = TestsFileWriter.append(screenedModel)) {
+                writer.newLine();
+                writer.writeAll(tests);
+            }
+            screening.pathToModel(screenedModel);
+            Files.deleteIfExists(screening.verificationFile());
+        } catch (IOException e) {
+            return BeAFixResult.error("An exception occurred while trying to generate pre-screening model\n" + Utils.exceptionToString(e));
+        }
+        return workers == null?screening.runModelCheck():workers.runModelCheck(screening);
+    }
+
+    /**
+     * @return {@code true} if {@code candidate} should not be added to the search space because its tests include the
+     * tests of a candidate without fix. Candidates with the same tests as an already evaluated candidate are only
+     * pruned when evaluated (see {@link #pruneEquivalent(FixCandidate)}), since global tests might be added before.
+     */
+    private boolean prune(FixCandidate candidate) {
+        return pruneSubsumed(candidate);
+    }
+
+    private boolean pruneEquivalent(FixCandidate candidate) {
+        if (pruning.prune(candidate, trustedCounterexampleTestIds)) {
+            logger.info("Candidate " + candidate.id() + " pruned (same tests as an already evaluated candidate)");
+            if (printProcessGraph)
+                repairGraph.addPrunedFrom(candidate);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean pruneSubsumed(FixCandidate candidate) {
+        if (pruning.subsumed(candidate, trustedCounterexampleTestIds)) {
+            logger.info("Candidate " + candidate.id() + " pruned (its tests include the tests of a candidate without fix)");
+            if (printProcessGraph)
+                repairGraph.addPrunedFrom(candidate);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean addGlobalTrustedTests(Collection<BeAFixTest> tests) {
+        for (BeAFixTest test : tests)
+            trustedCounterexampleTestIds.add(context.testTable().intern(test));
+        return trustedCounterexampleTests.addAll(tests);
     }
 
 }
@@ -0,0 +1,220 @@
+package ar.edu.unrc.exa.dc.search;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+import ar.edu.unrc.exa.dc.util.RepairGraph;
+import ar.edu.unrc.exa.dc.util.TestHashes;
+import ar.edu.unrc.exa.dc.util.TestRanking;
+import ar.edu.unrc.exa.dc.util.TestSet;
+import ar.edu.unrc.exa.dc.util.TestTable;
+import ar.edu.unrc.exa.dc.util.TimeCounter;
+import ar.edu.unrc.exa.dc.util.Utils;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A snapshot of the whole state of a repair search, taken between two candidate evaluations.
+ * <p>
+ * Checkpoints are written to a temporary file which is synced and then atomically moved over the previous checkpoint,
+ * so a checkpoint file is always either the previous or the new snapshot, even if the process is killed while saving.
+ */
+public final class SearchCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CHECKPOINT_FILENAME = "icebar.checkpoint";
+
+    private final String modelToRepair;
+    private final String oracle;
+    private final Map<String, String> searchSettings;
+    private final CandidateSpace searchSpace;
+    private final CandidateSpace secondarySearchSpace;
+    private final FixCandidate originalCandidate;
+    private final Set<BeAFixTest> trustedCounterexampleTests;
+    private final TestTable testTable;
+    private final int testsStartingIndex;
+    private final int maxReachedLap;
+    private final boolean searchRestarted;
+    private final int totalTestsGenerated;
+    private final int arepairCalls;
+    private final int evaluatedCandidates;
+    private final int evaluatedCandidatesLeadingToNoFix;
+    private final int evaluatedCandidatesLeadingToSpurious;
+    private final TestHashes trustedTests;
+    private final TestHashes untrustedTests;
+    private final RepairGraph repairGraph;
+    private final CandidatePruning pruning;
+    private final TestRanking testRanking;
+    private final TestSet knownCounterexampleTests;
+    private final TimeCounter arepairTimeCounter;
+    private final TimeCounter beafixTimeCounter;
+    private final TimeCounter totalTime;
+
+    SearchCheckpoint(
+            Path modelToRepair, Path oracle, Map<String, String> searchSettings,
+            CandidateSpace searchSpace, CandidateSpace secondarySearchSpace, FixCandidate originalCandidate,
+            Set<BeAFixTest> trustedCounterexampleTests, TestTable testTable, int testsStartingIndex, int maxReachedLap, boolean searchRestarted,
+            int totalTestsGenerated, int arepairCalls, int evaluatedCandidates, int evaluatedCandidatesLeadingToNoFix, int evaluatedCandidatesLeadingToSpurious,
+            TestHashes trustedTests, TestHashes untrustedTests, RepairGraph repairGraph, CandidatePruning pruning, TestRanking testRanking, TestSet knownCounterexampleTests,
+            TimeCounter arepairTimeCounter, TimeCounter beafixTimeCounter, TimeCounter totalTime
+    ) {
+        this.modelToRepair = modelToRepair.toAbsolutePath().toString();
+        this.oracle = oracle.toAbsolutePath().toString();
+        this.searchSettings = new LinkedHashMap<>(searchSettings);
+        this.searchSpace = searchSpace;
+        this.secondarySearchSpace = secondarySearchSpace;
+        this.originalCandidate = originalCandidate;
+        this.trustedCounterexampleTests = new LinkedHashSet<>(trustedCounterexampleTests); //keeps the order the search uses for the global tests
+        this.testTable = testTable;
+        this.testsStartingIndex = testsStartingIndex;
+        this.maxReachedLap = maxReachedLap;
+        this.searchRestarted = searchRestarted;
+        this.totalTestsGenerated = totalTestsGenerated;
+        this.arepairCalls = arepairCalls;
+        this.evaluatedCandidates = evaluatedCandidates;
+        this.evaluatedCandidatesLeadingToNoFix = evaluatedCandidatesLeadingToNoFix;
+        this.evaluatedCandidatesLeadingToSpurious = evaluatedCandidatesLeadingToSpurious;
+        this.trustedTests = trustedTests;
+        this.untrustedTests = untrustedTests;
+        this.repairGraph = repairGraph;
+        this.pruning = pruning;
+        this.testRanking = testRanking;
+        this.knownCounterexampleTests = knownCounterexampleTests;
+        this.arepairTimeCounter = arepairTimeCounter;
+        this.beafixTimeCounter = beafixTimeCounter;
+        this.totalTime = totalTime;
+    }
+
+    public static Path checkpointFile(Path checkpointFolder) {
+        return Paths.get(checkpointFolder.toString(), CHECKPOINT_FILENAME);
+    }
+
+    public void save(Path checkpoint) throws IOException {
+        if (checkpoint == null)
+            throw new IllegalArgumentException("null checkpoint path");
+        Path folder = checkpoint.toAbsolutePath().getParent();
+        Files.createDirectories(folder);
+        Path tmpCheckpoint = Paths.get(folder.toString(), checkpoint.getFileName().toString() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmpCheckpoint, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            ObjectOutputStream oos = new ObjectOutputStream(gzip);
+            oos.writeObject(this);
+            oos.flush();
+            gzip.finish();
+            gzip.flush();
+            channel.force(true);
+        }
+        Files.move(tmpCheckpoint, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static SearchCheckpoint load(Path checkpoint) throws IOException {
+        if (!Utils.isValidPath(checkpoint, Utils.PathCheck.FILE))
+            throw new IllegalArgumentException("Invalid checkpoint file (" + (checkpoint==null?"NULL":checkpoint.toString()) + ")");
+        try (ObjectInputStream ois = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(checkpoint))))) {
+            return (SearchCheckpoint) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Checkpoint file (" + checkpoint + ") is not a valid ICEBAR checkpoint", e);
+        }
+    }
+
+    public boolean belongsTo(Path modelToRepair, Path oracle) {
+        return this.modelToRepair.equals(modelToRepair.toAbsolutePath().toString()) && this.oracle.equals(oracle.toAbsolutePath().toString());
+    }
+
+    /**
+     * @return a description of the differences between the search settings this checkpoint was taken with and
+     * {@code searchSettings}, an empty string if there are none, or {@code null} if this checkpoint has no record of its
+     * search settings.
+     */
+    public String searchSettingsDifferences(Map<String, String> searchSettings) {
+        if (this.searchSettings == null)
+            return null;
+        StringBuilder differences = new StringBuilder();
+        Set<String> settings = new LinkedHashSet<>(this.searchSettings.keySet());
+        settings.addAll(searchSettings.keySet());
+        for (String setting : settings) {
+            String checkpointValue = this.searchSettings.get(setting);
+            String value = searchSettings.get(setting);
+            if (checkpointValue == null?value != null:!checkpointValue.equals(value))
+                differences.append("\n\t").append(setting).append(": ").append(checkpointValue).append(" (checkpoint), ").append(value).append(" (current)");
+        }
+        return differences.toString();
+    }
+
+    public String modelToRepair() { return modelToRepair; }
+
+    public String oracle() { return oracle; }
+
+    public CandidateSpace searchSpace() { return searchSpace; }
+
+    public CandidateSpace secondarySearchSpace() { return secondarySearchSpace; }
+
+    public FixCandidate originalCandidate() { return originalCandidate; }
+
+    public Set<BeAFixTest> trustedCounterexampleTests() { return trustedCounterexampleTests; }
+
+    /**
+     * @return the session's test table, which the candidates in this checkpoint refer to.
+     */
+    public TestTable testTable() { return testTable; }
+
+    public int testsStartingIndex() { return testsStartingIndex; }
+
+    public int maxReachedLap() { return maxReachedLap; }
+
+    public boolean searchRestarted() { return searchRestarted; }
+
+    public int totalTestsGenerated() { return totalTestsGenerated; }
+
+    public int arepairCalls() { return arepairCalls; }
+
+    public int evaluatedCandidates() { return evaluatedCandidates; }
+
+    public int evaluatedCandidatesLeadingToNoFix() { return evaluatedCandidatesLeadingToNoFix; }
+
+    public int evaluatedCandidatesLeadingToSpurious() { return evaluatedCandidatesLeadingToSpurious; }
+
+    public TestHashes trustedTests() { return trustedTests; }
+
+    public TestHashes untrustedTests() { return untrustedTests; }
+
+    public RepairGraph repairGraph() { return repairGraph; }
+
+    CandidatePruning pruning() { return pruning; }
+
+    public TestRanking testRanking() { return testRanking; }
+
+    public TestSet knownCounterexampleTests() { return knownCounterexampleTests; }
+
+    public TimeCounter arepairTimeCounter() { return arepairTimeCounter; }
+
+    public TimeCounter beafixTimeCounter() { return beafixTimeCounter; }
+
+    public TimeCounter totalTime() { return totalTime; }
+
+    @Override
+    public String toString() {
+        return "{\n\tModel: " + modelToRepair +
+                "\n\tOracle: " + oracle +
+                "\n\tEvaluated candidates: " + evaluatedCandidates +
+                "\n\tARepair calls: " + arepairCalls +
+                "\n\tGlobal trusted tests: " + trustedCounterexampleTests.size() +
+                "\n\tDistinct tests: " + (testTable == null?0:testTable.size()) +
+                "\n\tTests starting index: " + testsStartingIndex +
+                (pruning == null?"":("\n\t" + pruning)) +
+                "\n}";
+    }
+
+}
@@ -0,0 +1,204 @@
+package ar.edu.unrc.exa.dc.search;
+
+import ar.edu.unrc.exa.dc.util.TestTable;
+import ar.edu.unrc.exa.dc.util.Utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.FileHandler;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * State owned by a single repair session: the folder where the session writes its logs, reports, and intermediate
+ * files, the session's logger, and the search settings that used to be process wide.
+ * <p>
+ * Several sessions, each one with its own context and working directory, can run in parallel inside the same JVM.
+ * <p>
+ * A session can also have a scratch directory, ideally on a RAM backed file system, where the files created and
+ * deleted on every lap (tests files, models with the oracle, tools' outputs and logs) are written. The scratch
+ * directory is deleted when the context is closed, so only files copied out of it survive the session.
+ */
+public final class SessionContext {
+
+    public static final String REPAIR_LOG = "Repair.log";
+    public static final String CANDIDATES_LOG = "Candidates.log";
+    public static final Path WORKING_DIRECTORY_DEFAULT = Paths.get("");
+    public static final Path SCRATCH_ROOT_DEFAULT = Paths.get("/dev/shm");
+    private static final String SCRATCH_PREFIX = "icebar_scratch_";
+
+    private static final AtomicInteger sessions = new AtomicInteger(0);
+
+    private final Path workingDirectory;
+    private final Logger logger;
+    private Path scratchDirectory = null;
+    private TestTable testTable = new TestTable();
+
+    private boolean checkRepeated = false;
+    public void checkRepeated(boolean checkRepeated) { this.checkRepeated = checkRepeated; }
+    public boolean checkRepeated() { return checkRepeated; }
+
+    private boolean storeGraphTests = false;
+    public void storeGraphTests(boolean storeGraphTests) { this.storeGraphTests = storeGraphTests; }
+    public boolean storeGraphTests() { return storeGraphTests; }
+
+    private Path graphsFolder = null;
+    public void graphsFolder(Path graphsFolder) { this.graphsFolder = graphsFolder; }
+    public Path graphsFolder() { return graphsFolder; }
+
+    private boolean cleanGraphsFolder = false;
+    public void cleanGraphsFolder(boolean cleanGraphsFolder) { this.cleanGraphsFolder = cleanGraphsFolder; }
+    public boolean cleanGraphsFolder() { return cleanGraphsFolder; }
+
+    /**
+     * @return a context writing to the current directory, as a single ICEBAR run does.
+     */
+    public static SessionContext inCurrentDirectory() {
+        return new SessionContext(WORKING_DIRECTORY_DEFAULT);
+    }
+
+    /**
+     * @param workingDirectory the folder where the session will write its files, created if missing.
+     */
+    public static SessionContext inWorkingDirectory(Path workingDirectory) throws IOException {
+        if (workingDirectory == null)
+            throw new IllegalArgumentException("null working directory");
+        Files.createDirectories(workingDirectory);
+        return new SessionContext(workingDirectory);
+    }
+
+    private SessionContext(Path workingDirectory) {
+        this.workingDirectory = workingDirectory;
+        this.logger = Logger.getLogger(IterativeCEBasedAlloyRepair.class.getName() + "." + sessions.incrementAndGet());
+        addFileHandler(REPAIR_LOG);
+        addFileHandler(CANDIDATES_LOG);
+    }
+
+    private void addFileHandler(String logFile) {
+        try {
+            FileHandler fh = new FileHandler(resolve(logFile).toString());
+            logger.addHandler(fh);
+            SimpleFormatter formatter = new SimpleFormatter();
+            fh.setFormatter(formatter);
+        } catch (SecurityException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public Path workingDirectory() {
+        return workingDirectory;
+    }
+
+    public boolean hasDedicatedWorkingDirectory() {
+        return !workingDirectory.equals(WORKING_DIRECTORY_DEFAULT);
+    }
+
+    /**
+     * @return {@link SessionContext#SCRATCH_ROOT_DEFAULT} if it is a writable folder.
+     */
+    public static Optional<Path> defaultScratchRoot() {
+        if (Files.isDirectory(SCRATCH_ROOT_DEFAULT) && Files.isWritable(SCRATCH_ROOT_DEFAULT))
+            return Optional.of(SCRATCH_ROOT_DEFAULT);
+        return Optional.empty();
+    }
+
+    /**
+     * Creates this session's scratch directory, a new folder inside {@code scratchRoot}.
+     */
+    public void scratchRoot(Path scratchRoot) throws IOException {
+        if (scratchRoot == null)
+            throw new IllegalArgumentException("null scratch root");
+        if (scratchDirectory != null)
+            throw new IllegalStateException("Scratch directory already created (" + scratchDirectory + ")");
+        Files.createDirectories(scratchRoot);
+        scratchDirectory = Files.createTempDirectory(scratchRoot, SCRATCH_PREFIX).toAbsolutePath();
+        logger.info("Using scratch directory " + scratchDirectory);
+    }
+
+    public boolean hasScratchDirectory() {
+        return scratchDirectory != null;
+    }
+
+    /**
+     * @return the folder where transient files are written, the scratch directory if there is one, or the working
+     * directory otherwise.
+     */
+    public Path scratchDirectory() {
+        return scratchDirectory == null?workingDirectory:scratchDirectory;
+    }
+
+    public Path resolveScratch(String fileName) {
+        return scratchDirectory().resolve(fileName);
+    }
+
+    /**
+     * Copies the files directly inside the scratch directory matching {@code glob} to the working directory.
+     */
+    public void keepFromScratch(String glob) throws IOException {
+        if (scratchDirectory == null)
+            return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(scratchDirectory, glob)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file))
+                    Files.copy(file, resolve(file.getFileName().toString()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * @return {@code path} if absolute, or {@code path} resolved against this session's working directory.
+     */
+    public Path resolve(Path path) {
+        return workingDirectory.resolve(path);
+    }
+
+    public Path resolve(String fileName) {
+        return workingDirectory.resolve(fileName);
+    }
+
+    public Logger logger() {
+        return logger;
+    }
+
+    /**
+     * @return the table where the tests used by this session's search are interned.
+     */
+    public TestTable testTable() {
+        return testTable;
+    }
+
+    /**
+     * Replaces this session's test table, used when resuming a search from a checkpoint.
+     */
+    void testTable(TestTable testTable) {
+        if (testTable == null)
+            throw new IllegalArgumentException("null test table");
+        this.testTable = testTable;
+    }
+
+    /**
+     * Deletes the scratch directory, if any, and closes the session's log files, the logger must not be used afterwards.
+     */
+    public void close() {
+        if (scratchDirectory != null) {
+            try {
+                Utils.deleteFolderAndItsContent(scratchDirectory);
+            } catch (IOException e) {
+                logger.warning("Couldn't delete scratch directory (" + scratchDirectory + ")\n" + Utils.exceptionToString(e));
+            }
+            scratchDirectory = null;
+        }
+        for (Handler handler : logger.getHandlers()) {
+            logger.removeHandler(handler);
+            handler.close();
+        }
+    }
+
+}
@@ -6,7 +6,10 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -14,17 +17,57 @@ import static ar.edu.unrc.exa.dc.util.Utils.*;
 
 public final class ARepair {
 
-    public enum ARepairResult {
-
-        REPAIRED,
-        NOT_REPAIRED,
-        ERROR,
-        NO_TESTS,
-        PARTIAL_REPAIR;
+    /**
+     * The result of a single ARepair call, a new instance is created for each call so concurrent sessions do not
+     * share results.
+     */
+    public static final class ARepairResult {
+
+        public enum Status {
+            REPAIRED,
+            NOT_REPAIRED,
+            ERROR,
+            NO_TESTS,
+            PARTIAL_REPAIR
+        }
 
+        private final Status status;
         private String message = null;
         private Path repair = null;
         private boolean npeFound = false;
+        private List<String> failureOutput = Collections.emptyList();
+
+        public static ARepairResult repaired() { return new ARepairResult(Status.REPAIRED); }
+
+        public static ARepairResult notRepaired() { return new ARepairResult(Status.NOT_REPAIRED); }
+
+        public static ARepairResult error() { return new ARepairResult(Status.ERROR); }
+
+        public static ARepairResult noTests() { return new ARepairResult(Status.NO_TESTS); }
+
+        public static ARepairResult partialRepair() { return new ARepairResult(Status.PARTIAL_REPAIR); }
+
+        public static ARepairResult of(Status status) {
+            if (status == null)
+                throw new IllegalArgumentException("null status");
+            return new ARepairResult(status);
+        }
+
+        private ARepairResult(Status status) {
+            this.status = status;
+        }
+
+        public Status status() {
+            return status;
+        }
+
+        public boolean is(Status status) {
+            return this.status.equals(status);
+        }
+
+        public String name() {
+            return status.name();
+        }
 
         public String message() {
             return message;
@@ -58,10 +101,21 @@ public final class ARepair {
             return npeFound;
         }
 
+        /**
+         * @param failureOutput lines of ARepair's output reporting failures (e.g.: failing tests).
+         */
+        public void failureOutput(List<String> failureOutput) {
+            this.failureOutput = failureOutput == null?Collections.emptyList():failureOutput;
+        }
+
+        public List<String> failureOutput() {
+            return failureOutput;
+        }
+
         @Override
         public String toString() {
             String rep = "{\n\t"  + name();
-            if (!equals(NO_TESTS)) {
+            if (!is(Status.NO_TESTS)) {
                 if (hasMessage()) {
                     rep += "\n\tMessage: " + message;
                 }
@@ -101,6 +155,7 @@ public final class ARepair {
     public static final int PARTITION_NUM_DEFAULT = 10;
     public static final int MAX_TRY_PER_DEPTH_DEFAULT = 10000;
     public static final Path WORKING_DIRECTORY_DEFAULT = Paths.get("");
+    public static final long EARLY_EXIT_GRACE_DEFAULT = ProcessTerminator.DISABLED;
 
     /*
     java
@@ -139,6 +194,7 @@ public final class ARepair {
     private Path satSolvers;
     private List<Path> classpath;
     private Path workingDirectory = WORKING_DIRECTORY_DEFAULT;
+    private Path logsDirectory = WORKING_DIRECTORY_DEFAULT;
     private static final String PATCHER_CLASS = "patcher.Patcher";
     private static final String AREPAIR_HIDDEN_DIR = ".hidden";
     private static final String FIX_FILE = AREPAIR_HIDDEN_DIR + "/fix.als";
@@ -152,6 +208,7 @@ public final class ARepair {
     private int partitionNum = PARTITION_NUM_DEFAULT;
     private int maxTryPerDepth = MAX_TRY_PER_DEPTH_DEFAULT;
     private boolean treatPartialRepairsAsFixes = false;
+    private long earlyExitGrace = EARLY_EXIT_GRACE_DEFAULT;
 
 
     public ARepairResult run() {
@@ -182,14 +239,46 @@ public final class ARepair {
         this.modelToRepair = modelToRepair;
     }
 
+    public Path modelToRepair() {
+        return modelToRepair;
+    }
+
     public void testsPath(Path testsPath) {
         this.testsPath = testsPath;
     }
 
+    public Path testsPath() {
+        return testsPath;
+    }
+
+    /**
+     * @return the file where ARepair writes a fix, relative to ARepair's working directory.
+     */
+    public Path fixPath() {
+        return fixPathIn(workingDirectory);
+    }
+
+    /**
+     * @return where ARepair writes its fix when run with {@code workingDirectory} as working directory.
+     */
+    public static Path fixPathIn(Path workingDirectory) {
+        return Paths.get(workingDirectory.toAbsolutePath().toString(), FIX_FILE);
+    }
+
     public void setWorkingDirectory(Path workingDirectory) {
         this.workingDirectory = workingDirectory;
     }
 
+    /**
+     * @param logsDirectory the folder where ARepair's standard output and error logs are written, by default the
+     *                      current directory.
+     */
+    public void setLogsDirectory(Path logsDirectory) {
+        if (logsDirectory == null)
+            throw new IllegalArgumentException("null logs directory");
+        this.logsDirectory = logsDirectory;
+    }
+
     public void searchStrategyToUse(SearchStrategy searchStrategy) {
         if (searchStrategy == null)
             throw new IllegalArgumentException("null search strategy");
@@ -242,6 +331,57 @@ public final class ARepair {
         return this.treatPartialRepairsAsFixes;
     }
 
+    /**
+     * @param earlyExitGrace milliseconds to wait, once ARepair's verdict (or an exception) is printed, before destroying
+     *                       the process instead of waiting for it to exit, a negative value disables early exit.
+     */
+    public void earlyExitGrace(long earlyExitGrace) {
+        this.earlyExitGrace = earlyExitGrace;
+    }
+
+    private static final String MEMORY_SETTING = "memory";
+    private static final String SCOPE_SETTING = "scope";
+    private static final String MINIMUM_COST_SETTING = "minimumcost";
+    private static final String SEARCH_STRATEGY_SETTING = "searchstrategy";
+    private static final String ENABLE_CACHE_SETTING = "enablecache";
+    private static final String MAX_TRY_PER_HOLE_SETTING = "maxtryperhole";
+    private static final String PARTITION_NUM_SETTING = "partitionnum";
+    private static final String MAX_TRY_PER_DEPTH_SETTING = "maxtryperdepth";
+    private static final String PARTIAL_REPAIRS_AS_FIXES_SETTING = "partialrepairsasfixes";
+    private static final String EARLY_EXIT_GRACE_SETTING = "earlyexitgrace";
+
+    /**
+     * @return the settings that affect the result of a repair, without any local path, so they can be applied to an
+     * ARepair instance running on another host (see {@link ARepair#settings(Map)}).
+     */
+    public Map<String, String> settings() {
+        Map<String, String> settings = new HashMap<>();
+        settings.put(MEMORY_SETTING, Integer.toString(memory));
+        settings.put(SCOPE_SETTING, Integer.toString(scope));
+        settings.put(MINIMUM_COST_SETTING, Integer.toString(minimumCost));
+        settings.put(SEARCH_STRATEGY_SETTING, searchStrategy.name());
+        settings.put(ENABLE_CACHE_SETTING, Boolean.toString(enableCache));
+        settings.put(MAX_TRY_PER_HOLE_SETTING, Integer.toString(maxTryPerHole));
+        settings.put(PARTITION_NUM_SETTING, Integer.toString(partitionNum));
+        settings.put(MAX_TRY_PER_DEPTH_SETTING, Integer.toString(maxTryPerDepth));
+        settings.put(PARTIAL_REPAIRS_AS_FIXES_SETTING, Boolean.toString(treatPartialRepairsAsFixes));
+        settings.put(EARLY_EXIT_GRACE_SETTING, Long.toString(earlyExitGrace));
+        return settings;
+    }
+
+    public void settings(Map<String, String> settings) {
+        if (settings.containsKey(MEMORY_SETTING)) setMemory(Integer.parseInt(settings.get(MEMORY_SETTING)));
+        if (settings.containsKey(SCOPE_SETTING)) setScope(Integer.parseInt(settings.get(SCOPE_SETTING)));
+        if (settings.containsKey(MINIMUM_COST_SETTING)) setMinimumCost(Integer.parseInt(settings.get(MINIMUM_COST_SETTING)));
+        if (settings.containsKey(SEARCH_STRATEGY_SETTING)) searchStrategyToUse(SearchStrategy.valueOf(settings.get(SEARCH_STRATEGY_SETTING)));
+        if (settings.containsKey(ENABLE_CACHE_SETTING)) cache(Boolean.parseBoolean(settings.get(ENABLE_CACHE_SETTING)));
+        if (settings.containsKey(MAX_TRY_PER_HOLE_SETTING)) setMaxTryPerHole(Integer.parseInt(settings.get(MAX_TRY_PER_HOLE_SETTING)));
+        if (settings.containsKey(PARTITION_NUM_SETTING)) setPartitionNum(Integer.parseInt(settings.get(PARTITION_NUM_SETTING)));
+        if (settings.containsKey(MAX_TRY_PER_DEPTH_SETTING)) setMaxTryPerDepth(Integer.parseInt(settings.get(MAX_TRY_PER_DEPTH_SETTING)));
+        if (settings.containsKey(PARTIAL_REPAIRS_AS_FIXES_SETTING)) treatPartialRepairsAsFixes(Boolean.parseBoolean(settings.get(PARTIAL_REPAIRS_AS_FIXES_SETTING)));
+        if (settings.containsKey(EARLY_EXIT_GRACE_SETTING)) earlyExitGrace(Long.parseLong(settings.get(EARLY_EXIT_GRACE_SETTING)));
+    }
+
     public boolean cleanFixDirectory() {
         Path hiddenDir = Paths.get(workingDirectory.toAbsolutePath().toString(), AREPAIR_HIDDEN_DIR);
         try {
@@ -255,92 +395,121 @@ public final class ARepair {
 
     //AUXILIARY METHODS
 
-    private static final File aRepairStdOut = new File("aRepairExternalOutput.log");
-    private static final File aRepairStdErr = new File("aRepairExternalError.log");
+    private static final String AREPAIR_STD_OUT = "aRepairExternalOutput.log";
+    private static final String AREPAIR_STD_ERR = "aRepairExternalError.log";
     private static final String NO_FIX_FOUND = "[INFO] Cannot fix the model";
     private static final String FIX_FOUND = "[INFO] Fixed by";
     private static final String ALL_TESTS_PASS = "[INFO] All tests pass";
+    private static final String FAILURES = "fail";
+    private static final int FAILURE_LINES_LIMIT = 1000;
+
+    private static final long OUTPUT_AFTER_TERMINATION_WAIT = 1000;
+    private static final String NPE = "java.lang.NullPointerException";
 
     private ARepairResult executeARepair() {
         ARepairResult aRepairResult;
+        Process p = null;
         try {
             String[] args = getARepairCommand();
             ProcessBuilder pb = new ProcessBuilder(args);
             pb.directory(workingDirectory.toFile());
-            File errorLog = aRepairStdErr;
-            if (errorLog.exists() && !errorLog.delete())
-                throw new IllegalStateException("An error occurred while trying to delete " + errorLog);
-            pb.redirectError(ProcessBuilder.Redirect.appendTo(errorLog));
-            File outputLog = aRepairStdOut;
-            if (outputLog.exists() && !outputLog.delete())
-                throw new IllegalStateException("An error occurred while trying to delete " + outputLog);
-            pb.redirectOutput(ProcessBuilder.Redirect.appendTo(outputLog));
-            Process p = pb.start();
+            p = pb.start();
+            p.getOutputStream().close();
+            ProcessTerminator terminator = ProcessTerminator.forProcess(p, earlyExitGrace);
+            OutputMonitor output = new OutputMonitor(p.getInputStream(), OutputMonitor.TAIL_SIZE_DEFAULT)
+                    .watchContaining(NO_FIX_FOUND, NO_FIX_FOUND)
+                    .watchContaining(FIX_FOUND, FIX_FOUND)
+                    .watchContaining(ALL_TESTS_PASS, ALL_TESTS_PASS)
+                    .collect(FAILURES, line -> line.toLowerCase().contains(FAILURES), FAILURE_LINES_LIMIT);
+            //only the first exception reported in the error output is considered
+            OutputMonitor error = new OutputMonitor(p.getErrorStream(), OutputMonitor.TAIL_SIZE_DEFAULT)
+                    .watch(NPE, line -> line.trim().startsWith("Exception"));
+            if (terminator != null) {
+                //a verdict is decisive once the fix (if any) has been written, lines printed during the grace period
+                //are still classified
+                output.onMatch(verdict -> {
+                    if (verdict.equals(NO_FIX_FOUND) && !treatPartialRepairsAsFixes || fixPath().toFile().exists())
+                        terminator.schedule();
+                });
+                error.onMatch(exception -> terminator.schedule());
+            }
+            output.start("ARepair stdout monitor");
+            error.start("ARepair stderr monitor");
             int exitCode = p.waitFor();
-            if (exitCode != 0) {
-                aRepairResult = ARepairResult.ERROR;
-                aRepairResult.message("ARepair ended with exit code " + exitCode + " but no exception was caught");
+            boolean terminatedEarly = terminator != null && terminator.terminated();
+            if (terminatedEarly) {
+                //whatever was not consumed after the grace period is printed during the process' teardown
+                output.await(OUTPUT_AFTER_TERMINATION_WAIT);
+                error.await(OUTPUT_AFTER_TERMINATION_WAIT);
+            } else {
+                output.await();
+                error.await();
+            }
+            output.writeTail(logsDirectory.resolve(AREPAIR_STD_OUT));
+            error.writeTail(logsDirectory.resolve(AREPAIR_STD_ERR));
+            boolean verdictFound = output.match(NO_FIX_FOUND).isPresent() || output.match(FIX_FOUND).isPresent() || output.match(ALL_TESTS_PASS).isPresent();
+            if (exitCode != 0 && !(terminatedEarly && verdictFound)) {
+                aRepairResult = ARepairResult.error();
+                aRepairResult.message(terminatedEarly?
+                        "ARepair was terminated early after reporting an exception":
+                        "ARepair ended with exit code " + exitCode + " but no exception was caught");
                 aRepairResult.repair(null);
-                if (findNullPointerExceptionInLog(errorLog.toPath()))
+                if (error.match(NPE).map(line -> line.contains(NPE)).orElse(false))
                     aRepairResult.npeFound();
             } else {
-                aRepairResult = checkFix();
+                aRepairResult = checkFix(output.match(NO_FIX_FOUND), output.match(FIX_FOUND), output.match(ALL_TESTS_PASS));
             }
-        } catch (IOException | InterruptedException  e) {
-            aRepairResult = ARepairResult.ERROR;
+            aRepairResult.failureOutput(output.collected(FAILURES));
+        } catch (IOException e) {
+            aRepairResult = ARepairResult.error();
             aRepairResult.message("An exception was caught when executing ARepair\n" + exceptionToString(e));
+        } catch (InterruptedException e) {
+            //the run is no longer needed (e.g.: a cancelled worker request), the process is not left running
+            if (p != null)
+                p.destroyForcibly();
+            Thread.currentThread().interrupt();
+            aRepairResult = ARepairResult.error();
+            aRepairResult.message("ARepair was interrupted");
         }
         return aRepairResult;
     }
 
-    private ARepairResult checkFix() {
-        File repair = Paths.get(workingDirectory.toAbsolutePath().toString(), FIX_FILE).toFile();
+    private ARepairResult checkFix(Optional<String> fixNotFound, Optional<String> fixFound, Optional<String> allTestsPass) {
+        File repair = fixPath().toFile();
         ARepairResult result;
         if (!repair.exists()) {
-            result = ARepairResult.NOT_REPAIRED;
+            result = ARepairResult.notRepaired();
             result.message("No fix file found in " + repair);
             return result;
         }
-        Optional<String> fixNotFound;
-        Optional<String> fixFound;
-        Optional<String> allTestsPass;
-        try {
-            fixNotFound = findStringInFile(aRepairStdOut.toPath(), NO_FIX_FOUND);
-            fixFound = findStringInFile(aRepairStdOut.toPath(), FIX_FOUND);
-            allTestsPass = findStringInFile(aRepairStdOut.toPath(), ALL_TESTS_PASS);
-        } catch (IOException e) {
-            result = ARepairResult.ERROR;
-            result.message("Error while reading output log:\n" + exceptionToString(e));
-            return result;
-        }
         if (fixNotFound.isPresent() && !treatPartialRepairsAsFixes) {
-            result = ARepairResult.NOT_REPAIRED;
+            result = ARepairResult.notRepaired();
             result.message("No fix found");
         } else if (fixFound.isPresent() || allTestsPass.isPresent()) {
             if (fixNotFound.isPresent()){
-                result = ARepairResult.PARTIAL_REPAIR;
+                result = ARepairResult.partialRepair();
                 result.message("Fix is only a partial fix");
             } else if (!fixFound.isPresent()) {
-                result = ARepairResult.REPAIRED;
+                result = ARepairResult.repaired();
                 result.message("All tests passed with no modifications required");
             } else {
-                result = ARepairResult.REPAIRED;
+                result = ARepairResult.repaired();
                 String repairFoundBy = fixFound.get().replace(FIX_FOUND, "");
                 result.message("Fix found (" + repairFoundBy + ") in " + repair);
             }
             result.repair(repair.toPath());
         } else if (fixNotFound.isPresent()) {
-            result = ARepairResult.NOT_REPAIRED;
+            result = ARepairResult.notRepaired();
             result.message("No fix found");
         } else {
-            result = ARepairResult.ERROR;
+            result = ARepairResult.error();
             result.message("No 'fix found'/'fix not found' line found in ARepair's output log");
         }
         return result;
     }
 
     private boolean readyToRun() {
-        if (!isValidPath(Paths.get(workingDirectory.toString(), satSolvers.toString()), Utils.PathCheck.DIR))
+        if (!isValidPath(workingDirectory.resolve(satSolvers), Utils.PathCheck.DIR))
             return false;
         if (!isValidPath(modelToRepair, Utils.PathCheck.ALS))
             return false;
@@ -360,7 +529,7 @@ public final class ARepair {
     private String pathsInformation() {
         String pinfo = "";
         pinfo += "working directory : " + (workingDirectory==null?"NULL":workingDirectory.toAbsolutePath().toString()) + "\n";
-        pinfo += "sat-solvers path  : " + (satSolvers==null?"NULL": satSolvers + " (this directory is relative to the working directory)") + "\n";
+        pinfo += "sat-solvers path  : " + (satSolvers==null?"NULL": satSolvers + " (if relative, this directory is relative to the working directory)") + "\n";
         pinfo += "classpath         : " + (classpath==null?"NULL":classpath.stream().map(Path::toString).collect(Collectors.joining(","))) + "\n";
         pinfo += "model to repair   : " + (modelToRepair==null?"NULL":modelToRepair.toString()) + "\n";
         pinfo += "tests path        : " + (testsPath==null?"NULL":testsPath.toString()) + "\n";
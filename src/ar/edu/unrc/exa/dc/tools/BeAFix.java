@@ -2,12 +2,22 @@ package ar.edu.unrc.exa.dc.tools;
 
 import ar.edu.unrc.exa.dc.util.Utils;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static ar.edu.unrc.exa.dc.util.Utils.exceptionToString;
@@ -28,6 +38,12 @@ public final class BeAFix {
     public static final boolean FACTS_RELAXATION_DEFAULT = false;
     public static final boolean FORCE_ASSERTION_TESTS_GENERATION_DEFAULT = false;
     public static final boolean BEAFIX_NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS_DEFAULT = false;
+    public static final Path LOGS_DIRECTORY_DEFAULT = Paths.get("");
+    private static final String BEAFIX_STD_OUT = "beAFixExternalOutput.log";
+    private static final String BEAFIX_STD_ERR = "beAFixExternalError.log";
+    private static final long OUTPUT_AFTER_TERMINATION_WAIT = 1000;
+    private static final String EXCEPTION = "Exception";
+    public static final long EARLY_EXIT_GRACE_DEFAULT = ProcessTerminator.DISABLED;
 
 
     private Path beAFixJar;
@@ -46,6 +62,8 @@ public final class BeAFix {
     private boolean factsRelaxationGeneration = FACTS_RELAXATION_DEFAULT;
     private boolean forceAssertionTestsGeneration = FORCE_ASSERTION_TESTS_GENERATION_DEFAULT;
     private boolean noInstanceTestForNegativeTestWhenNoFacts = BEAFIX_NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS_DEFAULT;
+    private Path logsDirectory = LOGS_DIRECTORY_DEFAULT;
+    private long earlyExitGrace = EARLY_EXIT_GRACE_DEFAULT;
 
     public BeAFixResult runTestGeneration() {
         if (invalidPaths())
@@ -59,6 +77,21 @@ public final class BeAFix {
         return executeBeAFixCheck();
     }
 
+    /**
+     * @return a new instance with the same paths and settings as this one, so it can run at the same time as this one
+     * (on a different model).
+     */
+    public BeAFix copy() {
+        BeAFix copy = new BeAFix();
+        copy.setBeAFixJar(beAFixJar);
+        copy.pathToModel(pathToModel);
+        copy.setOutputDir(outputDirectory);
+        copy.setLogsDirectory(logsDirectory);
+        copy.createOutDirIfNonExistent(createOutDirIfNonExistent);
+        copy.settings(settings());
+        return copy;
+    }
+
     public void setBeAFixJar(Path beAFixJar) {
         this.beAFixJar = beAFixJar;
     }
@@ -67,10 +100,39 @@ public final class BeAFix {
         this.pathToModel = pathToModel;
     }
 
+    public Path pathToModel() {
+        return pathToModel;
+    }
+
     public void setOutputDir(Path outputDirectory) {
         this.outputDirectory = outputDirectory;
     }
 
+    public Path outputDirectory() {
+        return outputDirectory;
+    }
+
+    /**
+     * @return the file where BeAFix writes the result of a model check, next to the checked model.
+     */
+    public Path verificationFile() {
+        return Paths.get(pathToModel.toAbsolutePath().toString().replace(".als", ".verification"));
+    }
+
+    /**
+     * @param logsDirectory the folder where BeAFix's standard output and error logs are written, by default the
+     *                      current directory.
+     */
+    public void setLogsDirectory(Path logsDirectory) {
+        if (logsDirectory == null)
+            throw new IllegalArgumentException("null logs directory");
+        this.logsDirectory = logsDirectory;
+    }
+
+    public Path logsDirectory() {
+        return logsDirectory;
+    }
+
     public void createOutDirIfNonExistent(boolean createOutDirIfNonExistent) {
         this.createOutDirIfNonExistent = createOutDirIfNonExistent;
     }
@@ -81,6 +143,10 @@ public final class BeAFix {
         this.testsToGenerate = testsToGenerate;
     }
 
+    public int testsToGenerate() {
+        return testsToGenerate;
+    }
+
     public void aRepairCompatibility(boolean aRepairCompatibility) {
         this.aRepairCompatibility = aRepairCompatibility;
     }
@@ -117,6 +183,10 @@ public final class BeAFix {
         this.instanceTests = instanceTests;
     }
 
+    public boolean instanceTests() {
+        return instanceTests;
+    }
+
     public void buggyFunctions(Path buggyFunctions) {
         this.buggyFunctions = buggyFunctions;
     }
@@ -133,6 +203,67 @@ public final class BeAFix {
         this.noInstanceTestForNegativeTestWhenNoFacts = noInstanceTestForNegativeTestWhenNoFacts;
     }
 
+    /**
+     * @param earlyExitGrace milliseconds to wait, once BeAFix reports an exception, before destroying the process
+     *                       instead of waiting for it to exit, a negative value disables early exit.
+     */
+    public void earlyExitGrace(long earlyExitGrace) {
+        this.earlyExitGrace = earlyExitGrace;
+    }
+
+    private static final String TESTS_TO_GENERATE_SETTING = "tests";
+    private static final String AREPAIR_COMPAT_SETTING = "arepaircompat";
+    private static final String AREPAIR_COMPAT_RELAXED_SETTING = "arepaircompatrelaxed";
+    private static final String BASE_TESTS_NAME_SETTING = "basetestsname";
+    private static final String TESTS_STARTING_INDEX_SETTING = "testsstartingindex";
+    private static final String MODEL_OVERRIDES_SETTING = "modeloverrides";
+    private static final String MODEL_OVERRIDES_FOLDER_SETTING = "modeloverridesfolder";
+    private static final String INSTANCE_TESTS_SETTING = "instancetests";
+    private static final String BUGGY_FUNCTIONS_SETTING = "buggyfunctions";
+    private static final String FACTS_RELAXATION_SETTING = "factsrelaxation";
+    private static final String FORCE_ASSERTION_TESTS_SETTING = "forceassertiontests";
+    private static final String NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS_SETTING = "noinstancetestfornegativetestwhennofacts";
+    private static final String EARLY_EXIT_GRACE_SETTING = "earlyexitgrace";
+
+    /**
+     * @return the settings used to generate tests, so they can be applied to a BeAFix instance running on another host
+     * (see {@link BeAFix#settings(Map)}). The model overrides folder and buggy functions file are sent as paths, and
+     * must be available at the same location on that host.
+     */
+    public Map<String, String> settings() {
+        Map<String, String> settings = new HashMap<>();
+        settings.put(TESTS_TO_GENERATE_SETTING, Integer.toString(testsToGenerate));
+        settings.put(AREPAIR_COMPAT_SETTING, Boolean.toString(aRepairCompatibility));
+        settings.put(AREPAIR_COMPAT_RELAXED_SETTING, Boolean.toString(aRepairCompatibilityRelaxedMode));
+        settings.put(BASE_TESTS_NAME_SETTING, baseTestsName);
+        settings.put(TESTS_STARTING_INDEX_SETTING, Integer.toString(testsStartingIndex));
+        settings.put(MODEL_OVERRIDES_SETTING, Boolean.toString(modelOverrides));
+        settings.put(MODEL_OVERRIDES_FOLDER_SETTING, modelOverridesFolder == null?"":modelOverridesFolder.toString());
+        settings.put(INSTANCE_TESTS_SETTING, Boolean.toString(instanceTests));
+        settings.put(BUGGY_FUNCTIONS_SETTING, buggyFunctions == null?"":buggyFunctions.toString());
+        settings.put(FACTS_RELAXATION_SETTING, Boolean.toString(factsRelaxationGeneration));
+        settings.put(FORCE_ASSERTION_TESTS_SETTING, Boolean.toString(forceAssertionTestsGeneration));
+        settings.put(NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS_SETTING, Boolean.toString(noInstanceTestForNegativeTestWhenNoFacts));
+        settings.put(EARLY_EXIT_GRACE_SETTING, Long.toString(earlyExitGrace));
+        return settings;
+    }
+
+    public void settings(Map<String, String> settings) {
+        if (settings.containsKey(TESTS_TO_GENERATE_SETTING)) testsToGenerate(Integer.parseInt(settings.get(TESTS_TO_GENERATE_SETTING)));
+        if (settings.containsKey(AREPAIR_COMPAT_SETTING)) aRepairCompatibility(Boolean.parseBoolean(settings.get(AREPAIR_COMPAT_SETTING)));
+        if (settings.containsKey(AREPAIR_COMPAT_RELAXED_SETTING)) aRepairCompatibilityRelaxedMode(Boolean.parseBoolean(settings.get(AREPAIR_COMPAT_RELAXED_SETTING)));
+        if (settings.containsKey(BASE_TESTS_NAME_SETTING)) baseTestsName(settings.get(BASE_TESTS_NAME_SETTING));
+        if (settings.containsKey(TESTS_STARTING_INDEX_SETTING)) testsStartingIndex(Integer.parseInt(settings.get(TESTS_STARTING_INDEX_SETTING)));
+        if (settings.containsKey(MODEL_OVERRIDES_SETTING)) modelOverrides(Boolean.parseBoolean(settings.get(MODEL_OVERRIDES_SETTING)));
+        if (settings.containsKey(MODEL_OVERRIDES_FOLDER_SETTING)) modelOverridesFolder(settings.get(MODEL_OVERRIDES_FOLDER_SETTING).isEmpty()?null:Paths.get(settings.get(MODEL_OVERRIDES_FOLDER_SETTING)));
+        if (settings.containsKey(INSTANCE_TESTS_SETTING)) instanceTests(Boolean.parseBoolean(settings.get(INSTANCE_TESTS_SETTING)));
+        if (settings.containsKey(BUGGY_FUNCTIONS_SETTING)) buggyFunctions(settings.get(BUGGY_FUNCTIONS_SETTING).isEmpty()?null:Paths.get(settings.get(BUGGY_FUNCTIONS_SETTING)));
+        if (settings.containsKey(FACTS_RELAXATION_SETTING)) factsRelaxationGeneration(Boolean.parseBoolean(settings.get(FACTS_RELAXATION_SETTING)));
+        if (settings.containsKey(FORCE_ASSERTION_TESTS_SETTING)) forceAssertionTestsGeneration(Boolean.parseBoolean(settings.get(FORCE_ASSERTION_TESTS_SETTING)));
+        if (settings.containsKey(NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS_SETTING)) noInstanceTestForNegativeTestWhenNoFacts(Boolean.parseBoolean(settings.get(NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS_SETTING)));
+        if (settings.containsKey(EARLY_EXIT_GRACE_SETTING)) earlyExitGrace(Long.parseLong(settings.get(EARLY_EXIT_GRACE_SETTING)));
+    }
+
     public boolean cleanOutputDir() throws IOException {
         if (outputDirectory == null)
             throw new IllegalStateException("Output directory not defined");
@@ -149,53 +280,55 @@ public final class BeAFix {
     //AUXILIARY METHODS
 
     private BeAFixResult executeBeAFix() {
-        BeAFixResult beAFixResult;
-        try {
-            String[] args = getBeAFixCommand();
-            ProcessBuilder pb = new ProcessBuilder(args);
-            File errorLog = new File("beAFixExternalError.log");
-            if (errorLog.exists() && !errorLog.delete())
-                throw new IllegalStateException("An error occurred while trying to delete " + errorLog);
-            pb.redirectError(ProcessBuilder.Redirect.appendTo(errorLog));
-            File outputLog = new File("beAFixExternalOutput.log");
-            if (outputLog.exists() && !outputLog.delete())
-                throw new IllegalStateException("An error occurred while trying to delete " + outputLog);
-            pb.redirectOutput(ProcessBuilder.Redirect.appendTo(outputLog));
-            Process p = pb.start();
-            int exitCode = p.waitFor();
-            if (exitCode != 0) {
-                beAFixResult = BeAFixResult.error("BeAFix ended with exit code " + exitCode + " but no exception was caught");
-            } else {
-                beAFixResult = getResults();
-            }
-        } catch (IOException | InterruptedException  e) {
-            beAFixResult = BeAFixResult.error("An exception was caught when executing BeAFix\n" + exceptionToString(e));
-        }
-        return beAFixResult;
+        return execute(getBeAFixCommand(), false);
     }
 
     private BeAFixResult executeBeAFixCheck() {
+        return execute(getBeAFixCheckCommand(), true);
+    }
+
+    private BeAFixResult execute(String[] args, boolean check) {
         BeAFixResult beAFixResult;
+        Process p = null;
         try {
-            String[] args = getBeAFixCheckCommand();
             ProcessBuilder pb = new ProcessBuilder(args);
-            File errorLog = new File("beAFixExternalError.log");
-            if (errorLog.exists() && !errorLog.delete())
-                throw new IllegalStateException("An error occurred while trying to delete " + errorLog);
-            pb.redirectError(ProcessBuilder.Redirect.appendTo(errorLog));
-            File outputLog = new File("beAFixExternalOutput.log");
-            if (outputLog.exists() && !outputLog.delete())
-                throw new IllegalStateException("An error occurred while trying to delete " + outputLog);
-            pb.redirectOutput(ProcessBuilder.Redirect.appendTo(outputLog));
-            Process p = pb.start();
+            p = pb.start();
+            p.getOutputStream().close();
+            ProcessTerminator terminator = ProcessTerminator.forProcess(p, earlyExitGrace);
+            OutputMonitor output = new OutputMonitor(p.getInputStream(), OutputMonitor.TAIL_SIZE_DEFAULT);
+            OutputMonitor error = new OutputMonitor(p.getErrorStream(), OutputMonitor.TAIL_SIZE_DEFAULT)
+                    .watch(EXCEPTION, line -> line.trim().startsWith(EXCEPTION));
+            if (terminator != null)
+                error.onMatch(exception -> terminator.schedule());
+            output.start("BeAFix stdout monitor");
+            error.start("BeAFix stderr monitor");
             int exitCode = p.waitFor();
-            if (exitCode != 0) {
+            boolean terminatedEarly = terminator != null && terminator.terminated();
+            if (terminatedEarly) {
+                //whatever was not consumed after the grace period is printed during the process' teardown
+                output.await(OUTPUT_AFTER_TERMINATION_WAIT);
+                error.await(OUTPUT_AFTER_TERMINATION_WAIT);
+            } else {
+                output.await();
+                error.await();
+            }
+            output.writeTail(logsDirectory.resolve(BEAFIX_STD_OUT));
+            error.writeTail(logsDirectory.resolve(BEAFIX_STD_ERR));
+            if (terminatedEarly) {
+                beAFixResult = BeAFixResult.error("BeAFix was terminated early after reporting an exception (" + error.match(EXCEPTION).orElse("") + ")");
+            } else if (exitCode != 0) {
                 beAFixResult = BeAFixResult.error("BeAFix ended with exit code " + exitCode + " but no exception was caught");
             } else {
-                beAFixResult = BeAFixResult.check(Paths.get(pathToModel.toAbsolutePath().toString().replace(".als", ".verification")));
+                beAFixResult = check?BeAFixResult.check(verificationFile()):testGenerationResults();
             }
-        } catch (IOException | InterruptedException  e) {
+        } catch (IOException e) {
             beAFixResult = BeAFixResult.error("An exception was caught when executing BeAFix\n" + exceptionToString(e));
+        } catch (InterruptedException e) {
+            //the run is no longer needed (e.g.: a cancelled check), the process is not left running
+            if (p != null)
+                p.destroyForcibly();
+            Thread.currentThread().interrupt();
+            beAFixResult = BeAFixResult.error("BeAFix was interrupted");
         }
         return beAFixResult;
     }
@@ -203,7 +336,10 @@ public final class BeAFix {
     private static final String CE_POSTFIX = "_counterexamples.tests";
     private static final String TRUSTED_POSTFIX = "_trusted.tests";
     private static final String UNTRUSTED_POSTFIX = "_untrusted.tests";
-    private BeAFixResult getResults() {
+    /**
+     * @return the tests found in the output directory for the current model, as left by a test generation run.
+     */
+    public BeAFixResult testGenerationResults() {
         Path ceTests = Paths.get(outputDirectory.toString(), pathToModel.getFileName().toString().replace(".als", CE_POSTFIX));
         Path ttTests = Paths.get(outputDirectory.toString(), pathToModel.getFileName().toString().replace(".als", TRUSTED_POSTFIX));
         Path utTests = Paths.get(outputDirectory.toString(), pathToModel.getFileName().toString().replace(".als", UNTRUSTED_POSTFIX));
@@ -214,6 +350,77 @@ public final class BeAFix {
         return testsResults;
     }
 
+    /**
+     * Writes the tests generated by each of {@code shards} (instances that generated tests for parts of this instance's
+     * model, each one on its own output directory) to this instance's output directory, as if they were generated by
+     * this instance. Shards may use the same test indexes, the tests of each shard are renumbered to follow the tests of
+     * the previous shards, starting from this instance's starting index.
+     * @return the merged tests.
+     */
+    public BeAFixResult mergeTestGenerationResults(Collection<BeAFix> shards) throws IOException {
+        List<Integer> indexOffsets = new ArrayList<>(shards.size());
+        int nextIndex = testsStartingIndex;
+        for (BeAFix shard : shards) {
+            int indexOffset = nextIndex - shard.testsStartingIndex();
+            indexOffsets.add(indexOffset);
+            int maxIndex = -1;
+            for (String postfix : new String[]{CE_POSTFIX, TRUSTED_POSTFIX, UNTRUSTED_POSTFIX}) {
+                Path tests = Paths.get(shard.outputDirectory().toString(), shard.pathToModel().getFileName().toString().replace(".als", postfix));
+                if (!tests.toFile().exists())
+                    continue;
+                TestsFileParser.Summary summary = TestsFileParser.summarize(tests, postfix.equals(UNTRUSTED_POSTFIX)?BeAFixResult.BeAFixTest.TestType.UNTRUSTED:BeAFixResult.BeAFixTest.TestType.TRUSTED);
+                if (summary.tests() > 0)
+                    maxIndex = Math.max(maxIndex, summary.maxIndex());
+            }
+            if (maxIndex >= 0)
+                nextIndex = Math.max(nextIndex, maxIndex + indexOffset + 1);
+        }
+        byte[] separator = ("\n" + BeAFixResult.TEST_SEPARATOR + "\n").getBytes();
+        for (String postfix : new String[]{CE_POSTFIX, TRUSTED_POSTFIX, UNTRUSTED_POSTFIX}) {
+            Path merged = Paths.get(outputDirectory.toString(), pathToModel.getFileName().toString().replace(".als", postfix));
+            Files.deleteIfExists(merged);
+            Map<Path, Integer> shardTests = new LinkedHashMap<>();
+            Iterator<Integer> indexOffsetsIt = indexOffsets.iterator();
+            for (BeAFix shard : shards) {
+                int indexOffset = indexOffsetsIt.next();
+                Path tests = Paths.get(shard.outputDirectory().toString(), shard.pathToModel().getFileName().toString().replace(".als", postfix));
+                if (tests.toFile().exists())
+                    shardTests.put(tests, indexOffset);
+            }
+            if (shardTests.isEmpty())
+                continue;
+            try (FileChannel mergedChannel = FileChannel.open(merged, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                boolean first = true;
+                for (Map.Entry<Path, Integer> tests : shardTests.entrySet()) {
+                    if (!first)
+                        writeFully(mergedChannel, ByteBuffer.wrap(separator));
+                    first = false;
+                    if (tests.getValue() != 0) {
+                        String renumbered = BeAFixResult.BeAFixTest.renumber(new String(Files.readAllBytes(tests.getKey()), StandardCharsets.UTF_8), tests.getValue());
+                        writeFully(mergedChannel, ByteBuffer.wrap(renumbered.getBytes(StandardCharsets.UTF_8)));
+                        continue;
+                    }
+                    try (FileChannel testsChannel = FileChannel.open(tests.getKey(), StandardOpenOption.READ)) {
+                        long size = testsChannel.size();
+                        long transferred = 0;
+                        while (transferred < size) {
+                            long count = testsChannel.transferTo(transferred, size - transferred, mergedChannel);
+                            if (count <= 0)
+                                throw new IOException("Couldn't copy tests (" + tests.getKey() + ") into (" + merged + ")");
+                            transferred += count;
+                        }
+                    }
+                }
+            }
+        }
+        return testGenerationResults();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
     private boolean invalidPaths() {
         if (outputDirectory != null && !outputDirectory.toFile().exists() && createOutDirIfNonExistent) {
             try {
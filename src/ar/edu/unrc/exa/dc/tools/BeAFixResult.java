@@ -1,11 +1,14 @@
 package ar.edu.unrc.exa.dc.tools;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest.TestType;
 import ar.edu.unrc.exa.dc.util.OneTypePair;
@@ -13,7 +16,6 @@ import ar.edu.unrc.exa.dc.util.TestHashes;
 import ar.edu.unrc.exa.dc.util.Utils;
 
 import static ar.edu.unrc.exa.dc.util.Utils.getMaxScopeFromCommandSegments;
-import static ar.edu.unrc.exa.dc.util.Utils.isValidPath;
 
 public final class BeAFixResult {
 
@@ -21,7 +23,9 @@ public final class BeAFixResult {
 
     public enum ResultType {TESTS, CHECK, ERROR}
 
-    public static final class BeAFixTest {
+    public static final class BeAFixTest implements Serializable {
+
+        private static final long serialVersionUID = 1L;
 
         public enum TestType {TRUSTED, UNTRUSTED, INITIAL, BRANCH} //COUNTEREXAMPLE tests will be translated to TRUSTED and COUNTEREXAMPLE as source
         public enum TestSource {COUNTEREXAMPLE, PREDICATE}
@@ -40,18 +44,25 @@ public final class BeAFixResult {
         private List<BeAFixTest> branches;
         public static int NO_SCOPE = -1;
         private int maxScope = NO_SCOPE;
+        //digest of the command's expect and the predicate's body, computed on first use (0 if not yet computed)
+        private int contentHash = 0;
 
         public BeAFixTest(String test, TestType testType) {
-            if (test == null || test.trim().isEmpty())
-                throw new IllegalArgumentException("null or empty test");
+            this(predicateIn(test), commandIn(test), testType);
+        }
+
+        /**
+         * Creates a test from its already extracted predicate and command, used by {@link TestsFileParser}.
+         */
+        BeAFixTest(String predicate, String command, TestType testType) {
             if (testType == null)
                 throw new IllegalArgumentException("null test type");
             this.testType = testType;
             try {
-                parseTest(test);
+                parseTest(predicate, command);
             } catch (IllegalArgumentException | IllegalStateException e) {
                 if (testType.equals(TestType.INITIAL)) {
-                    parseTestInitialTestFallback(test);
+                    parseTestInitialTestFallback(predicate, command);
                 } else {
                     throw e;
                 }
@@ -197,17 +208,58 @@ public final class BeAFixResult {
         private static final String COMMAND_NEG_KEYWORD = "NEG";
         private static final String COMMAND_PREDICATE_KEYWORD = "PRED";
         private static final String COMMAND_COUNTEREXAMPLE_KEYWORD = "CE";
+        static final String COMMAND_KEYWORD = "run";
+        private static final Pattern NON_DIGITS = Pattern.compile("\\D+");
         //Test name should be <name>_<(PRED|CE)>_<index>_<subindex>[_<(POS|NEG>][_relTo-<ID>]
         //Initial tests can follow another naming convention
-        private void parseTest(final String test) {
-            String filteredRawTest = test.replaceAll(TEST_SEPARATOR, "");
-            this.predicate = Utils.getBetweenStrings(filteredRawTest, PREDICATE_START_DELIMITER, PREDICATE_END_DELIMITER);
+        /**
+         * @return the index of a test with {@code command}, as if the test was parsed.
+         */
+        static int indexOf(String command, TestType testType) {
+            return new BeAFixTest("", command, testType).index;
+        }
+
+        private static final Pattern NAME_INDEX = Pattern.compile("(" + COMMAND_NAME_SEPARATOR + "(?:" + COMMAND_COUNTEREXAMPLE_KEYWORD + "|" + COMMAND_PREDICATE_KEYWORD + ")" + COMMAND_NAME_SEPARATOR + ")(\\d+)(?=" + COMMAND_NAME_SEPARATOR + ")", Pattern.CASE_INSENSITIVE);
+        private static final Pattern RELATED_TO_INDEX = Pattern.compile("(" + RELATED_TO_KEYWORD + ")(\\d+)");
+        /**
+         * @return {@code tests} (the content of a tests file) with the index of every test name, and the related test
+         * ids, increased by {@code offset}.
+         */
+        static String renumber(String tests, int offset) {
+            return shiftIndexes(RELATED_TO_INDEX, shiftIndexes(NAME_INDEX, tests, offset), offset);
+        }
+
+        private static String shiftIndexes(Pattern indexPattern, String tests, int offset) {
+            Matcher matcher = indexPattern.matcher(tests);
+            StringBuffer shifted = new StringBuffer(tests.length() + 16);
+            while (matcher.find()) {
+                matcher.appendReplacement(shifted, matcher.group(1) + (Integer.parseInt(matcher.group(2)) + offset));
+            }
+            matcher.appendTail(shifted);
+            return shifted.toString();
+        }
+
+        private static String predicateIn(final String test) {
+            if (test == null || test.trim().isEmpty())
+                throw new IllegalArgumentException("null or empty test");
+            String filteredRawTest = test.replace(TEST_SEPARATOR, "");
+            String predicate = Utils.getBetweenStrings(filteredRawTest, PREDICATE_START_DELIMITER, PREDICATE_END_DELIMITER);
             if (predicate.isEmpty())
                 throw new IllegalArgumentException("Predicate not found in:\n" + filteredRawTest);
-            int runIdx = filteredRawTest.indexOf("run");
+            return predicate;
+        }
+
+        private static String commandIn(final String test) {
+            String filteredRawTest = test.replace(TEST_SEPARATOR, "");
+            int runIdx = filteredRawTest.indexOf(COMMAND_KEYWORD);
             if (runIdx < 0)
                 throw new IllegalArgumentException("Command not found in:\n" + filteredRawTest);
-            this.command = filteredRawTest.endsWith("\n")?filteredRawTest.substring(runIdx, filteredRawTest.indexOf("\n", runIdx)):filteredRawTest.substring(runIdx);
+            return filteredRawTest.endsWith("\n")?filteredRawTest.substring(runIdx, filteredRawTest.indexOf("\n", runIdx)):filteredRawTest.substring(runIdx);
+        }
+
+        private void parseTest(final String predicate, final String command) {
+            this.predicate = predicate;
+            this.command = command;
             String[] commandSegments = this.command.split(" ");
             if (commandSegments.length < 2)
                 throw new IllegalArgumentException("Command was expected to have at least 2 words, but got " + commandSegments.length + " instead ( " + Arrays.toString(commandSegments) + ")");
@@ -260,20 +312,14 @@ public final class BeAFixResult {
             this.maxScope = getMaxScopeFromCommandSegments(commandSegments);
         }
 
-        private void parseTestInitialTestFallback(final String test) {
-            String filteredRawTest = test.replaceAll(TEST_SEPARATOR, "");
-            this.predicate = Utils.getBetweenStrings(filteredRawTest, PREDICATE_START_DELIMITER, PREDICATE_END_DELIMITER);
-            if (predicate.isEmpty())
-                throw new IllegalArgumentException("Predicate not found in:\n" + filteredRawTest);
-            int runIdx = filteredRawTest.indexOf("run");
-            if (runIdx < 0)
-                throw new IllegalArgumentException("Command not found in:\n" + filteredRawTest);
-            this.command = filteredRawTest.endsWith("\n")?filteredRawTest.substring(runIdx, filteredRawTest.indexOf("\n", runIdx)):filteredRawTest.substring(runIdx);
+        private void parseTestInitialTestFallback(final String predicate, final String command) {
+            this.predicate = predicate;
+            this.command = command;
             String[] commandSegments = this.command.split(" ");
             if (commandSegments.length < 2)
                 throw new IllegalArgumentException("Command was expected to have at least 2 words, but got " + commandSegments.length + " instead ( " + Arrays.toString(commandSegments) + ")");
             String commandFullName = commandSegments[1].trim();
-            String indexRaw = commandFullName.replaceAll("\\D+","");
+            String indexRaw = NON_DIGITS.matcher(commandFullName).replaceAll("");
             this.index = Integer.parseInt(indexRaw);
             this.subIndex = 0;
             this.relatedTest = NOT_RELATED;
@@ -292,6 +338,8 @@ public final class BeAFixResult {
         }
 
         public int currentTestHashCode() {
+            if (contentHash != 0)
+                return contentHash;
             MessageDigest messageDigest;
             try {
                 messageDigest = MessageDigest.getInstance("MD5");
@@ -299,7 +347,8 @@ public final class BeAFixResult {
                 messageDigest.update(expect.getBytes());
                 messageDigest.update(getPredicateBody().getBytes());
                 byte[] digest = messageDigest.digest();
-                return Arrays.hashCode(digest);
+                contentHash = Arrays.hashCode(digest);
+                return contentHash;
             } catch (NoSuchAlgorithmException e) {
                 throw new IllegalStateException("This should not be happening!", e);
             }
@@ -374,11 +423,12 @@ public final class BeAFixResult {
     private Path utFile;
     private String message;
     private boolean check;
-    private boolean testsParsed = false;
 
+    //tests are parsed on demand, counterexample and trusted tests together since they are related to each other
     private List<BeAFixTest> ceTests;
     private List<BeAFixTest> ttTests;
     private List<BeAFixTest> utTests;
+    private boolean testsSummarized = false;
     private int maxIndex = -1;
     private ResultType resultType;
     private int generatedTests = 0;
@@ -414,8 +464,38 @@ public final class BeAFixResult {
         return parseCheckFile(checkFile);
     }
 
+    /**
+     * Combines the results of checking each property of an oracle on its own into one check result, valid if the
+     * {@code totalProperties} properties were checked and valid. The number of passing properties is only known when
+     * every property was checked.
+     * @param propertyChecks the check results of the checked properties, none of them an error.
+     */
+    public static BeAFixResult combinedCheck(Collection<BeAFixResult> propertyChecks, int totalProperties) {
+        int passing = 0;
+        for (BeAFixResult propertyCheck : propertyChecks) {
+            if (propertyCheck.checkResult())
+                passing++;
+        }
+        BeAFixResult beAFixResult = new BeAFixResult();
+        beAFixResult.resultType = ResultType.CHECK;
+        beAFixResult.check = passing == totalProperties;
+        if (beAFixResult.check) {
+            beAFixResult.message("Valid model (" + totalProperties + " properties checked separately)");
+        } else {
+            if (propertyChecks.size() == totalProperties) {
+                beAFixResult.passingProperties = passing;
+                beAFixResult.totalProperties = totalProperties;
+            }
+            beAFixResult.message("Invalid model (properties checked separately: " + propertyChecks.size() + "/" + totalProperties + ")" +
+                    " passing properties: " + beAFixResult.passingProperties + "/" + beAFixResult.totalProperties);
+        }
+        return beAFixResult;
+    }
+
     public boolean isCheck() { return this.resultType.equals(ResultType.CHECK); }
 
+    public boolean isTests() { return this.resultType.equals(ResultType.TESTS); }
+
     public boolean checkResult() {
         if (!isCheck()) {
             throw new IllegalStateException("This is not a CHECK result");
@@ -435,14 +515,30 @@ public final class BeAFixResult {
         return this.message;
     }
 
-    public int getMaxIndex() {
+    public int getMaxIndex() throws IOException {
+        summarizeTests();
         return maxIndex;
     }
 
-    public int generatedTests() {
+    public int generatedTests() throws IOException {
+        summarizeTests();
         return generatedTests;
     }
 
+    /**
+     * Counts the generated tests and gets their maximum index without parsing them.
+     */
+    public void summarizeTests() throws IOException {
+        if (testsSummarized || !isTests())
+            return;
+        for (Path testsFile : new Path[]{cetFile, ttFile, utFile}) {
+            TestsFileParser.Summary summary = TestsFileParser.summarize(testsFile, testsFile == utFile?TestType.UNTRUSTED:TestType.TRUSTED);
+            generatedTests += summary.tests();
+            maxIndex = Math.max(maxIndex, summary.maxIndex());
+        }
+        testsSummarized = true;
+    }
+
     int getMaxIndexFrom(Collection<BeAFixTest> tests) {
         int max = 0;
         for (BeAFixTest test : tests) {
@@ -465,10 +561,9 @@ public final class BeAFixResult {
     }
 
     private List<BeAFixTest> counterexampleTests = null;
-    public List<BeAFixTest> getCounterexampleTests() {
-        if (!testsParsed)
-            throw new IllegalStateException("Tests are not yet parsed (must call #parseAllTests first)");
+    public List<BeAFixTest> getCounterexampleTests() throws IOException {
         if (counterexampleTests == null) {
+            parseTrustedTests();
             counterexampleTests = new LinkedList<>(ceTests);
             for (BeAFixTest tTest : ttTests) {
                 if (tTest.testSource.equals(BeAFixTest.TestSource.COUNTEREXAMPLE))
@@ -479,10 +574,9 @@ public final class BeAFixResult {
     }
 
     private List<BeAFixTest> counterExampleUntrustedTests = null;
-    public List<BeAFixTest> getCounterExampleUntrustedTests() {
-        if (!testsParsed)
-            throw new IllegalStateException("Tests are not yet parsed (must call #parseAllTests first)");
+    public List<BeAFixTest> getCounterExampleUntrustedTests() throws IOException {
         if (counterExampleUntrustedTests == null) {
+            parseUntrustedTests();
             counterExampleUntrustedTests = new LinkedList<>();
             for (BeAFixTest utTest : utTests) {
                 if (utTest.testSource.equals(BeAFixTest.TestSource.COUNTEREXAMPLE))
@@ -493,10 +587,9 @@ public final class BeAFixResult {
     }
 
     private List<BeAFixTest> predicateTests = null;
-    public List<BeAFixTest> getPredicateTests() {
-        if (!testsParsed)
-            throw new IllegalStateException("Tests are not yet parsed (must call #parseAllTests first)");
+    public List<BeAFixTest> getPredicateTests() throws IOException {
         if (predicateTests == null) {
+            parseUntrustedTests();
             predicateTests = new LinkedList<>();
             for (BeAFixTest utTest : utTests) {
                 if (utTest.testSource.equals(BeAFixTest.TestSource.PREDICATE))
@@ -506,196 +599,155 @@ public final class BeAFixResult {
         return predicateTests;
     }
 
+    /**
+     * Parses all tests, tests are otherwise parsed when first requested.
+     */
     public void parseAllTests() throws IOException {
-        if (testsParsed)
-            throw new IllegalStateException("Tests already parsed");
-        if (!isCheck() && !error()) {
-            List<BeAFixTest> ceTests = parseCounterexampleTests();
-            List<BeAFixTest> ttTests = parseTrustedTests();
-            List<BeAFixTest> utTests = parseUntrustedTests();
-            generatedTests = ceTests.size() + ttTests.size() + utTests.size();
+        parseTrustedTests();
+        parseUntrustedTests();
+        summarizeTests();
+    }
+
+    private void parseTrustedTests() throws IOException {
+        if (!isTests())
+            throw new IllegalStateException("Tests are only available for TESTS results");
+        if (ceTests == null) {
+            List<BeAFixTest> ceTests = parseTestsFrom(cetFile, TestType.TRUSTED);
+            List<BeAFixTest> ttTests = parseTestsFrom(ttFile, TestType.TRUSTED);
             mergeRelated(ceTests, ttTests);
+            this.ceTests = ceTests;
+            this.ttTests = ttTests;
+        }
+    }
+
+    private void parseUntrustedTests() throws IOException {
+        if (!isTests())
+            throw new IllegalStateException("Tests are only available for TESTS results");
+        if (utTests == null) {
+            List<BeAFixTest> utTests = parseTestsFrom(utFile, TestType.UNTRUSTED);
             mergeRelated(utTests);
             mergeMultipleBranches(utTests);
             mergePositiveAndNegativeBranches(utTests);
-            testsParsed = true;
+            this.utTests = utTests;
         }
     }
 
-    private List<BeAFixTest> parseCounterexampleTests() throws IOException {
-        if (ceTests == null)
-            ceTests = (isCheck() || error()) ? new LinkedList<>() : parseTestsFrom(cetFile, TestType.TRUSTED);
-        maxIndex = Math.max(maxIndex, getMaxIndexFrom(ceTests));
-        return ceTests;
-    }
-
-    private List<BeAFixTest> parseTrustedTests() throws IOException {
-        if (ttTests == null)
-            ttTests = (isCheck() || error()) ? new LinkedList<>() : parseTestsFrom(ttFile, TestType.TRUSTED);
-        maxIndex = Math.max(maxIndex, getMaxIndexFrom(ttTests));
-        return ttTests;
-    }
-
-    private List<BeAFixTest> parseUntrustedTests() throws IOException {
-        if (utTests == null)
-            utTests = (isCheck() || error()) ? new LinkedList<>() : parseTestsFrom(utFile, TestType.UNTRUSTED);
-        maxIndex = Math.max(maxIndex, getMaxIndexFrom(utTests));
-        return utTests;
-    }
-
-
+    /**
+     * Links each related test in {@code tests[0]} with the first test, searching {@code tests} in order, that has the
+     * same related id and a different command; linked tests are removed from their list.
+     */
     @SafeVarargs
     private final void mergeRelated(final List<BeAFixTest>... tests) {
         if (tests == null || tests.length == 0)
             return;
-        boolean merged = true;
-        while (merged) {
-            merged = false;
-            for (int t = 0; t < tests[0].size(); t++) {
-                BeAFixTest currentTest = tests[0].get(t);
-                if (!currentTest.isRelated())
-                    continue;
-                if (currentTest.relatedBeAFixTest() != null)
-                    continue;
-                for (List<BeAFixTest> otherTests : tests) {
-                    Optional<BeAFixTest> relatedTest = searchAndRemoveRelatedTest(currentTest, otherTests);
-                    if (relatedTest.isPresent()) {
-                        currentTest.relatedBeAFixTest(relatedTest.get());
-                        merged = true;
-                        break;
-                    }
-                }
-                if (currentTest.isRelated() && !merged)
-                    throw new IllegalStateException("Related test is missing it's related BeAFixTest test");
+        Map<String, List<BeAFixTest>> relatedById = new HashMap<>();
+        for (List<BeAFixTest> someTests : tests) {
+            for (BeAFixTest test : someTests) {
+                if (test.isRelated())
+                    relatedById.computeIfAbsent(test.relatedTestID(), id -> new LinkedList<>()).add(test);
             }
         }
-    }
-
-    private void mergeMultipleBranches(List<BeAFixTest> untrustedTests) {
-        if (untrustedTests == null || untrustedTests.isEmpty())
+        if (relatedById.isEmpty())
             return;
-        boolean merged = true;
-        while (merged) {
-            merged = false;
-            for (int i = 0; i < untrustedTests.size(); i++) {
-                BeAFixTest currentTest = untrustedTests.get(i);
-                List<BeAFixTest> alternateTests = getAlternateCases(currentTest, untrustedTests);
-                if (alternateTests.size() > 1) {
-                    int branchType = BeAFixTest.MULTIBRANCH;
-                    if (currentTest.isPositiveBranch())
-                        branchType = BeAFixTest.POSITIVE_MULTIBRANCH;
-                    else if (currentTest.isNegativeBranch())
-                        branchType = BeAFixTest.NEGATIVE_MULTIBRANCH;
-                    BeAFixTest multipleBranchTest = new BeAFixTest(currentTest.testSource, alternateTests, branchType);
-                    merged = true;
-                    removeCases(untrustedTests, alternateTests);
-                    untrustedTests.add(multipleBranchTest);
+        Set<BeAFixTest> linked = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<BeAFixTest> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (BeAFixTest currentTest : tests[0]) {
+            if (!currentTest.isRelated() || linked.contains(currentTest))
+                continue;
+            BeAFixTest relatedTest = null;
+            for (BeAFixTest other : relatedById.get(currentTest.relatedTestID())) {
+                if (other != currentTest && !linked.contains(other) && currentTest.command().compareTo(other.command()) != 0) {
+                    relatedTest = other;
                     break;
                 }
             }
+            if (relatedTest == null)
+                throw new IllegalStateException("Related test is missing it's related BeAFixTest test");
+            currentTest.relatedBeAFixTest(relatedTest);
+            linked.add(currentTest);
+            linked.add(relatedTest);
+            removed.add(relatedTest);
         }
-    }
-
-    private List<BeAFixTest> getAlternateCases(BeAFixTest from, List<BeAFixTest> untrustedTests) {
-        boolean isPositive = from.isPositiveBranch();
-        boolean isNegative = from.isNegativeBranch();
-        if (!isPositive && !isNegative) {
-            return untrustedTests.stream().filter(t -> t.getIndex() == from.getIndex()).collect(Collectors.toList());
-        } else if (isPositive) {
-            return untrustedTests.stream().filter(t -> t.getIndex() == from.getIndex() && t.isPositiveBranch()).collect(Collectors.toList());
-        } else {
-            return untrustedTests.stream().filter(t -> t.getIndex() == from.getIndex() && t.isNegativeBranch()).collect(Collectors.toList());
-        }
-    }
-
-    private void removeCases(List<BeAFixTest> from, List<BeAFixTest> toRemove) {
-        Set<Integer> hashesToRemove = toRemove.stream().map(System::identityHashCode).collect(Collectors.toSet());
-        for (int i = 0; i < from.size(); i++) {
-            BeAFixTest current = from.get(i);
-            if (hashesToRemove.contains(System.identityHashCode(current))) {
-                from.remove(i);
-                i--;
-            }
+        for (List<BeAFixTest> someTests : tests) {
+            someTests.removeIf(removed::contains);
         }
     }
 
-    private void mergePositiveAndNegativeBranches(List<BeAFixTest> untrustedTests) {
+    /**
+     * Replaces the untrusted tests sharing an index and a branch polarity (positive, negative, or none) with a single
+     * multiple branch test, appended after the remaining tests. When an index has tests with no polarity, all tests
+     * of that index are merged together.
+     */
+    private void mergeMultipleBranches(List<BeAFixTest> untrustedTests) {
         if (untrustedTests == null || untrustedTests.isEmpty())
             return;
-        boolean merged = true;
-        while (merged) {
-            merged = false;
-            for (int i = 0; i < untrustedTests.size(); i++) {
-                BeAFixTest currentTest = untrustedTests.get(i);
-                if (!currentTest.isPositiveBranch())
-                    continue;
-                Optional<BeAFixTest> opNegativeBranch = searchAndRemoveBranches(currentTest, untrustedTests);
-                if (!opNegativeBranch.isPresent())
-                    throw new IllegalStateException("No negative branch for positive branch:\n" + currentTest);
-                BeAFixTest branch = new BeAFixTest(currentTest, opNegativeBranch.get());
-                untrustedTests.add(branch);
-                merged = true;
-            }
+        Set<Integer> indexesWithoutPolarity = new HashSet<>();
+        for (BeAFixTest test : untrustedTests) {
+            if (branchPolarity(test) == BeAFixTest.MULTIBRANCH)
+                indexesWithoutPolarity.add(test.getIndex());
+        }
+        Map<Long, List<BeAFixTest>> alternateCases = new LinkedHashMap<>();
+        for (BeAFixTest test : untrustedTests) {
+            int polarity = indexesWithoutPolarity.contains(test.getIndex())?BeAFixTest.MULTIBRANCH:branchPolarity(test);
+            long key = ((long) test.getIndex() << 2) | polarity;
+            alternateCases.computeIfAbsent(key, k -> new LinkedList<>()).add(test);
+        }
+        if (alternateCases.size() == untrustedTests.size())
+            return;
+        List<BeAFixTest> multipleBranchTests = new LinkedList<>();
+        Set<BeAFixTest> merged = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Long, List<BeAFixTest>> cases : alternateCases.entrySet()) {
+            List<BeAFixTest> alternateTests = cases.getValue();
+            if (alternateTests.size() < 2)
+                continue;
+            int branchType = (int) (cases.getKey() & 3);
+            multipleBranchTests.add(new BeAFixTest(alternateTests.get(0).testSource, alternateTests, branchType));
+            merged.addAll(alternateTests);
         }
+        untrustedTests.removeIf(merged::contains);
+        untrustedTests.addAll(multipleBranchTests);
     }
 
-    private Optional<BeAFixTest> searchAndRemoveBranches(BeAFixTest positiveTest, List<BeAFixTest> from) {
-        if (!positiveTest.isPositiveBranch())
-            throw new IllegalArgumentException("Positive test is not a positive test:\n" + positiveTest);
-        int positiveTestIdx = -1;
-        int negativeTestIdx = -1;
-        boolean positiveFirst = false;
-        BeAFixTest negativeTest = null;
-        for (int i = 0; i < from.size(); i++) {
-            BeAFixTest current = from.get(i);
-            if (current.isPositiveBranch() && current == positiveTest) {
-                positiveTestIdx = i;
-                positiveFirst = negativeTestIdx < 0;
-            }
-            if (current.isNegativeBranch() && current.getIndex() == positiveTest.getIndex()) {
-                negativeTestIdx = i;
-                negativeTest = current;
-            }
-        }
-        if (positiveFirst) {     //[...positiveTest...negativeTest...]
-            from.remove(positiveTestIdx);
-            from.remove(negativeTestIdx - 1);
-        } else {                //[...negativeTest...positiveTest...]
-            from.remove(negativeTestIdx);
-            from.remove(positiveTestIdx - 1);
-        }
-        return Optional.ofNullable(negativeTest);
+    private static int branchPolarity(BeAFixTest test) {
+        if (test.isPositiveBranch())
+            return BeAFixTest.POSITIVE_MULTIBRANCH;
+        if (test.isNegativeBranch())
+            return BeAFixTest.NEGATIVE_MULTIBRANCH;
+        return BeAFixTest.MULTIBRANCH;
     }
 
-    private Optional<BeAFixTest> searchAndRemoveRelatedTest(BeAFixTest test, List<BeAFixTest> from) {
-        if (!test.isRelated())
-            throw new IllegalArgumentException("test is not related to anyone");
-        for (int t = 0; t < from.size(); t++) {
-            BeAFixTest other = from.get(t);
-            if (!other.isRelated())
-                continue;
-            if (test.relatedTestID().compareTo(other.relatedTestID()) != 0)
-                continue;
-            if (test.command().compareTo(other.command()) == 0)
+    /**
+     * Replaces each positive branch test, and the negative branch test with the same index, with a single
+     * positive/negative branch test, appended after the remaining tests.
+     */
+    private void mergePositiveAndNegativeBranches(List<BeAFixTest> untrustedTests) {
+        if (untrustedTests == null || untrustedTests.isEmpty())
+            return;
+        Map<Integer, BeAFixTest> negativeBranches = new HashMap<>();
+        for (BeAFixTest test : untrustedTests) {
+            if (test.isNegativeBranch())
+                negativeBranches.put(test.getIndex(), test);
+        }
+        List<BeAFixTest> branches = new LinkedList<>();
+        Set<BeAFixTest> merged = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (BeAFixTest currentTest : untrustedTests) {
+            if (!currentTest.isPositiveBranch())
                 continue;
-            from.remove(t);
-            return Optional.of(other);
+            BeAFixTest negativeBranch = negativeBranches.remove(currentTest.getIndex());
+            if (negativeBranch == null)
+                throw new IllegalStateException("No negative branch for positive branch:\n" + currentTest);
+            branches.add(new BeAFixTest(currentTest, negativeBranch));
+            merged.add(currentTest);
+            merged.add(negativeBranch);
         }
-        return Optional.empty();
+        if (branches.isEmpty())
+            return;
+        untrustedTests.removeIf(merged::contains);
+        untrustedTests.addAll(branches);
     }
 
     static List<BeAFixTest> parseTestsFrom(Path file, TestType testType) throws IOException {
-        if (!isValidPath(file, Utils.PathCheck.TESTS))
-            throw new IllegalArgumentException("Invalid tests file: " + file.toString());
-        List<BeAFixTest> tests = new LinkedList<>();
-        String[] rawTests = Files.lines(file).collect(Collectors.joining("\n")).split(TEST_SEPARATOR);
-        for (String rawTest : rawTests) {
-            if (rawTest.trim().isEmpty())
-                continue;
-            BeAFixTest test = new BeAFixTest(rawTest, testType);
-            tests.add(test);
-        }
-        return tests;
+        return TestsFileParser.parse(file, testType);
     }
 
     private static final String INVALID = "INVALID";
@@ -755,11 +807,14 @@ public final class BeAFixResult {
                 break;
             }
             case TESTS: {
-                String ceTests = testsToString(this.ceTests);
-                String ttTests = testsToString(this.ttTests);
-                String utTests = testsToString(this.utTests);
+                String ceTests = testsToString(this.ceTests, cetFile);
+                String ttTests = testsToString(this.ttTests, ttFile);
+                String utTests = testsToString(this.utTests, utFile);
                 rep += "Message: " + message;
-                rep += "\n\tMax index for test batch: " + maxIndex;
+                if (testsSummarized) {
+                    rep += "\n\tGenerated tests: " + generatedTests;
+                    rep += "\n\tMax index for test batch: " + maxIndex;
+                }
                 rep += "\n\tCounterexample tests:\n";
                 rep += ceTests;
                 rep += "\n\tTrusted tests:\n";
@@ -777,9 +832,11 @@ public final class BeAFixResult {
         return rep;
     }
 
-    private String testsToString(List<BeAFixTest> from) {
+    private String testsToString(List<BeAFixTest> from, Path file) {
         StringBuilder rep = new StringBuilder();
-        if (from == null || from.isEmpty())
+        if (from == null) //tests not yet used are not parsed just to be shown
+            return "NOT PARSED (" + file + ")\n";
+        if (from.isEmpty())
             return "NO TESTS\n";
         for (BeAFixTest ceTest : from) {
             rep.append(ceTest.toString()).append("\n");
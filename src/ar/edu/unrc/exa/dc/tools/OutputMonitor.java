@@ -0,0 +1,175 @@
+package ar.edu.unrc.exa.dc.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Consumes the output of an external process as it is produced, in a single pass.
+ * <p>
+ * Each watched matcher records the first line (trimmed) it accepts, each collector records the first lines (trimmed)
+ * it accepts up to a limit, and only the last {@code tailSize} lines are kept for diagnostics, so the output is neither
+ * stored in full nor read more than once.
+ */
+final class OutputMonitor implements Runnable {
+
+    static final int TAIL_SIZE_DEFAULT = 200;
+
+    private final InputStream output;
+    private final int tailSize;
+    private final Map<String, Predicate<String>> matchers = new LinkedHashMap<>();
+    private final Map<String, String> matches = new ConcurrentHashMap<>();
+    private final Map<String, Predicate<String>> collectors = new LinkedHashMap<>();
+    private final Map<String, List<String>> collected = new ConcurrentHashMap<>();
+    private final Map<String, Integer> collectedLimits = new HashMap<>();
+    private final Deque<String> tail = new ArrayDeque<>();
+    private volatile long lines = 0;
+    private IOException exception = null;
+    private Thread thread = null;
+    private Consumer<String> listener = null;
+
+    OutputMonitor(InputStream output, int tailSize) {
+        if (output == null)
+            throw new IllegalArgumentException("null output");
+        if (tailSize <= 0)
+            throw new IllegalArgumentException("non positive tail size (" + tailSize + ")");
+        this.output = output;
+        this.tailSize = tailSize;
+    }
+
+    /**
+     * Records the first line accepted by {@code matcher} under {@code key}, must be called before the monitor starts.
+     */
+    OutputMonitor watch(String key, Predicate<String> matcher) {
+        if (thread != null)
+            throw new IllegalStateException("Monitor already started");
+        matchers.put(key, matcher);
+        return this;
+    }
+
+    OutputMonitor watchContaining(String key, String target) {
+        return watch(key, line -> line.contains(target));
+    }
+
+    /**
+     * Records the first {@code limit} lines accepted by {@code matcher} under {@code key}, must be called before the
+     * monitor starts.
+     */
+    OutputMonitor collect(String key, Predicate<String> matcher, int limit) {
+        if (thread != null)
+            throw new IllegalStateException("Monitor already started");
+        if (limit <= 0)
+            throw new IllegalArgumentException("non positive limit (" + limit + ")");
+        collectors.put(key, matcher);
+        collected.put(key, Collections.synchronizedList(new ArrayList<>()));
+        collectedLimits.put(key, limit);
+        return this;
+    }
+
+    /**
+     * @param listener called, from the monitor's thread, with the key of each watched matcher the first time it matches.
+     */
+    OutputMonitor onMatch(Consumer<String> listener) {
+        if (thread != null)
+            throw new IllegalStateException("Monitor already started");
+        this.listener = listener;
+        return this;
+    }
+
+    void start(String name) {
+        if (thread != null)
+            throw new IllegalStateException("Monitor already started");
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits until the whole output has been consumed.
+     */
+    void await() throws IOException, InterruptedException {
+        if (thread == null)
+            throw new IllegalStateException("Monitor not started");
+        thread.join();
+        if (exception != null)
+            throw exception;
+    }
+
+    /**
+     * Waits at most {@code timeoutMillis} for the output to be consumed, used when the process was destroyed and its
+     * output may be held open by a child process.
+     * @return {@code true} if the whole output was consumed.
+     */
+    boolean await(long timeoutMillis) throws InterruptedException {
+        if (thread == null)
+            throw new IllegalStateException("Monitor not started");
+        thread.join(Math.max(1, timeoutMillis));
+        return !thread.isAlive();
+    }
+
+    @Override
+    public void run() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(output))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                if (matches.size() < matchers.size()) {
+                    for (Map.Entry<String, Predicate<String>> matcher : matchers.entrySet()) {
+                        if (!matches.containsKey(matcher.getKey()) && matcher.getValue().test(line)) {
+                            matches.put(matcher.getKey(), line.trim());
+                            if (listener != null)
+                                listener.accept(matcher.getKey());
+                        }
+                    }
+                }
+                for (Map.Entry<String, Predicate<String>> collector : collectors.entrySet()) {
+                    List<String> collectedLines = collected.get(collector.getKey());
+                    if (collectedLines.size() < collectedLimits.get(collector.getKey()) && collector.getValue().test(line))
+                        collectedLines.add(line.trim());
+                }
+                synchronized (tail) {
+                    if (tail.size() == tailSize)
+                        tail.removeFirst();
+                    tail.addLast(line);
+                }
+            }
+        } catch (IOException e) {
+            exception = e;
+        }
+    }
+
+    Optional<String> match(String key) {
+        return Optional.ofNullable(matches.get(key));
+    }
+
+    List<String> collected(String key) {
+        List<String> collectedLines = collected.get(key);
+        if (collectedLines == null)
+            return Collections.emptyList();
+        synchronized (collectedLines) {
+            return new ArrayList<>(collectedLines);
+        }
+    }
+
+    /**
+     * Writes the kept lines to {@code log}, replacing its content.
+     */
+    void writeTail(Path log) throws IOException {
+        List<String> content;
+        synchronized (tail) {
+            content = new ArrayList<>(tail.size() + 1);
+            if (lines > tail.size())
+                content.add("[... " + (lines - tail.size()) + " lines omitted ...]");
+            content.addAll(tail);
+        }
+        Files.write(log, content);
+    }
+
+}
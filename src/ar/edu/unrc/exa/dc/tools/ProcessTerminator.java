@@ -0,0 +1,64 @@
+package ar.edu.unrc.exa.dc.tools;
+
+/**
+ * Destroys an external process a grace period after its outcome is known, instead of waiting for it to exit.
+ * <p>
+ * The grace period lets the process finish writing its output (which keeps being consumed and classified) before it
+ * is destroyed, a process that exits during the grace period is left alone.
+ */
+final class ProcessTerminator {
+
+    /**
+     * Grace period value disabling early termination.
+     */
+    static final long DISABLED = -1;
+
+    private final Process process;
+    private final long graceMillis;
+    private volatile boolean scheduled = false;
+    private volatile boolean terminated = false;
+
+    /**
+     * @return a terminator for {@code process}, or {@code null} if {@code graceMillis} is negative.
+     */
+    static ProcessTerminator forProcess(Process process, long graceMillis) {
+        if (graceMillis < 0)
+            return null;
+        return new ProcessTerminator(process, graceMillis);
+    }
+
+    private ProcessTerminator(Process process, long graceMillis) {
+        this.process = process;
+        this.graceMillis = graceMillis;
+    }
+
+    /**
+     * Schedules the process to be destroyed once the grace period ends, only the first call has any effect.
+     */
+    synchronized void schedule() {
+        if (scheduled)
+            return;
+        scheduled = true;
+        Thread killer = new Thread(() -> {
+            try {
+                Thread.sleep(graceMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (process.isAlive()) {
+                terminated = true;
+                process.destroyForcibly();
+            }
+        }, "process terminator");
+        killer.setDaemon(true);
+        killer.start();
+    }
+
+    /**
+     * @return {@code true} if the process was destroyed by this terminator.
+     */
+    boolean terminated() {
+        return terminated;
+    }
+
+}
@@ -0,0 +1,247 @@
+package ar.edu.unrc.exa.dc.tools;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest.TestType;
+import ar.edu.unrc.exa.dc.util.Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest.PREDICATE_END_DELIMITER;
+import static ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest.PREDICATE_START_DELIMITER;
+import static ar.edu.unrc.exa.dc.tools.BeAFixResult.TEST_SEPARATOR;
+
+/**
+ * Parses the tests in a BeAFix {@code .tests} file in a single pass over its bytes.
+ * <p>
+ * The file is read into a buffer (memory-mapped when it has at least {@link #MAP_THRESHOLD} bytes) where the test
+ * separators, the predicate delimiters, and the commands are located with pre-encoded byte patterns. Only the
+ * predicate and the command of each test are decoded (only the command when summarizing), the file is never turned
+ * into a single string nor split.
+ * <p>
+ * All patterns are ASCII, which makes them safe to match on UTF-8 encoded content.
+ */
+public final class TestsFileParser {
+
+    /**
+     * Size, in bytes, from which tests files are memory-mapped instead of read.
+     */
+    public static final long MAP_THRESHOLD = 1L << 20;
+
+    private static final byte[] SEPARATOR = ascii(TEST_SEPARATOR);
+    private static final byte[] START = ascii(PREDICATE_START_DELIMITER.trim());
+    private static final byte[] FINISH = ascii(PREDICATE_END_DELIMITER.trim());
+    private static final byte[] COMMAND = ascii(BeAFixTest.COMMAND_KEYWORD);
+    private static final byte NEW_LINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final Pattern LINE_BREAK = Pattern.compile("\r\n?");
+
+    /**
+     * The number of tests in a tests file, and their maximum index.
+     */
+    public static final class Summary {
+
+        private final int tests;
+        private final int maxIndex;
+
+        Summary(int tests, int maxIndex) {
+            this.tests = tests;
+            this.maxIndex = maxIndex;
+        }
+
+        public int tests() {
+            return tests;
+        }
+
+        public int maxIndex() {
+            return maxIndex;
+        }
+
+    }
+
+    private final ByteBuffer content;
+    private byte[] decodeBuffer = new byte[0];
+    //bounds of the last located test
+    private int predicateStart;
+    private int predicateEnd;
+    private int commandStart;
+    private int commandEnd;
+
+    /**
+     * @return the tests in {@code file}, in the order they appear.
+     */
+    public static List<BeAFixTest> parse(Path file, TestType testType) throws IOException {
+        TestsFileParser parser = open(file, testType);
+        List<BeAFixTest> tests = new LinkedList<>();
+        int limit = parser.content.limit();
+        int from = 0;
+        while (from >= 0) {
+            int to = parser.segmentEnd(from, limit);
+            if (parser.locate(from, to))
+                tests.add(new BeAFixTest(parser.decode(parser.predicateStart, parser.predicateEnd), parser.decode(parser.commandStart, parser.commandEnd), testType));
+            from = parser.nextSegment(to, limit);
+        }
+        return tests;
+    }
+
+    /**
+     * Counts the tests in {@code file} and gets their maximum index, only the commands are decoded.
+     */
+    public static Summary summarize(Path file, TestType testType) throws IOException {
+        TestsFileParser parser = open(file, testType);
+        int tests = 0;
+        int maxIndex = 0;
+        int limit = parser.content.limit();
+        int from = 0;
+        while (from >= 0) {
+            int to = parser.segmentEnd(from, limit);
+            if (parser.locate(from, to)) {
+                tests++;
+                maxIndex = Math.max(maxIndex, BeAFixTest.indexOf(parser.decode(parser.commandStart, parser.commandEnd), testType));
+            }
+            from = parser.nextSegment(to, limit);
+        }
+        return new Summary(tests, maxIndex);
+    }
+
+    private static TestsFileParser open(Path file, TestType testType) throws IOException {
+        if (!Utils.isValidPath(file, Utils.PathCheck.TESTS))
+            throw new IllegalArgumentException("Invalid tests file: " + (file == null?"NULL":file.toString()));
+        if (testType == null)
+            throw new IllegalArgumentException("null test type");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Tests file is too large (" + file + ", " + size + " bytes)");
+            ByteBuffer content;
+            if (size >= MAP_THRESHOLD) {
+                content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                content = ByteBuffer.allocate((int) size);
+                while (content.hasRemaining() && channel.read(content) >= 0);
+                content.flip();
+            }
+            return new TestsFileParser(content);
+        }
+    }
+
+    private TestsFileParser(ByteBuffer content) {
+        this.content = content;
+    }
+
+    /**
+     * @return the end of the test starting at {@code from}, either the next separator or {@code limit}.
+     */
+    private int segmentEnd(int from, int limit) {
+        int separator = indexOf(SEPARATOR, from, limit);
+        return separator < 0?limit:separator;
+    }
+
+    /**
+     * @return the start of the test after the one ending at {@code to}, or -1 if there are no more tests.
+     */
+    private int nextSegment(int to, int limit) {
+        return to >= limit?-1:to + SEPARATOR.length;
+    }
+
+    /**
+     * Locates the predicate and the command of the test between {@code from} and {@code to}.
+     * @return {@code false} if there is only blank space between {@code from} and {@code to}.
+     */
+    private boolean locate(int from, int to) {
+        if (isBlank(from, to))
+            return false;
+        int start = delimiter(START, from, to);
+        if (start < 0)
+            throw new IllegalArgumentException("Predicate not found in:\n" + decode(from, to));
+        predicateStart = lineEnd(start + START.length, to);
+        predicateEnd = delimiter(FINISH, predicateStart, to);
+        if (predicateEnd <= predicateStart)
+            throw new IllegalArgumentException("Predicate not found in:\n" + decode(from, to));
+        commandStart = indexOf(COMMAND, lineEnd(predicateEnd + FINISH.length, to), to);
+        if (commandStart < 0)
+            throw new IllegalArgumentException("Command not found in:\n" + decode(from, to));
+        commandEnd = commandStart;
+        while (commandEnd < to && content.get(commandEnd) != NEW_LINE && content.get(commandEnd) != CARRIAGE_RETURN)
+            commandEnd++;
+        return true;
+    }
+
+    /**
+     * @return the position of the first occurrence of {@code delimiter}, between {@code from} and {@code to}, that is
+     * followed by a line break, or -1 if there is none.
+     */
+    private int delimiter(byte[] delimiter, int from, int to) {
+        int idx = indexOf(delimiter, from, to);
+        while (idx >= 0 && lineEnd(idx + delimiter.length, to) < 0) {
+            idx = indexOf(delimiter, idx + 1, to);
+        }
+        return idx;
+    }
+
+    /**
+     * @return the position after the line break at {@code position}, or -1 if there is no line break there.
+     */
+    private int lineEnd(int position, int to) {
+        if (position >= to)
+            return -1;
+        byte current = content.get(position);
+        if (current == NEW_LINE)
+            return position + 1;
+        if (current == CARRIAGE_RETURN)
+            return (position + 1 < to && content.get(position + 1) == NEW_LINE)?position + 2:position + 1;
+        return -1;
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        byte first = pattern[0];
+        int last = to - pattern.length;
+        for (int i = from; i <= last; i++) {
+            if (content.get(i) != first)
+                continue;
+            int matched = 1;
+            while (matched < pattern.length && content.get(i + matched) == pattern[matched])
+                matched++;
+            if (matched == pattern.length)
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean isBlank(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if ((content.get(i) & 0xFF) > ' ')
+                return false;
+        }
+        return true;
+    }
+
+    private String decode(int from, int to) {
+        int length = to - from;
+        String text;
+        if (content.hasArray()) {
+            text = new String(content.array(), content.arrayOffset() + from, length, StandardCharsets.UTF_8);
+        } else {
+            if (decodeBuffer.length < length)
+                decodeBuffer = new byte[Math.max(length, decodeBuffer.length * 2)];
+            ByteBuffer view = content.duplicate();
+            view.position(from);
+            view.get(decodeBuffer, 0, length);
+            text = new String(decodeBuffer, 0, length, StandardCharsets.UTF_8);
+        }
+        //tests are kept with unix line breaks, as when they were read line by line
+        return text.indexOf(CARRIAGE_RETURN) < 0?text:LINE_BREAK.matcher(text).replaceAll("\n");
+    }
+
+    private static byte[] ascii(String pattern) {
+        return pattern.getBytes(StandardCharsets.US_ASCII);
+    }
+
+}
@@ -0,0 +1,191 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Appends an oracle to models, producing the {@code _withOracle.als} files checked by BeAFix.
+ * <p>
+ * The oracle is read once, when the merger is created, and kept in memory. Each merge copies the model with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} and then writes the separator and
+ * the oracle with a single gathering write.
+ * <p>
+ * A model can also be merged with a single property of the oracle, where the oracle's commands ({@code check} and
+ * {@code run}) other than the property's command are commented out. This is only possible when each of the oracle's
+ * commands is named and written in a single line (a line ending in {@code but}, {@code for}, {@code expect}, a comma, or
+ * an unclosed block, or followed by a line starting with one of these keywords or a comma, is part of a multi-line
+ * command), otherwise {@link #properties()} is empty.
+ */
+public final class OracleMerger {
+
+    private static final byte NEW_LINE = '\n';
+    private static final String COMMENT = "-- ";
+    private static final Pattern COMMAND = Pattern.compile("\\s*(?:[\\w$']+\\s*:\\s*)?(?:check|run)\\b.*");
+    private static final Pattern NAMED_COMMAND = Pattern.compile("\\s*(?:[\\w$']+\\s*:\\s*)?(?:check|run)\\s+[\\w/$']+.*");
+    private static final Pattern UNFINISHED_COMMAND = Pattern.compile(".*(?:\\b(?:but|for|expect|exactly)|,)\\s*");
+    private static final Pattern COMMAND_CONTINUATION = Pattern.compile("\\s*(?:(?:but|for|expect|exactly)\\b|,).*");
+    private static final Pattern LINE_COMMENT = Pattern.compile("\\s*(?:--|//).*");
+
+    private final Path oracle;
+    private final ByteBuffer oracleContent;
+    private final List<String> oracleLines;
+    private final List<String> properties;
+    private final Map<String, ByteBuffer> propertyOracles = new HashMap<>();
+
+    /**
+     * @param oracle the oracle to append to every merged model, read once by this method.
+     */
+    public static OracleMerger forOracle(Path oracle) throws IOException {
+        if (!Utils.isValidPath(oracle, Utils.PathCheck.FILE))
+            throw new IllegalArgumentException("oracle path is not valid (" + (oracle==null?"NULL":oracle.toString()) + ")");
+        return new OracleMerger(oracle, withTrailingNewLine(Files.readAllBytes(oracle)));
+    }
+
+    private OracleMerger(Path oracle, byte[] oracleContent) {
+        this.oracle = oracle;
+        this.oracleContent = ByteBuffer.wrap(oracleContent).asReadOnlyBuffer();
+        this.oracleLines = new ArrayList<>();
+        Collections.addAll(oracleLines, new String(oracleContent).split("\n", -1));
+        this.properties = commands(oracleLines);
+    }
+
+    public Path oracle() {
+        return oracle;
+    }
+
+    /**
+     * @return the oracle's commands (trimmed), in the order they appear, or an empty list if some command can't be
+     * merged on its own.
+     */
+    public List<String> properties() {
+        return properties;
+    }
+
+    private static List<String> commands(List<String> lines) {
+        Set<String> commands = new LinkedHashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (!COMMAND.matcher(line).matches())
+                continue;
+            if (!NAMED_COMMAND.matcher(line).matches() || UNFINISHED_COMMAND.matcher(line).matches() || unclosedBlock(line) || continuesOnNextLine(lines, i))
+                return Collections.emptyList();
+            commands.add(line.trim());
+        }
+        return Collections.unmodifiableList(new ArrayList<>(commands));
+    }
+
+    private static boolean unclosedBlock(String line) {
+        int depth = 0;
+        for (char c : line.toCharArray()) {
+            if (c == '{')
+                depth++;
+            else if (c == '}')
+                depth--;
+        }
+        return depth > 0;
+    }
+
+    /**
+     * @return {@code true} if the first line after {@code lines[command]} that is neither blank nor a comment continues
+     * the command (e.g.: {@code for 3} after {@code check Foo}).
+     */
+    private static boolean continuesOnNextLine(List<String> lines, int command) {
+        for (int i = command + 1; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.trim().isEmpty() || LINE_COMMENT.matcher(line).matches())
+                continue;
+            return COMMAND_CONTINUATION.matcher(line).matches();
+        }
+        return false;
+    }
+
+    /**
+     * Writes {@code model} followed by the oracle to {@code result}, which must not exist.
+     */
+    public void merge(Path model, Path result) throws IOException {
+        merge(model, result, oracleContent);
+    }
+
+    /**
+     * Writes {@code model} followed by the oracle, with every command but {@code property} commented out, to
+     * {@code result}, which must not exist.
+     * @param property one of {@link #properties()}.
+     */
+    public void merge(Path model, Path result, String property) throws IOException {
+        if (!properties.contains(property))
+            throw new IllegalArgumentException("Unknown oracle property (" + property + ")");
+        ByteBuffer propertyOracle = propertyOracles.computeIfAbsent(property, this::oracleWithOnly);
+        merge(model, result, propertyOracle);
+    }
+
+    private ByteBuffer oracleWithOnly(String property) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < oracleLines.size(); i++) {
+            String line = oracleLines.get(i);
+            if (COMMAND.matcher(line).matches() && !line.trim().equals(property))
+                content.append(COMMENT);
+            content.append(line);
+            if (i < oracleLines.size() - 1)
+                content.append((char) NEW_LINE);
+        }
+        return ByteBuffer.wrap(content.toString().getBytes()).asReadOnlyBuffer();
+    }
+
+    private void merge(Path model, Path result, ByteBuffer oracleToAppend) throws IOException {
+        if (!Utils.isValidPath(model, Utils.PathCheck.FILE))
+            throw new IllegalArgumentException("model path is not valid (" + (model==null?"NULL":model.toString()) + ")");
+        if (result == null || result.toFile().exists())
+            throw new IllegalArgumentException("result path is either null or points to an existing file (" + (result==null?"NULL":result.toString()) + ")");
+        try (FileChannel modelChannel = FileChannel.open(model, StandardOpenOption.READ);
+             FileChannel resultChannel = FileChannel.open(result, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long modelSize = modelChannel.size();
+            long transferred = 0;
+            while (transferred < modelSize) {
+                long count = modelChannel.transferTo(transferred, modelSize - transferred, resultChannel);
+                if (count <= 0)
+                    throw new IOException("Couldn't copy model (" + model + ") into (" + result + ")");
+                transferred += count;
+            }
+            ByteBuffer separator = ByteBuffer.wrap(separator(modelChannel, modelSize));
+            ByteBuffer oracleBuffer = oracleToAppend.duplicate();
+            ByteBuffer[] tail = new ByteBuffer[]{separator, oracleBuffer};
+            while (separator.hasRemaining() || oracleBuffer.hasRemaining()) {
+                resultChannel.write(tail);
+            }
+        }
+    }
+
+    /**
+     * @return the bytes separating the model from the oracle: an empty line, preceded by a new line if the model does
+     * not end with one.
+     */
+    private static byte[] separator(FileChannel modelChannel, long modelSize) throws IOException {
+        if (modelSize == 0)
+            return new byte[]{NEW_LINE};
+        ByteBuffer last = ByteBuffer.allocate(1);
+        modelChannel.read(last, modelSize - 1);
+        return last.get(0) == NEW_LINE?new byte[]{NEW_LINE}:new byte[]{NEW_LINE, NEW_LINE};
+    }
+
+    private static byte[] withTrailingNewLine(byte[] content) {
+        if (content.length > 0 && content[content.length - 1] == NEW_LINE)
+            return content;
+        byte[] fixed = new byte[content.length + 1];
+        System.arraycopy(content, 0, fixed, 0, content.length);
+        fixed[content.length] = NEW_LINE;
+        return fixed;
+    }
+
+}
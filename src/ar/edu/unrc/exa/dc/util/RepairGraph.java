@@ -1,10 +1,12 @@
 package ar.edu.unrc.exa.dc.util;
 
 import ar.edu.unrc.exa.dc.search.FixCandidate;
+import ar.edu.unrc.exa.dc.search.SessionContext;
 import ar.edu.unrc.exa.dc.tools.BeAFixResult;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -12,7 +14,9 @@ import java.util.*;
 
 import static ar.edu.unrc.exa.dc.util.Utils.*;
 
-public final class RepairGraph {
+public final class RepairGraph implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     public enum NODE_TYPE {
         ORIGINAL,
@@ -24,7 +28,8 @@ public final class RepairGraph {
         MAX_LAP,
         TEST_GENERATION,
         TIMEOUT,
-        AREPAIR_CALL
+        AREPAIR_CALL,
+        PRUNED
     }
 
     private static final String NO_TESTS_PREFIX = "NT";
@@ -37,28 +42,23 @@ public final class RepairGraph {
     private static final String TESTS_PREFIX = "TG";
     private static final String TIMEOUT_PREFIX = "TO";
     private static final String AREPAIR_PREFIX = "AR";
+    private static final String PRUNED_PREFIX = "PR";
 
-    private static boolean storeTests = false;
-    public static void storeTests(boolean storeTests) { RepairGraph.storeTests = storeTests; }
-    public static boolean storeTests() { return storeTests; }
-
-    private static final Path GRAPHS_FOLDER_DEFAULT = Paths.get("");
-    private static Path graphsFolder = GRAPHS_FOLDER_DEFAULT;
-    public static void graphsFolder(Path graphsFolder) { RepairGraph.graphsFolder = graphsFolder; }
-    public static Path graphsFolder() { return RepairGraph.graphsFolder; }
-
-    private static boolean cleanGraphsFolder = false;
-    public static void cleanGraphsFolder(boolean cleanGraphsFolder) { RepairGraph.cleanGraphsFolder = cleanGraphsFolder; }
-    public static boolean cleanGraphsFolder() { return RepairGraph.cleanGraphsFolder; }
+    private final boolean storeTests;
+    private final String graphsFolder;
 
     private static final String TESTS_FOLDER = "tests";
 
     private final Node root;
 
-    public static RepairGraph createNewGraph(FixCandidate from) {
-        return new RepairGraph(from);
+    public static RepairGraph createNewGraph(SessionContext context, FixCandidate from) {
+        return new RepairGraph(context, from);
     }
 
+    public boolean storeTests() { return storeTests; }
+
+    public Path graphsFolder() { return Paths.get(graphsFolder); }
+
     public void addARepairCall(FixCandidate candidate, Collection<BeAFixResult.BeAFixTest> globalTests) {
         String fromIdRaw = candidate.parent() == null?candidate.id():candidate.parent().id();
         String fromIdOriginal = convertCandidateIdToNodeId(fromIdRaw, NODE_TYPE.ORIGINAL);
@@ -93,6 +93,18 @@ public final class RepairGraph {
         }
     }
 
+    public void addPrunedFrom(FixCandidate candidate) {
+        String fromIdRaw = candidate.parent() == null?candidate.id():candidate.parent().id();
+        String fromIdOriginal = convertCandidateIdToNodeId(fromIdRaw, NODE_TYPE.ORIGINAL);
+        String fromIdTestGeneration = convertCandidateIdToNodeId(fromIdRaw, NODE_TYPE.TEST_GENERATION);
+        String prunedId = convertCandidateIdToNodeId(candidate.id(), NODE_TYPE.PRUNED);
+        String extraInformation = "local tests: " + candidate.trustedTests().size() + "T" + "|" + candidate.untrustedTests().size() + "U";
+        if (root.searchNode(fromIdTestGeneration).isPresent())
+            searchAndAddDescendant(fromIdTestGeneration, prunedId, NODE_TYPE.PRUNED, extraInformation);
+        else
+            searchAndAddDescendant(fromIdOriginal, prunedId, NODE_TYPE.PRUNED, extraInformation);
+    }
+
     public void addRealFixFrom(FixCandidate realFix) {
         addFix(realFix, NODE_TYPE.FIX_REAL);
     }
@@ -172,6 +184,7 @@ public final class RepairGraph {
     private static final String AREPAIR_CALL_NODE = "[shape = diamond fillcolor = yellow LABEL]";
     private static final String AREPAIR_CALL_NODE_WITH_URL = "[shape = diamond fillcolor = yellow LABEL URL]";
     private static final String TIMEOUT_NODE = "[shape = triangle fillcolor = indigo LABEL]";
+    private static final String PRUNED_NODE = "[shape = octagon fillcolor = gray LABEL]";
 
     public boolean generateDotFile(String file) {
         Path pfile = fileNameToFullPath(file);
@@ -236,6 +249,10 @@ public final class RepairGraph {
         if (!timeoutNodes.isEmpty()) {
             sb.append(generateNodeStatements(timeoutNodes, TIMEOUT_NODE, LABEL_ONLY_COMPONENT, indent));
         }
+        Collection<Node> prunedNodes = getPrunedNodes();
+        if (!prunedNodes.isEmpty()) {
+            sb.append(generateNodeStatements(prunedNodes, PRUNED_NODE, LABEL_SUB_LABEL_COMPONENT, indent));
+        }
         sb.append("\n");
         Queue<Node> queue = new LinkedList<>();
         queue.add(root);
@@ -285,7 +302,7 @@ public final class RepairGraph {
         }
         String[] args = getGraphGenerationCommand(dotFile.toString());
         ProcessBuilder pb = new ProcessBuilder(args);
-        File errorLog = new File("error.log");
+        File errorLog = fileNameToFullPath("error.log").toFile();
         pb.redirectError(ProcessBuilder.Redirect.appendTo(errorLog));
         Process p;
         try {
@@ -298,19 +315,24 @@ public final class RepairGraph {
         }
     }
 
-    private RepairGraph(FixCandidate candidate) {
+    private RepairGraph(SessionContext context, FixCandidate candidate) {
+        if (context == null)
+            throw new IllegalArgumentException("context can't be null");
         if (candidate == null)
             throw new IllegalArgumentException("candidate can't be null");
-        if (!graphsFolder().equals(GRAPHS_FOLDER_DEFAULT) && cleanGraphsFolder && Utils.isValidPath(graphsFolder, PathCheck.DIR)) {
+        this.storeTests = context.storeGraphTests();
+        Path configuredGraphsFolder = context.graphsFolder();
+        this.graphsFolder = (configuredGraphsFolder == null?context.workingDirectory():configuredGraphsFolder).toString();
+        if (configuredGraphsFolder != null && context.cleanGraphsFolder() && Utils.isValidPath(configuredGraphsFolder, PathCheck.DIR)) {
             try {
-                deleteFolderAndItsContent(graphsFolder);
+                deleteFolderAndItsContent(configuredGraphsFolder);
             } catch (IOException e) {
                 throw new IllegalStateException("An error occurred while trying to clean graphs folder");
             }
         }
-        if (!graphsFolder().equals(GRAPHS_FOLDER_DEFAULT)) {
-            if (!Utils.checkAndCreateDirectory(graphsFolder())) {
-                throw new IllegalStateException("Graphs folder (" + graphsFolder() + ") either exists and it's not empty or it couldn't be created");
+        if (configuredGraphsFolder != null) {
+            if (!Utils.checkAndCreateDirectory(configuredGraphsFolder)) {
+                throw new IllegalStateException("Graphs folder (" + configuredGraphsFolder + ") either exists and it's not empty or it couldn't be created");
             }
         }
         if (storeTests()) {
@@ -334,6 +356,7 @@ public final class RepairGraph {
             case TEST_GENERATION: return TESTS_PREFIX + originalId;
             case AREPAIR_CALL: return AREPAIR_PREFIX + originalId;
             case TIMEOUT: return TIMEOUT_PREFIX + originalId;
+            case PRUNED: return PRUNED_PREFIX + originalId;
         }
         return "N/A";
     }
@@ -382,6 +405,8 @@ public final class RepairGraph {
 
     private Collection<Node> getTimeoutNodes() { return getAllNodesOfType(NODE_TYPE.TIMEOUT); }
 
+    private Collection<Node> getPrunedNodes() { return getAllNodesOfType(NODE_TYPE.PRUNED); }
+
     private String[] getGraphGenerationCommand(String file) {
         String[] args = new String[4];
         args[0] = "dot";
@@ -461,14 +486,16 @@ public final class RepairGraph {
 
     private Path getFullTestFilePathFromId(String id) {
         String testFileName = id + ".tests";
-        return Paths.get(graphsFolder.toString(), TESTS_FOLDER, testFileName);
+        return Paths.get(graphsFolder, TESTS_FOLDER, testFileName);
     }
 
     private Path fileNameToFullPath(String fileName) {
-        return Paths.get(graphsFolder.toString(), fileName);
+        return Paths.get(graphsFolder, fileName);
     }
 
-    private static final class Node {
+    private static final class Node implements Serializable {
+
+        private static final long serialVersionUID = 1L;
         private final String id;
         private final NODE_TYPE nodeType;
         private final Map<String, Node> descendants;
@@ -555,10 +582,10 @@ public final class RepairGraph {
 
         private boolean checkDescendantRules(NODE_TYPE nodeType) {
             switch (this.nodeType) {
-                case ORIGINAL: return nodeType.equals(NODE_TYPE.AREPAIR_CALL);
+                case ORIGINAL: return nodeType.equals(NODE_TYPE.AREPAIR_CALL) || nodeType.equals(NODE_TYPE.PRUNED);
                 case FIX_FAUX_SPURIOUS:
                 case FIX_SPURIOUS: return nodeType.equals(NODE_TYPE.MAX_LAP) || nodeType.equals(NODE_TYPE.TEST_GENERATION) || nodeType.equals(NODE_TYPE.TIMEOUT);
-                case TEST_GENERATION: return nodeType.equals(NODE_TYPE.AREPAIR_CALL) || nodeType.equals(NODE_TYPE.NO_TESTS);
+                case TEST_GENERATION: return nodeType.equals(NODE_TYPE.AREPAIR_CALL) || nodeType.equals(NODE_TYPE.NO_TESTS) || nodeType.equals(NODE_TYPE.PRUNED);
                 case AREPAIR_CALL: {
                     switch (nodeType) {
                         case ORIGINAL:
@@ -567,6 +594,7 @@ public final class RepairGraph {
                         case TEST_GENERATION:
                         case MAX_LAP:
                         case NO_TESTS:
+                        case PRUNED:
                             return false;
                         case FIX_SPURIOUS:
                         case NO_FIX:
@@ -581,6 +609,7 @@ public final class RepairGraph {
                 case FIX_REAL:
                 case MAX_LAP:
                 case TIMEOUT:
+                case PRUNED:
                     return false;
             }
             return false;
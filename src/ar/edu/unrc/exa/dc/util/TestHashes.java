@@ -2,25 +2,43 @@ package ar.edu.unrc.exa.dc.util;
 
 import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.Serializable;
 
-public final class TestHashes {
+/**
+ * A set of tests, kept as the ids given to them by a {@link TestTable}.
+ */
+public final class TestHashes implements Serializable {
 
-    private final Set<Integer> hashes = new HashSet<>();
+    private static final long serialVersionUID = 1L;
+
+    private final TestTable table;
+    private final TestSet ids = new TestSet();
+
+    public TestHashes(TestTable table) {
+        if (table == null)
+            throw new IllegalArgumentException("null test table");
+        this.table = table;
+    }
 
     public boolean add(BeAFixTest test) {
-        int hash = test.currentTestHashCode();
-        return hashes.add(hash);
+        return ids.add(table.intern(test));
+    }
+
+    public boolean add(int id) {
+        return ids.add(id);
     }
 
     public boolean contains(BeAFixTest test) {
-        int hash = test.currentTestHashCode();
-        return hashes.contains(hash);
+        int id = table.idOf(test);
+        return id != TestTable.NO_ID && ids.contains(id);
+    }
+
+    public boolean contains(int id) {
+        return ids.contains(id);
     }
 
     public int count() {
-        return hashes.size();
+        return ids.size();
     }
 
 }
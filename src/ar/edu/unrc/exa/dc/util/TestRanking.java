@@ -0,0 +1,115 @@
+package ar.edu.unrc.exa.dc.util;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Counts, for each test of a session, how many times it made a candidate fix fail, either because ARepair reported it
+ * as failing or because BeAFix generated it as a counterexample of a fix rejected by the oracle.
+ * <p>
+ * Tests are ordered by descending failure count (keeping the original order between tests with the same count), so
+ * that when ARepair evaluates tests in order, the tests most likely to reject an expression are evaluated first.
+ */
+public final class TestRanking implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Pattern NOT_IDENTIFIER = Pattern.compile("[^\\w$']+");
+
+    private final TestTable table;
+    private int[] failures = new int[0]; //indexed by test id
+    private boolean ranked = false; //whether any test has failed
+
+    public TestRanking(TestTable table) {
+        if (table == null)
+            throw new IllegalArgumentException("null test table");
+        this.table = table;
+    }
+
+    /**
+     * Counts a failure for each test in {@code suite} whose name appears in {@code failureOutput} (at most one failure
+     * per test).
+     * @return the number of tests that failed.
+     */
+    public int failedIn(Collection<String> failureOutput, Collection<BeAFixTest> suite) {
+        Set<BeAFixTest> failed = failingTests(failureOutput, suite);
+        failed.forEach(this::countFailure);
+        return failed.size();
+    }
+
+    /**
+     * @return the tests in {@code suite} whose name appears in {@code failureOutput}.
+     */
+    public static Set<BeAFixTest> failingTests(Collection<String> failureOutput, Collection<BeAFixTest> suite) {
+        Set<BeAFixTest> failed = new HashSet<>();
+        if (failureOutput.isEmpty() || suite.isEmpty())
+            return failed;
+        Map<String, BeAFixTest> testsByName = new HashMap<>();
+        for (BeAFixTest test : suite) {
+            String name = nameOf(test);
+            if (name != null)
+                testsByName.put(name, test);
+        }
+        for (String line : failureOutput) {
+            for (String token : NOT_IDENTIFIER.split(line)) {
+                BeAFixTest test = testsByName.get(token);
+                if (test != null)
+                    failed.add(test);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Counts a failure for each test in {@code tests}, used for the counterexamples of a fix rejected by the oracle.
+     */
+    public void failed(Collection<BeAFixTest> tests) {
+        tests.forEach(this::countFailure);
+    }
+
+    private void countFailure(BeAFixTest test) {
+        if (test.isBranchedTest())
+            return;
+        int id = table.intern(test);
+        if (id >= failures.length)
+            failures = Arrays.copyOf(failures, Math.max(id + 1, failures.length * 2));
+        failures[id]++;
+        ranked = true;
+    }
+
+    public int failures(BeAFixTest test) {
+        int id = table.idOf(test);
+        return id == TestTable.NO_ID || id >= failures.length?0:failures[id];
+    }
+
+    /**
+     * @return {@code tests} ordered by descending failure count, ties keep their order in {@code tests}.
+     */
+    public List<BeAFixTest> order(Collection<BeAFixTest> tests) {
+        List<BeAFixTest> ordered = new ArrayList<>(tests);
+        if (!ranked || ordered.size() < 2)
+            return ordered;
+        Map<BeAFixTest, Integer> counts = new HashMap<>();
+        for (BeAFixTest test : ordered)
+            counts.put(test, failures(test));
+        ordered.sort(Comparator.comparing(counts::get, Comparator.reverseOrder()));
+        return ordered;
+    }
+
+    private static String nameOf(BeAFixTest test) {
+        String[] commandSegments = test.command().split(" ");
+        return commandSegments.length < 2?null:commandSegments[1].trim();
+    }
+
+}
@@ -0,0 +1,175 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of test ids (as given by a {@link TestTable}) kept as a plain bitset, one bit per id.
+ * <p>
+ * Since ids are dense, union, difference, subset and equality checks are done a word (64 ids) at a time.
+ */
+public final class TestSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long[] NO_WORDS = new long[0];
+
+    private long[] words;
+    private int usedWords; //words after this one are all zero
+
+    public TestSet() {
+        words = NO_WORDS;
+        usedWords = 0;
+    }
+
+    private TestSet(long[] words, int usedWords) {
+        this.words = words;
+        this.usedWords = usedWords;
+    }
+
+    public TestSet copy() {
+        return new TestSet(Arrays.copyOf(words, usedWords), usedWords);
+    }
+
+    /**
+     * @return {@code true} if {@code id} was not already in this set.
+     */
+    public boolean add(int id) {
+        if (id < 0)
+            throw new IllegalArgumentException("negative test id (" + id + ")");
+        int word = id >>> 6;
+        ensureCapacity(word + 1);
+        long bit = 1L << id;
+        boolean added = (words[word] & bit) == 0;
+        words[word] |= bit;
+        usedWords = Math.max(usedWords, word + 1);
+        return added;
+    }
+
+    public boolean contains(int id) {
+        if (id < 0)
+            return false;
+        int word = id >>> 6;
+        return word < usedWords && (words[word] & (1L << id)) != 0;
+    }
+
+    /**
+     * Adds all tests in {@code other} to this set.
+     * @return {@code true} if this set changed.
+     */
+    public boolean addAll(TestSet other) {
+        ensureCapacity(other.usedWords);
+        boolean changed = false;
+        for (int i = 0; i < other.usedWords; i++) {
+            long union = words[i] | other.words[i];
+            changed |= union != words[i];
+            words[i] = union;
+        }
+        usedWords = Math.max(usedWords, other.usedWords);
+        return changed;
+    }
+
+    /**
+     * Removes all tests in {@code other} from this set.
+     * @return {@code true} if this set changed.
+     */
+    public boolean removeAll(TestSet other) {
+        int common = Math.min(usedWords, other.usedWords);
+        boolean changed = false;
+        for (int i = 0; i < common; i++) {
+            long difference = words[i] & ~other.words[i];
+            changed |= difference != words[i];
+            words[i] = difference;
+        }
+        trim();
+        return changed;
+    }
+
+    /**
+     * @return {@code true} if every test in this set is also in {@code other}.
+     */
+    public boolean isSubsetOf(TestSet other) {
+        if (usedWords > other.usedWords)
+            return false;
+        for (int i = 0; i < usedWords; i++) {
+            if ((words[i] & ~other.words[i]) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return usedWords == 0;
+    }
+
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < usedWords; i++)
+            size += Long.bitCount(words[i]);
+        return size;
+    }
+
+    /**
+     * Calls {@code action} on each id in this set, in increasing order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < usedWords; i++) {
+            long word = words[i];
+            while (word != 0) {
+                action.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * @return the ids in this set, in increasing order.
+     */
+    public int[] ids() {
+        int[] ids = new int[size()];
+        int[] count = {0};
+        forEach(id -> ids[count[0]++] = id);
+        return ids;
+    }
+
+    private void ensureCapacity(int wordsNeeded) {
+        if (words.length < wordsNeeded)
+            words = Arrays.copyOf(words, Math.max(wordsNeeded, words.length * 2));
+    }
+
+    private void trim() {
+        while (usedWords > 0 && words[usedWords - 1] == 0)
+            usedWords--;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof TestSet))
+            return false;
+        TestSet otherSet = (TestSet) other;
+        if (usedWords != otherSet.usedWords)
+            return false;
+        for (int i = 0; i < usedWords; i++) {
+            if (words[i] != otherSet.words[i])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = 1234;
+        for (int i = usedWords; --i >= 0; )
+            hash ^= words[i] * (i + 1);
+        return (int) ((hash >> 32) ^ hash);
+    }
+
+    @Override
+    public String toString() {
+        return "TestSet(" + size() + ")";
+    }
+
+}
@@ -0,0 +1,144 @@
+package ar.edu.unrc.exa.dc.util;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Writes the tests file used by each ARepair call of a search from pre-encoded blocks.
+ * <p>
+ * A tests file is made of a head (a new line and, when prepended, the initial tests), the global trusted tests, the
+ * candidate's untrusted and trusted tests, and, when appended, the initial tests. The initial tests are encoded once,
+ * the global tests are encoded as they are added to the global set, and only the candidate's tests are encoded on
+ * every call. Since the head and the global tests only grow at their end, the previous file is truncated after them
+ * and only the new global tests, the candidate's tests, and the appended initial tests are written. If the global tests
+ * are reordered, or some are removed, the global block is encoded again and the whole file is written.
+ */
+public final class TestSuiteMaterializer {
+
+    private static final class Block extends ByteArrayOutputStream {
+
+        private int tests = 0;
+
+        private ByteBuffer from(int offset) {
+            return ByteBuffer.wrap(buf, offset, count - offset);
+        }
+
+        private int encode(Collection<BeAFixTest> toEncode) throws IOException {
+            TestsFileWriter writer = TestsFileWriter.to(Channels.newChannel(this));
+            try {
+                int encoded = writer.writeAll(toEncode);
+                tests += encoded;
+                return encoded;
+            } finally {
+                writer.close();
+            }
+        }
+
+    }
+
+    private final Path output;
+    private final Block head = new Block();
+    private final Block tail = new Block();
+    private final Block global = new Block();
+    private final List<BeAFixTest> encodedGlobalTests = new ArrayList<>();
+    /**
+     * Length of the global block already present in the tests file, or -1 if the file must be written from scratch.
+     */
+    private int writtenGlobal = -1;
+
+    /**
+     * @param output              the tests file to write.
+     * @param initialTests        the initial tests, included in every tests file.
+     * @param prependInitialTests whether initial tests go before (or after) the rest of the tests.
+     */
+    public TestSuiteMaterializer(Path output, Collection<BeAFixTest> initialTests, boolean prependInitialTests) throws IOException {
+        if (output == null)
+            throw new IllegalArgumentException("output path is null");
+        this.output = output;
+        Collection<BeAFixTest> initial = initialTests == null?Collections.<BeAFixTest>emptyList():initialTests;
+        head.write('\n');
+        (prependInitialTests?head:tail).encode(initial);
+    }
+
+    public Path output() {
+        return output;
+    }
+
+    /**
+     * Writes the tests file for a candidate.
+     * @param globalTests    the global trusted tests, expected to only grow (at their end) between calls.
+     * @param untrustedTests the candidate's untrusted tests.
+     * @param trustedTests   the candidate's trusted tests.
+     * @return the number of tests in the file, including related tests.
+     */
+    public int materialize(Collection<BeAFixTest> globalTests, Collection<BeAFixTest> untrustedTests, Collection<BeAFixTest> trustedTests) throws IOException {
+        updateGlobal(globalTests);
+        Block candidate = new Block();
+        candidate.encode(untrustedTests);
+        candidate.encode(trustedTests);
+        boolean incremental = writtenGlobal >= 0 && output.toFile().isFile();
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer[] blocks;
+            if (incremental && channel.size() >= head.size() + writtenGlobal) {
+                channel.truncate(head.size() + writtenGlobal);
+                channel.position(head.size() + writtenGlobal);
+                blocks = new ByteBuffer[]{global.from(writtenGlobal), candidate.from(0), tail.from(0)};
+            } else {
+                channel.truncate(0);
+                blocks = new ByteBuffer[]{head.from(0), global.from(0), candidate.from(0), tail.from(0)};
+            }
+            writeFully(channel, blocks);
+        } catch (IOException e) {
+            writtenGlobal = -1;
+            throw e;
+        }
+        writtenGlobal = global.size();
+        return head.tests + global.tests + candidate.tests + tail.tests;
+    }
+
+    private void updateGlobal(Collection<BeAFixTest> globalTests) throws IOException {
+        Iterator<BeAFixTest> globalTestsIt = globalTests.iterator();
+        boolean grown = globalTests.size() >= encodedGlobalTests.size();
+        for (int i = 0; grown && i < encodedGlobalTests.size(); i++) {
+            grown = encodedGlobalTests.get(i).equals(globalTestsIt.next());
+        }
+        if (!grown) {
+            //the encoded tests are no longer a prefix of the global tests (they were reordered or some were removed)
+            global.reset();
+            global.tests = 0;
+            encodedGlobalTests.clear();
+            writtenGlobal = -1;
+            globalTestsIt = globalTests.iterator();
+        }
+        if (!globalTestsIt.hasNext())
+            return;
+        List<BeAFixTest> newTests = new LinkedList<>();
+        globalTestsIt.forEachRemaining(newTests::add);
+        encodedGlobalTests.addAll(newTests);
+        global.encode(newTests);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer[] blocks) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer block : blocks) {
+            remaining += block.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(blocks);
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+package ar.edu.unrc.exa.dc.util;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Removes duplicated and subsumed tests from the tests used by an ARepair call, the full test suite is still enforced
+ * by BeAFix when checking a fix against the oracle.
+ * <p>
+ * A test is a duplicate of another when both are equal (same predicate body and expected result). Subsumption is only
+ * checked for instance tests of the form
+ * <pre>
+ * pred name[] {
+ *     some disj A0, A1, ... : Sig | {
+ *         rel = tuples
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * where every line of the inner block is an equality (or {@code no rel}), and thus a conjunct. Between two such tests
+ * with the same quantifier, the same scope, and the same expected result, if they expect an instance (1) the test with a subset of the
+ * other's conjuncts is subsumed (the other test being satisfied implies it is satisfied), if they expect no instance (0)
+ * the test with a superset of the other's conjuncts is subsumed. Tests with a related test are never removed.
+ * <p>
+ * Global tests are reduced incrementally: a new global test is only removed if it's subsumed by a kept global test, but
+ * kept global tests are never removed afterwards. This way the reduced global tests only grow, as expected by
+ * {@link TestSuiteMaterializer}. A candidate's tests are reduced against the kept global tests and against each other.
+ */
+public final class TestSuiteReducer {
+
+    private static final String EXPECT_KEYWORD = "expect";
+    private static final String EXPECT_INSTANCE = "1";
+    private static final String EXPECT_NO_INSTANCE = "0";
+    private static final Pattern SCOPE = Pattern.compile("\\bfor\\b.*");
+    private static final Pattern CONJUNCT = Pattern.compile("no\\s+[\\w/$'.]+|[\\w/$'.]+\\s*=\\s*[^{}=]+");
+
+    /**
+     * The tests to use in an ARepair call after reduction.
+     */
+    public static final class Reduction {
+
+        private final Collection<BeAFixTest> globalTests;
+        private final List<BeAFixTest> untrustedTests;
+        private final List<BeAFixTest> trustedTests;
+        private final int removedTests;
+
+        private Reduction(Collection<BeAFixTest> globalTests, List<BeAFixTest> untrustedTests, List<BeAFixTest> trustedTests, int removedTests) {
+            this.globalTests = globalTests;
+            this.untrustedTests = untrustedTests;
+            this.trustedTests = trustedTests;
+            this.removedTests = removedTests;
+        }
+
+        public Collection<BeAFixTest> globalTests() { return globalTests; }
+
+        public List<BeAFixTest> untrustedTests() { return untrustedTests; }
+
+        public List<BeAFixTest> trustedTests() { return trustedTests; }
+
+        public int removedTests() { return removedTests; }
+
+    }
+
+    private static final class Signature {
+
+        private final String expect;
+        private final String scope;
+        private final String quantifier;
+        private final Set<String> conjuncts;
+
+        private Signature(String expect, String scope, String quantifier, Set<String> conjuncts) {
+            this.expect = expect;
+            this.scope = scope;
+            this.quantifier = quantifier;
+            this.conjuncts = conjuncts;
+        }
+
+        private String bucket() {
+            return expect + scope + quantifier;
+        }
+
+        /**
+         * @return {@code true} if a test with this signature being satisfied implies that a test with {@code other}'s
+         * signature is satisfied.
+         */
+        private boolean subsumes(Signature other) {
+            //(un)satisfiability at one scope says nothing about another scope
+            if (!expect.equals(other.expect) || !scope.equals(other.scope) || !quantifier.equals(other.quantifier))
+                return false;
+            return expect.equals(EXPECT_INSTANCE)?conjuncts.containsAll(other.conjuncts):other.conjuncts.containsAll(conjuncts);
+        }
+
+    }
+
+    /**
+     * Kept tests, indexed to look for duplicates and subsuming tests.
+     */
+    private static final class Kept {
+
+        private final Set<BeAFixTest> tests = new HashSet<>();
+        private final Map<String, List<Signature>> signatures = new HashMap<>();
+
+        private boolean covers(BeAFixTest test, Signature signature) {
+            if (tests.contains(test))
+                return true;
+            if (signature == null)
+                return false;
+            for (Signature kept : signatures.getOrDefault(signature.bucket(), Collections.emptyList())) {
+                if (kept.subsumes(signature))
+                    return true;
+            }
+            return false;
+        }
+
+        private void add(BeAFixTest test, Signature signature) {
+            tests.add(test);
+            if (signature != null)
+                signatures.computeIfAbsent(signature.bucket(), b -> new LinkedList<>()).add(signature);
+        }
+
+    }
+
+    private final Kept keptGlobal = new Kept();
+    private final List<BeAFixTest> reducedGlobalTests = new ArrayList<>();
+    private final Set<BeAFixTest> seenGlobalTests = new HashSet<>();
+    private int removedGlobalTests = 0;
+
+    /**
+     * Reduces the tests for an ARepair call.
+     * @param globalTests    the global trusted tests, expected to only grow between calls.
+     * @param untrustedTests the candidate's untrusted tests.
+     * @param trustedTests   the candidate's trusted tests.
+     */
+    public Reduction reduce(Collection<BeAFixTest> globalTests, Collection<BeAFixTest> untrustedTests, Collection<BeAFixTest> trustedTests) {
+        for (BeAFixTest test : globalTests) {
+            if (!seenGlobalTests.add(test))
+                continue;
+            Signature signature = signatureOf(test);
+            if (!test.isRelated() && keptGlobal.covers(test, signature)) {
+                removedGlobalTests++;
+            } else {
+                keptGlobal.add(test, signature);
+                reducedGlobalTests.add(test);
+            }
+        }
+        Kept keptLocal = new Kept();
+        int[] removedLocal = {0};
+        List<BeAFixTest> reducedUntrusted = reduceLocal(untrustedTests, keptLocal, removedLocal);
+        List<BeAFixTest> reducedTrusted = reduceLocal(trustedTests, keptLocal, removedLocal);
+        return new Reduction(Collections.unmodifiableList(reducedGlobalTests), reducedUntrusted, reducedTrusted, removedGlobalTests + removedLocal[0]);
+    }
+
+    private List<BeAFixTest> reduceLocal(Collection<BeAFixTest> tests, Kept keptLocal, int[] removed) {
+        List<BeAFixTest> reduced = new LinkedList<>();
+        for (BeAFixTest test : tests) {
+            Signature signature = signatureOf(test);
+            if (!test.isRelated() && (keptGlobal.covers(test, signature) || keptLocal.covers(test, signature))) {
+                removed[0]++;
+            } else {
+                keptLocal.add(test, signature);
+                reduced.add(test);
+            }
+        }
+        return reduced;
+    }
+
+    /**
+     * @return the signature of {@code test}, or {@code null} if it doesn't have the form of an instance test.
+     */
+    private static Signature signatureOf(BeAFixTest test) {
+        String command = test.command();
+        int expectIdx = command.indexOf(EXPECT_KEYWORD);
+        if (expectIdx < 0)
+            return null;
+        String expect = command.substring(expectIdx + EXPECT_KEYWORD.length()).trim();
+        if (!expect.equals(EXPECT_INSTANCE) && !expect.equals(EXPECT_NO_INSTANCE))
+            return null;
+        Matcher scopeMatcher = SCOPE.matcher(command.substring(0, expectIdx));
+        String scope = scopeMatcher.find()?scopeMatcher.group().trim().replaceAll("\\s+", " "):"";
+        String predicate = test.predicate();
+        int bodyStart = predicate.indexOf('{');
+        if (bodyStart < 0)
+            return null;
+        List<String> lines = new ArrayList<>();
+        for (String line : predicate.substring(bodyStart + 1).split("\n")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty())
+                lines.add(trimmed);
+        }
+        if (lines.size() < 3)
+            return null;
+        String quantifier = lines.get(0);
+        if (!quantifier.endsWith("{") || !quantifier.contains("|") || quantifier.indexOf('{') != quantifier.length() - 1)
+            return null;
+        if (!lines.get(lines.size() - 1).equals("}") || !lines.get(lines.size() - 2).equals("}"))
+            return null;
+        List<String> conjuncts = lines.subList(1, lines.size() - 2);
+        for (String conjunct : conjuncts) {
+            if (!CONJUNCT.matcher(conjunct).matches())
+                return null;
+        }
+        return new Signature(expect, scope, quantifier, new HashSet<>(conjuncts));
+    }
+
+}
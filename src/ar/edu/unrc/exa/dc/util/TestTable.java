@@ -0,0 +1,89 @@
+package ar.edu.unrc.exa.dc.util;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Session wide table of the tests used by a search, where each distinct test is stored once and identified by a
+ * dense id (0, 1, 2, ...).
+ * <p>
+ * Two tests are the same if they have the same type and are equal (as in {@link BeAFixTest#equals(Object)}), the
+ * first interned test is the one kept by the table. Branching tests can't be interned, only their branches.
+ */
+public final class TestTable implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int NO_ID = -1;
+
+    private final List<BeAFixTest> tests = new ArrayList<>();
+    private final Map<Long, Integer> ids = new HashMap<>();
+
+    /**
+     * @return the id of {@code test}, adding it to the table if it's not already there.
+     */
+    public int intern(BeAFixTest test) {
+        Long key = key(test);
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = tests.size();
+            tests.add(test);
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of {@code test}, or {@link #NO_ID} if it's not in the table.
+     */
+    public int idOf(BeAFixTest test) {
+        Integer id = ids.get(key(test));
+        return id == null?NO_ID:id;
+    }
+
+    public BeAFixTest test(int id) {
+        if (id < 0 || id >= tests.size())
+            throw new IllegalArgumentException("Invalid test id (" + id + "), table has " + tests.size() + " tests");
+        return tests.get(id);
+    }
+
+    /**
+     * @return an unmodifiable list of the tests in {@code testSet}, resolved on access.
+     */
+    public List<BeAFixTest> tests(TestSet testSet) {
+        if (testSet == null || testSet.isEmpty())
+            return Collections.emptyList();
+        int[] testIds = testSet.ids();
+        return new AbstractList<BeAFixTest>() {
+            @Override
+            public BeAFixTest get(int index) {
+                return test(testIds[index]);
+            }
+
+            @Override
+            public int size() {
+                return testIds.length;
+            }
+        };
+    }
+
+    public int size() {
+        return tests.size();
+    }
+
+    private static Long key(BeAFixTest test) {
+        if (test == null)
+            throw new IllegalArgumentException("null test");
+        if (test.isBranchedTest())
+            throw new IllegalArgumentException("Branching tests can't be interned, only their branches");
+        return ((long) test.testType().ordinal() << Integer.SIZE) | (test.hashCode() & 0xFFFFFFFFL);
+    }
+
+}
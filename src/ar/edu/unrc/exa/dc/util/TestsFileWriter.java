@@ -0,0 +1,154 @@
+package ar.edu.unrc.exa.dc.util;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * Writes tests, in the format used by ARepair's tests files, through a single channel.
+ * <p>
+ * Tests are encoded directly into a reusable buffer that is only written to the channel when full, and when the writer
+ * is flushed or closed, so writing a suite costs one open and close, and a handful of writes, regardless of its size.
+ * A writer is not thread safe.
+ */
+public final class TestsFileWriter implements Closeable {
+
+    public static final int BUFFER_SIZE_DEFAULT = 64 * 1024;
+    private static final String TEST_TYPE_PREFIX = "--";
+    private static final String NEW_LINE = "\n";
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+    private int testCount = 0;
+
+    /**
+     * @return a writer for {@code output}, which must not exist.
+     */
+    public static TestsFileWriter create(Path output) throws IOException {
+        return new TestsFileWriter(FileChannel.open(output, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), BUFFER_SIZE_DEFAULT);
+    }
+
+    /**
+     * @return a writer appending to {@code output}, which must exist.
+     */
+    public static TestsFileWriter append(Path output) throws IOException {
+        return new TestsFileWriter(FileChannel.open(output, StandardOpenOption.APPEND, StandardOpenOption.WRITE), BUFFER_SIZE_DEFAULT);
+    }
+
+    /**
+     * @return a writer encoding tests to {@code channel}, which is closed when the writer is closed.
+     */
+    public static TestsFileWriter to(WritableByteChannel channel) {
+        if (channel == null)
+            throw new IllegalArgumentException("null channel");
+        return new TestsFileWriter(channel, BUFFER_SIZE_DEFAULT);
+    }
+
+    private TestsFileWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        //same replacement behaviour as String#getBytes()
+        this.encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Writes {@code test}, followed by its related test if it has one.
+     * @return the number of tests written (1 or 2).
+     */
+    public int write(BeAFixTest test) throws IOException {
+        int written = writeSingle(test);
+        if (test.isRelated())
+            written += writeSingle(test.relatedBeAFixTest());
+        return written;
+    }
+
+    /**
+     * Writes every test in {@code tests}, and their related tests.
+     * @return the number of tests written.
+     */
+    public int writeAll(Collection<BeAFixTest> tests) throws IOException {
+        int written = 0;
+        for (BeAFixTest test : tests) {
+            written += write(test);
+        }
+        return written;
+    }
+
+    public void newLine() throws IOException {
+        encode(NEW_LINE);
+    }
+
+    /**
+     * @return the number of tests written so far by this writer.
+     */
+    public int testCount() {
+        return testCount;
+    }
+
+    private int writeSingle(BeAFixTest test) throws IOException {
+        encode(TEST_TYPE_PREFIX);
+        encode(test.testType().toString());
+        encode(NEW_LINE);
+        encode(test.predicate());
+        encode(NEW_LINE);
+        encode(test.command());
+        encode(NEW_LINE);
+        testCount++;
+        return 1;
+    }
+
+    private void encode(CharSequence chars) throws IOException {
+        CharBuffer in = CharBuffer.wrap(chars);
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, true);
+            if (result.isUnderflow())
+                break;
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                result.throwException();
+            }
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+        encoder.reset();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
@@ -1,8 +1,11 @@
 package ar.edu.unrc.exa.dc.util;
 
+import java.io.Serializable;
 import java.util.concurrent.TimeUnit;
 
-public class TimeCounter {
+public class TimeCounter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private boolean running = false;
     private long time = 0;
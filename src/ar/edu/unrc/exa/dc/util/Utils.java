@@ -13,9 +13,9 @@ import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
 import java.util.LinkedList;
-import java.util.Optional;
 import java.util.Random;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 import static ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest.NO_SCOPE;
 
@@ -75,23 +75,16 @@ public final class Utils {
         }
     }
 
+    /**
+     * Writes {@code a} followed by {@code b} to {@code result}, use an {@link OracleMerger} when merging several models
+     * with the same oracle.
+     */
     public static void mergeFiles(Path a, Path b, Path result) throws IOException {
         if (!isValidPath(a, PathCheck.FILE))
             throw new IllegalArgumentException("first path is not valid (" + (a==null?"NULL":a.toString()) + ")");
-        if (!isValidPath(a, PathCheck.FILE))
+        if (!isValidPath(b, PathCheck.FILE))
             throw new IllegalArgumentException("second path is not valid (" + (b==null?"NULL":b.toString()) + ")");
-        if (result == null || result.toFile().exists())
-            throw new IllegalArgumentException("result path is either null or points to an existing file (" + (result==null?"NULL":result.toString()) + ")");
-        File rFile = result.toFile();
-        if (!rFile.createNewFile())
-            throw new Error("Couldn't create result file (" + (result) + ")");
-        for (String aLine : Files.readAllLines(a)) {
-            Files.write(result, (aLine + "\n").getBytes(), StandardOpenOption.APPEND);
-        }
-        Files.write(result, "\n".getBytes(), StandardOpenOption.APPEND);
-        for (String bLine : Files.readAllLines(b)) {
-            Files.write(result, (bLine + "\n").getBytes(), StandardOpenOption.APPEND);
-        }
+        OracleMerger.forOracle(b).merge(a, result);
     }
 
     public static int generateTestsFile(Collection<BeAFixTest> tests, Path output) throws IOException {
@@ -99,7 +92,6 @@ public final class Utils {
     }
 
     public static int writeTestsToFile(Collection<BeAFixTest> tests, Path output, boolean newFile) throws IOException {
-        int testCount = 0;
         if (tests == null || tests.isEmpty())
             throw new IllegalArgumentException("null or empty tests");
         if (output == null)
@@ -108,25 +100,10 @@ public final class Utils {
             throw new IllegalArgumentException("output path point to an existing file while newFile mode is used (" + output + ")");
         if (!newFile && !output.toFile().exists())
             throw new IllegalArgumentException("output path points to a non existing file while append mode (!newFile) is used (" + output + ")");
-        File testsFile = output.toFile();
-        if (newFile && !testsFile.createNewFile()) {
-            throw new Error("Couldn't create tests file (" + (testsFile) + ")");
-        }
-        Files.write(output, "\n".getBytes(), StandardOpenOption.APPEND);
-        for (BeAFixTest test : tests) {
-            Files.write(output, ("--" + test.testType().toString() + "\n" + test.predicate() + "\n" + test.command() + "\n").getBytes(), StandardOpenOption.APPEND);
-            testCount++;
-            if (test.isRelated()) {
-                Files.write(output,
-                        ("--" + test.relatedBeAFixTest().testType().toString() + "\n" +
-                                test.relatedBeAFixTest().predicate() + "\n" +
-                                test.relatedBeAFixTest().command() + "\n")
-                                .getBytes(),
-                        StandardOpenOption.APPEND);
-                testCount++;
-            }
+        try (TestsFileWriter writer = newFile?TestsFileWriter.create(output):TestsFileWriter.append(output)) {
+            writer.newLine();
+            return writer.writeAll(tests);
         }
-        return testCount;
     }
 
     public static void writeToFile(Path file, boolean newFile, String content) throws IOException {
@@ -211,9 +188,10 @@ public final class Utils {
         });
     }
 
-    public static void writeReport(Report report) throws IOException {
-        String reportFileRaw = "icebar.info";
-        Path reportFilePath = Paths.get(reportFileRaw);
+    private static final String REPORT_FILE = "icebar.info";
+
+    public static void writeReport(Path folder, Report report) throws IOException {
+        Path reportFilePath = folder.resolve(REPORT_FILE);
         File reportFile = reportFilePath.toFile();
         if (reportFile.exists() && !reportFile.delete())
             throw new Error("Report file (" + reportFilePath + ") exists but couldn't be deleted");
@@ -237,8 +215,8 @@ public final class Utils {
     
     private static final String CANDIDATE_FILE = "icebar_arepair.info";
     
-    public static void startCandidateInfoFile() throws IOException {
-        Path candidateInfoFilePath = Paths.get(CANDIDATE_FILE);
+    public static void startCandidateInfoFile(Path folder) throws IOException {
+        Path candidateInfoFilePath = folder.resolve(CANDIDATE_FILE);
         File candidateInfoFile = candidateInfoFilePath.toFile();
         if (candidateInfoFile.exists() && !candidateInfoFile.delete())
             throw new Error("Candidate info file (" + candidateInfoFilePath + ") exists but couldn't be deleted");
@@ -248,8 +226,14 @@ public final class Utils {
         Files.write(candidateInfoFilePath, CANDIDATE_REPORT_HEADER.getBytes(), StandardOpenOption.APPEND);
     }
 
-    public static void writeCandidateInfo(FixCandidate candidate, Collection<BeAFixTest> globalCounterexampleTests, ARepair.ARepairResult aRepairResult) throws IOException {
-        Path candidateInfoFilePath = Paths.get(CANDIDATE_FILE);
+    public static void continueCandidateInfoFile(Path folder) throws IOException {
+        Path candidateInfoFilePath = folder.resolve(CANDIDATE_FILE);
+        if (!candidateInfoFilePath.toFile().exists())
+            startCandidateInfoFile(folder);
+    }
+
+    public static void writeCandidateInfo(Path folder, FixCandidate candidate, Collection<BeAFixTest> globalCounterexampleTests, ARepair.ARepairResult aRepairResult) throws IOException {
+        Path candidateInfoFilePath = folder.resolve(CANDIDATE_FILE);
         File candidateInfoFile = candidateInfoFilePath.toFile();
         if (!candidateInfoFile.exists())
             throw new Error("Candidate info file (" + candidateInfoFilePath + ") doesn't exists");
@@ -303,13 +287,14 @@ public final class Utils {
         return maxScope;
     }
 
+    private static final Pattern NON_DIGITS = Pattern.compile("\\D+");
     public static int getMaxScopeFromCommandSegments(String[] segments) {
         int currentScope = NO_SCOPE;
         int idx = 0;
         while(idx < segments.length && segments[idx].compareTo("for") != 0) idx++;
         if (idx < segments.length) {
             while (idx < segments.length && segments[idx].compareTo("expect") != 0) {
-                String numberData = segments[idx].replaceAll("\\D+", "");
+                String numberData = NON_DIGITS.matcher(segments[idx]).replaceAll("");
                 if (!numberData.trim().isEmpty()) {
                     try {
                         int scope = Integer.parseInt(numberData);
@@ -324,27 +309,6 @@ public final class Utils {
         return currentScope;
     }
 
-    public static boolean findNullPointerExceptionInLog(Path log) throws IOException {
-        if (!isValidPath(log, PathCheck.FILE))
-            throw new IllegalArgumentException("Invalid log file " + (log==null?"NULL":log.toString()));
-        for (String aLine : Files.readAllLines(log)) {
-            if (aLine.trim().startsWith("Exception"))
-                return aLine.contains("java.lang.NullPointerException");
-        }
-        return false;
-    }
-
-    public static Optional<String> findStringInFile(Path f, String target) throws IOException {
-        if (!isValidPath(f, PathCheck.FILE))
-            throw new IllegalArgumentException("Invalid file " + (f==null?"NULL":f.toString()));
-        for (String aLine : Files.readAllLines(f)) {
-            if (aLine.contains(target)) {
-                return Optional.of(aLine.trim());
-            }
-        }
-        return Optional.empty();
-    }
-
     private static final String SYMBOLS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
     private static final int NAME_LENGTH = 8;
     public static String generateRandomName() {